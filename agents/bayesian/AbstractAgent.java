@@ -1,12 +1,15 @@
 package masters.agents.bayesian;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
+import java.util.Random;
 
 import negotiator.Agent;
 import negotiator.Bid;
+import negotiator.NegotiationResult;
 import negotiator.actions.Action;
 import negotiator.issue.Issue;
 import negotiator.issue.IssueInteger;
@@ -16,11 +19,18 @@ import negotiator.issue.ValueInteger;
 import negotiator.issue.ValueReal;
 import negotiator.timeline.DiscreteTimeline;
 import negotiator.utility.Evaluator;
+import negotiator.utility.EvaluatorDiscrete;
 import negotiator.utility.EvaluatorReal;
 import negotiator.utility.EvaluatorInteger;
 import negotiator.utility.AdditiveUtilitySpace;
+import masters.agents.monitor.FlightRecorder;
+import masters.agents.monitor.Metric;
+import masters.agents.monitor.Metrics;
+import masters.agents.monitor.MetricsRegistry;
+import masters.agents.monitor.Trace;
+import masters.agents.monitor.TraceEvent;
 
-public abstract class AbstractAgent extends Agent {
+public abstract class AbstractAgent extends Agent implements Seedable {
 	PreferenceEstimator predictor;
 	public List<Issue> issues;
 	
@@ -29,10 +39,255 @@ public abstract class AbstractAgent extends Agent {
 	Bid optimalBid;
 	
 	public Map<Issue, Integer> agentEvaluationAim;
-	boolean debug = true;
+	protected IssueIndex issueIndex;
+	protected UtilityEvaluator evaluator;
+	protected CounterOfferGenerator counterOfferGenerator;
+	protected Trace trace;
+	protected Metrics metrics;
+	protected FlightRecorder flightRecorder = FlightRecorder.getDefault();
+	/** The span of the turn in progress. */
+	FlightRecorder.Span turn = FlightRecorder.Span.NONE;
+	protected ConcessionEngine concession;
+	protected Random random = new Random();
+	/** The store of the models of past opponents, null if it is not enabled. */
+	protected OpponentModelStore opponentModelStore;
+	/** The name the model of the current opponent is stored under, once the opponent is known. */
+	String opponentModelName;
+	
+	/**
+	 * Read the issues of the domain and build the issue index, utility evaluator,
+	 * bid index and counter-offer generator of the agent. Called once from init(), also starts the trace
+	 * and looks up the metrics of the class of the agent.
+	 * 
+	 * @throws Exception
+	 */
+	protected void initIssues() throws Exception {
+		trace = new Trace(getName());
+		metrics = MetricsRegistry.getDefault().getMetrics(getClass().getName());
+		issues = utilitySpace.getDomain().getIssues();
+		agentEvaluationAim = getAgentEvaluationAim();
+		issueIndex = new IssueIndex(issues, agentEvaluationAim);
+		evaluator = new UtilityEvaluator(issueIndex, (AdditiveUtilitySpace) utilitySpace);
+		counterOfferGenerator = new CounterOfferGenerator(utilitySpace.getDomain(), evaluator);
+		counterOfferGenerator.setBidIndex(BidIndex.create(utilitySpace.getDomain(), evaluator, MAXIMUM_INDEXED_BIDS));
+		opponentModelStore = OpponentModelStore.getDefault();
+		opponentModelName = null;
+	}
+	
+	/**
+	 * Update the predictor with an offer of the opponent, and record how long it took and how many
+	 * hypotheses are left.
+	 * 
+	 * @param bid
+	 */
+	protected void updateModel(Bid bid) {
+		long start = Metrics.start();
+		FlightRecorder.Span span = flightRecorder.beginModelUpdate(getName());
+		predictor.updateModel(bid);
+		metrics.stop(Metric.UPDATE_MODEL, start);
+		long alive = predictor.getAliveHypotheses();
+		metrics.record(Metric.HYPOTHESES_ALIVE, alive);
+		span.endModelUpdate(alive);
+	}
+	
+	/**
+	 * Begin the span of a turn, called first thing in chooseAction.
+	 * 
+	 * @return the start time for recordTurn.
+	 */
+	protected long startTurn() {
+		turn = flightRecorder.beginTurn(getName());
+		return Metrics.start();
+	}
+	
+	/**
+	 * Record the duration of chooseAction and the amount of bids constructed during it, and end the
+	 * span of the turn with the chosen action.
+	 * 
+	 * @param start
+	 * 			The time returned by startTurn() when chooseAction started.
+	 * @param action
+	 */
+	protected void recordTurn(long start, Action action) {
+		int bids = counterOfferGenerator.takeBidCount();
+		metrics.record(Metric.BIDS_PER_TURN, bids);
+		metrics.stop(Metric.CHOOSE_ACTION, start);
+		if (turn.isRecording())
+			turn.endTurn(timeline.getTime(), action == null ? "none" : action.getClass().getSimpleName(), bids);
+		turn = FlightRecorder.Span.NONE;
+	}
+	
+	/**
+	 * Record the decision on the last offer of the opponent, the utility of the offer is only computed
+	 * when the span is recorded.
+	 * 
+	 * @param span
+	 * 			The span returned by beginAcceptance.
+	 * @param accepted
+	 * @param threshold
+	 * 			The utility the offer had to reach, NaN if the agent decides on time alone.
+	 */
+	protected void recordAcceptance(FlightRecorder.Span span, boolean accepted, double threshold) {
+		if (span.isRecording())
+			span.endAcceptance(accepted, getUtility(lastBidOpponent), threshold);
+	}
+	
+	/**
+	 * Continue from the model of the opponent saved in an earlier session on the same domain, if there is one.
+	 * The opponent is not known yet in init(), so this is called first thing in ReceiveMessage and only
+	 * looks up the model for the first action of the opponent.
+	 * 
+	 * @param opponentAction
+	 */
+	protected void restoreOpponentModel(Action opponentAction) {
+		if (opponentModelStore == null || opponentModelName != null || opponentAction == null || opponentAction.getAgent() == null)
+			return;
+		opponentModelName = getClass().getName() + "/" + utilitySpace.getDomain().getName() + "/" + getOpponentName(opponentAction.getAgent().getName());
+		long start = System.nanoTime();
+		ByteBuffer model = opponentModelStore.load(opponentModelName);
+		if (model == null)
+			return;
+		try {
+			readOpponentModel(model);
+			trace.record(TraceEvent.MODEL_RESTORED, model.limit(), (System.nanoTime() - start) / 1e3);
+		} catch (Exception e) {
+			System.out.println("Problem while restoring the opponent model " + opponentModelName + ": " + e.getMessage());
+		}
+	}
+	
+	/**
+	 * The name of the opponent in the key of its model. The headless sessions give the agents the id
+	 * role:class, the role is left out so the model is found whichever side the opponent plays.
+	 * 
+	 * @param agentId
+	 * 			The name of the AgentID of the opponent.
+	 * @return name
+	 */
+	static String getOpponentName(String agentId) {
+		int separator = agentId.indexOf(':');
+		if (separator < 1)
+			return agentId;
+		for (int i = 0; i < separator; i++) {
+			if (!Character.isDigit(agentId.charAt(i)))
+				return agentId;
+		}
+		return agentId.substring(separator + 1);
+	}
+	
+	/**
+	 * Save the model of the opponent, called when the session ends. The model is written straight into
+	 * the store, models larger than the store are not saved.
+	 */
+	protected void saveOpponentModel() {
+		if (opponentModelStore == null || opponentModelName == null)
+			return;
+		long size = getOpponentModelSize();
+		if (opponentModelStore.save(opponentModelName, size, this::writeOpponentModel))
+			trace.record(TraceEvent.MODEL_SAVED, (int) size, 0);
+	}
+	
+	/**
+	 * @return the size in bytes of the model written by writeOpponentModel.
+	 */
+	protected long getOpponentModelSize() {
+		return predictor == null ? 0 : predictor.getModelSize();
+	}
+	
+	/**
+	 * Write what the agent learned about the opponent, the model of the predictor by default.
+	 * Agents that learn more extend this, and readOpponentModel and getOpponentModelSize with it.
+	 * 
+	 * @param buffer
+	 */
+	protected void writeOpponentModel(ByteBuffer buffer) {
+		if (predictor != null)
+			predictor.writeModel(buffer);
+	}
+	
+	/**
+	 * Continue from a model written by writeOpponentModel.
+	 * 
+	 * @param buffer
+	 * @throws Exception
+	 * 			If the model does not match the domain.
+	 */
+	protected void readOpponentModel(ByteBuffer buffer) throws Exception {
+		if (predictor != null)
+			predictor.readModel(buffer);
+	}
+	
+	/**
+	 * Seed the randomness of the agent and its predictor, called before init().
+	 */
+	public void setSeed(long seed) {
+		random.setSeed(seed);
+	}
+	
+	/**
+	 * Create the concession engine of the agent, the best and worst utility are determined once here.
+	 * 
+	 * @param curve
+	 * @return concession engine
+	 * @throws Exception
+	 */
+	protected ConcessionEngine createConcessionEngine(ConcessionCurve curve) throws Exception {
+		double bestUtility = getUtility(utilitySpace.getMaxUtilityBid());
+		double worstUtility = getUtility(utilitySpace.getMinUtilityBid());
+		return new ConcessionEngine(bestUtility, worstUtility, curve);
+	}
+	
+	/**
+	 * Domains of Integer and Discrete issues with at most this many bids get a BidIndex, which then picks
+	 * the counter-offers instead of the proposition of Zhang. Off by default, enabled with masters.indexedBids
+	 * (BidIndex.DEFAULT_MAXIMUM_BIDS is a sensible size).
+	 */
+	int MAXIMUM_INDEXED_BIDS = Integer.getInteger("masters.indexedBids", 0);
+	
+	/**
+	 * Domains with more issues than this use a ParticleFilterPredictor,
+	 * as the hypotheses space of the BayesianPredictor grows with n!.
+	 * Can be raised with masters.exactIssues, with -Dmasters.beliefStore=mapped for the beliefs to be off-heap.
+	 */
+	int MAXIMUM_EXACT_ISSUES = Integer.getInteger("masters.exactIssues", 9);
+	int PARTICLE_COUNT = ParticleFilterPredictor.DEFAULT_PARTICLE_COUNT;
+	
+	/**
+	 * Create the predictor for the preference of the opponent. The exact BayesianPredictor is used
+	 * for small domains, larger domains are approximated with a fixed amount of particles.
+	 * 
+	 * @return predictor
+	 * @throws Exception
+	 */
+	protected PreferenceEstimator createPredictor() throws Exception {
+		PreferenceEstimator predictor;
+		if (issues.size() <= MAXIMUM_EXACT_ISSUES)
+			predictor = new BayesianPredictor(utilitySpace.getDomain().getIssues(), agentEvaluationAim);
+		else
+			predictor = new ParticleFilterPredictor(issues, agentEvaluationAim, PARTICLE_COUNT,
+					ParticleFilterPredictor.DEFAULT_MUTATION_RATE, new Random(random.nextLong()));
+		predictor.setTrace(trace);
+		return predictor;
+	}
+	
+	/**
+	 * Save the model of the opponent, flush the trace of the agent, export the metrics and release the
+	 * predictor when the session ends.
+	 */
+	@Override
+	public void endSession(NegotiationResult result) {
+		super.endSession(result);
+		saveOpponentModel();
+		MetricsRegistry.getDefault().exportToDefaultFile();
+		if (trace != null)
+			trace.close();
+		if (predictor != null)
+			predictor.close();
+	}
 	
 	/** 
 	 * Get the aim of the agent, whether it want to maximize/minimize the value of an issue.
+	 * The values of a Discrete issue have no order, their evaluations are kept in a table
+	 * by the UtilityEvaluator instead, so their aim is always 1.
 	 * 
 	 * @return
 	 * @throws Exception
@@ -58,6 +313,8 @@ public abstract class AbstractAgent extends Agent {
 				} else {
 					result.put(issue, -1);
 				}
+			} else if (evaluator instanceof EvaluatorDiscrete) {
+				result.put(issue, 1);
 			} else {
 				throw new Exception("Evaluator type " + evaluator.getType() + " not supported.");
 			}
@@ -148,37 +405,39 @@ public abstract class AbstractAgent extends Agent {
 	 * @return
 	 */
 	protected Issue getIssue(int id) {
-		List<Issue> issues = utilitySpace.getDomain().getIssues();
-		for (Issue i : issues) {
-			if (i.getNumber() == id)
-				return i;
-		}
-		return null;
+		return issueIndex.getIssueByNumber(id);
 	}
 	
 	/**
-	 * Get the value of a value object, this also takes the evaluation aim into account.
+	 * Get the value of a value object as a double.
 	 * @param value
 	 * @return
 	 * @throws Exception
 	 */
-	protected double getValue(Value value, Issue issue) throws Exception {
+	private double getDoubleValue(Value value) throws Exception {
 		switch (value.getType()) {
 		case REAL:
-			ValueReal valueReal = (ValueReal) value;
-			if (agentEvaluationAim.get(issue) == 1)
-				return valueReal.getValue();
-			return getUpperBound(issue) - valueReal.getValue();
+			return ((ValueReal) value).getValue();
 		case INTEGER:
-			ValueInteger valueInt = (ValueInteger) value;
-			if (agentEvaluationAim.get(issue) == 1)
-				return valueInt.getValue();
-			return getUpperBound(issue) - valueInt.getValue();
+			return ((ValueInteger) value).getValue();
 		default:
 			throw new Exception("value type " + value.getType() + " not supported.");
 		}
 	}
 	
+	/**
+	 * Get the value of a value object, this also takes the evaluation aim into account.
+	 * @param value
+	 * @return
+	 * @throws Exception
+	 */
+	protected double getValue(Value value, Issue issue) throws Exception {
+		int position = issueIndex.getPosition(issue.getNumber());
+		if (issueIndex.getAim(position) == 1)
+			return getDoubleValue(value);
+		return issueIndex.getUpperBound(position) - getDoubleValue(value);
+	}
+	
 	/**
 	 * Get the normalized value of the Value object, this also takes the evaluation aim into account.
 	 * 
@@ -188,22 +447,7 @@ public abstract class AbstractAgent extends Agent {
 	 * @throws Exception
 	 */
 	protected double getNormalizedValue(Issue issue, Value value) throws Exception {
-		switch (value.getType()) {
-		case REAL:
-			ValueReal valueReal = (ValueReal) value;
-			IssueReal issueReal = (IssueReal) issue;
-			if (agentEvaluationAim.get(issue) == 1)
-				return normalize(valueReal.getValue(), issueReal.getUpperBound(), issueReal.getLowerBound());
-			return normalize(issueReal.getUpperBound() - valueReal.getValue(), issueReal.getUpperBound(), issueReal.getLowerBound());
-		case INTEGER:
-			ValueInteger valueInt = (ValueInteger) value;
-			IssueInteger issueInt = (IssueInteger) issue;
-			if (agentEvaluationAim.get(issue) == 1)
-				return normalize(valueInt.getValue(), issueInt.getUpperBound(), issueInt.getLowerBound());
-			return normalize((double) issueInt.getUpperBound() - valueInt.getValue(), issueInt.getUpperBound(), issueInt.getLowerBound());
-		default:
-			throw new Exception("value type " + value.getType() + " not supported.");
-		}
+		return getNormalizedValue(issue.getNumber(), value);
 	}
 	
 	/**
@@ -215,23 +459,8 @@ public abstract class AbstractAgent extends Agent {
 	 * @throws Exception
 	 */
 	protected double getNormalizedValue(int issueId, Value value) throws Exception {
-		Issue issue = getIssue(issueId);
-		switch (value.getType()) {
-		case REAL:
-			ValueReal valueReal = (ValueReal) value;
-			IssueReal issueReal = (IssueReal) issue;
-			if (agentEvaluationAim.get(issue) == 1)
-				return normalize(valueReal.getValue(), issueReal.getUpperBound(), issueReal.getLowerBound());
-			return normalize(issueReal.getUpperBound() - valueReal.getValue(), issueReal.getUpperBound(), issueReal.getLowerBound());
-		case INTEGER:
-			ValueInteger valueInt = (ValueInteger) value;
-			IssueInteger issueInt = (IssueInteger) issue;
-			if (agentEvaluationAim.get(issue) == 1)
-				return normalize(valueInt.getValue(), issueInt.getUpperBound(), issueInt.getLowerBound());
-			return normalize((issueInt.getUpperBound() - valueInt.getValue()), issueInt.getUpperBound(), issueInt.getLowerBound());
-		default:
-			throw new Exception("value type " + value.getType() + " not supported.");
-		}
+		int position = issueIndex.getPosition(issueId);
+		return evaluator.getNormalizedValue(position, evaluator.toDouble(position, value));
 	}
 	
 	public int getRound() {
@@ -266,26 +495,14 @@ public abstract class AbstractAgent extends Agent {
 		return (val - min) / (max - min);
 	}
 	
-	void printPreference(Map<Issue, Double> preference) {
-		println("Estimated preference:");
-		for (Issue issue : preference.keySet()) {
-			println(issue.getName() + " : " + preference.get(issue));
-		}
-	}
-	
 	/**
-	 * Convenient print procedure for tracing the process.
+	 * Trace the estimated weights of the opponent. The map is only walked when the trace records them.
 	 */
-	void print(String s) {
-		if (debug)
-			System.out.print(s);
-	}
-	
-	/**
-	 * Convenient print procedure for tracing the process.
-	 */
-	void println(String s) {
-		if (debug) 
-			System.out.println("############ " + s);
+	void tracePreference(Map<Issue, Double> preference) {
+		if (!Trace.isEnabled(TraceEvent.OPPONENT_WEIGHT.getLevel()))
+			return;
+		for (Issue issue : preference.keySet()) {
+			trace.record(TraceEvent.OPPONENT_WEIGHT, issue.getNumber(), preference.get(issue));
+		}
 	}
 }
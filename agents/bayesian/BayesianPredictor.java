@@ -2,16 +2,17 @@ package masters.agents.bayesian;
 
 import negotiator.Bid;
 import negotiator.issue.Issue;
-import negotiator.issue.IssueInteger;
-import negotiator.issue.IssueReal;
-import negotiator.issue.Value;
-import negotiator.issue.ValueInteger;
-import negotiator.issue.ValueReal;
+import masters.agents.monitor.Trace;
+import masters.agents.monitor.TraceEvent;
 
+import java.nio.ByteBuffer;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Map;
 import java.util.HashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 
 /**
@@ -20,104 +21,494 @@ import java.util.HashMap;
  * 			Bayesian preference predictor in Bilateral Multi-issue Negotiation.
  * 
  * Assumptions:
- * 	- All issues are Real.
+ * 	- All issues are Real, Integer or Discrete. The opponent prefers the Discrete values it offers most.
  * 	- All issues are conflict issues.
  */
 public class BayesianPredictor extends PreferenceEstimator {
-	Map<Integer, List<Issue>> hypothesesSpace;
-	Map<Integer, Double> beliefs;
-	Integer best;
-	boolean debug = true;
+	/** The largest amount of issues, the amount of hypotheses n! has to fit in an int. */
+	public static final int MAXIMUM_ISSUES = 12;
 	
+	/** The amount of issues n, and the amount of hypotheses n!. */
+	int issueCount;
+	int hypothesisCount;
+	/** The amount of hypotheses in a block, CHUNK_SIZE unless there are fewer hypotheses. */
+	int blockSize;
+	/** Natural logarithm of the belief in each hypothesis, indexed by the rank of its permutation. */
+	BeliefStore logBeliefs;
+	int best;
+	/** rankWeights[i] is the weight of the issue at place i of a ranking. */
+	double[] rankWeights;
+	/** The normalized values of the issues in the offer for the opponent, indexed by position. */
+	double[] offerValues;
+	MatrixProduct product = MatrixProduct.getDefault();
 	/**
-	 * Initialize the bayesian predictor by calculating the hypotheses-space and set the beliefs.
+	 * The blocks that are not in use. A chunk takes a block while it runs and returns it, so the predictor
+	 * holds as many blocks as chunks ran at the same time: one when updating sequentially, at most one per
+	 * thread of the pool otherwise. They are released with the predictor, or on close().
 	 */
-	public BayesianPredictor(List<Issue> issues, Map<Issue, Integer> agentEvaluationAim) {
+	Block[] freeBlocks = new Block[1];
+	int freeBlockCount;
+	
+	/** The size of the chunks of hypotheses the update is split in, this does not depend on the parallelism. */
+	public static final int CHUNK_SIZE = 1 << 14;
+	/** Hypothesis spaces from this size are updated in parallel, unless overridden with masters.parallelThreshold. */
+	public static final int DEFAULT_PARALLEL_THRESHOLD = Integer.getInteger("masters.parallelThreshold", 1 << 20);
+	static final int LIKELIHOOD_PASS = 0;
+	static final int TOTAL_PASS = 1;
+	static final int NORMALIZE_PASS = 2;
+	ForkJoinPool pool = ForkJoinPool.commonPool();
+	int parallelThreshold = DEFAULT_PARALLEL_THRESHOLD;
+	double[] chunkHighest;
+	int[] chunkBest;
+	int[] chunkAlive;
+	int alive;
+	double[] chunkTotals;
+	double highest;
+	double logTotal;
+	
+	/**
+	 * The weights of the hypotheses of a chunk, decoded from their ranks, their likelihoods, and a copy
+	 * of their beliefs.
+	 */
+	static class Block {
+		int[] permutation;
+		/** The weight of the issue at position i in the r-th hypothesis of the chunk is weights[i * size + r]. */
+		double[] weights;
+		double[] weightSums;
+		double[] likelihoods;
+		double[] logBeliefs;
+		
+		Block(int issueCount, int size) {
+			permutation = new int[issueCount];
+			weights = new double[issueCount * size];
+			weightSums = new double[size];
+			likelihoods = new double[size];
+			logBeliefs = new double[size];
+		}
+	}
+	
+	/**
+	 * Initialize the bayesian predictor with the same belief in every ranking of the issues, stored in
+	 * the BeliefStore chosen with the system property masters.beliefStore.
+	 * 
+	 * @throws Exception
+	 * 			If there are more than MAXIMUM_ISSUES issues, or an issue is not of type Real, Integer or Discrete.
+	 */
+	public BayesianPredictor(List<Issue> issues, Map<Issue, Integer> agentEvaluationAim) throws Exception {
+		this(issues, agentEvaluationAim, BeliefStore.getDefaultType());
+	}
+	
+	/**
+	 * Initialize the bayesian predictor with the same belief in every ranking of the issues.
+	 * 
+	 * @param storeType
+	 * 			Where the beliefs are stored.
+	 * @throws Exception
+	 * 			If there are more than MAXIMUM_ISSUES issues, an issue is not of type Real, Integer or Discrete,
+	 * 			or the beliefs can not be stored.
+	 */
+	public BayesianPredictor(List<Issue> issues, Map<Issue, Integer> agentEvaluationAim, BeliefStore.Type storeType) throws Exception {
 		super(issues, agentEvaluationAim);
-		this.hypothesesSpace = new HashMap<Integer, List<Issue>>();
-		this.beliefs = new HashMap<Integer, Double>();
+		this.issueCount = evaluator.size();
+		if (issueCount > MAXIMUM_ISSUES)
+			throw new Exception(issueCount + " issues not supported, the maximum is " + MAXIMUM_ISSUES + ".");
+		this.hypothesisCount = (int) factorial(issueCount);
+		this.blockSize = Math.min(CHUNK_SIZE, hypothesisCount);
+		this.logBeliefs = storeType.create(hypothesisCount);
 		this.best = 0;
-		
-		List<List<Issue>> permutations = generatePerm(issues);
-		
-		for (int i = 0; i < permutations.size(); i++) {
-			this.hypothesesSpace.put(i, permutations.get(i));
-			this.beliefs.put(i, 1/(double)permutations.size());
+		this.rankWeights = new double[issueCount];
+		for (int i = 0; i < issueCount; i++) {
+			rankWeights[i] = 2 * ((double) i + 1)/(issueCount * (issueCount + 1));
 		}
+		this.offerValues = new double[issueCount];
+		int chunks = (hypothesisCount + CHUNK_SIZE - 1) / CHUNK_SIZE;
+		chunkHighest = new double[chunks];
+		chunkBest = new int[chunks];
+		chunkAlive = new int[chunks];
+		chunkTotals = new double[chunks];
+		resetBeliefs();
+	}
+	
+	/**
+	 * Use another implementation of the matrix-vector product, the beliefs do not change.
+	 * 
+	 * @param product
+	 */
+	public void setMatrixProduct(MatrixProduct product) {
+		this.product = product;
+	}
+	
+	/**
+	 * Give every hypothesis the same belief.
+	 */
+	private void resetBeliefs() {
+		logBeliefs.fill(-Math.log(hypothesisCount));
+		alive = hypothesisCount;
 	}
 	
 	/**
 	 * Update the current beliefs of the hypotheses given the new offer.
+	 * The beliefs are kept in log space, so they do not underflow in long negotiations.
+	 * The offer is normalized once, after which the likelihoods of all hypotheses are a single product
+	 * of the weight matrix and the offer. Normalization uses log-sum-exp.
+	 * 
+	 * The hypotheses are updated in chunks of CHUNK_SIZE in three passes: the likelihoods and the
+	 * best hypothesis per chunk, the sum of exp(belief - highest) per chunk, and the normalization.
+	 * From parallelThreshold hypotheses the chunks of a pass run on the fork-join pool. The results of
+	 * the chunks are combined in chunk order on the calling thread, so the beliefs are bit-identical
+	 * to the sequential update.
 	 * 
 	 * @param bid
 	 * 			The bid of the opponent.
 	 */
 	public void updateModel(Bid bid) {
-		Double highest = (double) 0;
-		Double newBelief;
-                Double total = (double) 0;
+		evaluator.addOpponentBid(bid);
 		try {
-			for (Integer h : beliefs.keySet()) {
-				newBelief = beliefs.get(h)*calculateUtilityOpponent(getWeights(hypothesesSpace.get(h)), bid);
-				println("Belief " + h.toString() + " has chance " + newBelief.toString());
-				beliefs.put(h, newBelief);
-				total += newBelief;
-				if(highest <= beliefs.get(h)) {
-					best = h;
-					highest = beliefs.get(h);
+			for (int i = 0; i < offerValues.length; i++) {
+				offerValues[i] = evaluator.getOpponentNormalizedValue(i, evaluator.getValue(bid, i));
+			}
+			runPass(LIKELIHOOD_PASS);
+			if (Trace.isEnabled(TraceEvent.BELIEF.getLevel())) {
+				for (int h = 0; h < hypothesisCount; h++) {
+					trace.record(TraceEvent.BELIEF, h, logBeliefs.get(h));
+				}
+			}
+			// Ties go to the later hypothesis.
+			highest = Double.NEGATIVE_INFINITY;
+			alive = 0;
+			for (int c = 0; c < chunkHighest.length; c++) {
+				alive += chunkAlive[c];
+				if (chunkHighest[c] != Double.NEGATIVE_INFINITY && highest <= chunkHighest[c]) {
+					highest = chunkHighest[c];
+					best = chunkBest[c];
 				}
 			}
-			for (Integer h : beliefs.keySet()) {
-				newBelief = beliefs.put(h, beliefs.get(h) / total);
+			if (highest == Double.NEGATIVE_INFINITY) {
+				// The offer is impossible under every hypothesis, start again from the prior.
+				trace.record(TraceEvent.BELIEFS_RESET);
+				resetBeliefs();
+				return;
+			}
+			runPass(TOTAL_PASS);
+			double total = 0;
+			for (int c = 0; c < chunkTotals.length; c++) {
+				total += chunkTotals[c];
 			}
+			logTotal = highest + Math.log(total);
+			runPass(NORMALIZE_PASS);
 		} catch (Exception e) {
 			System.out.println("Problem while updating bayesian beliefs:" + e.getMessage());
 			e.printStackTrace();
 		}
-		println("Best hypothesis : " + best);
+		trace.record(TraceEvent.BEST_HYPOTHESIS, best, logBeliefs.get(best));
+	}
+	
+	/**
+	 * Run a pass over all chunks, on the pool from parallelThreshold hypotheses.
+	 */
+	private void runPass(int pass) {
+		if (hypothesisCount >= parallelThreshold && chunkHighest.length > 1 && pool.getParallelism() > 1)
+			pool.invoke(new ChunkTask(pass, 0, chunkHighest.length));
+		else {
+			for (int c = 0; c < chunkHighest.length; c++) {
+				runChunk(pass, c);
+			}
+		}
+	}
+	
+	/**
+	 * Run a pass over one chunk, a chunk only writes its own hypotheses and its own element of the chunk arrays.
+	 * The beliefs of the chunk are copied from the store to a free block, and back if they change.
+	 */
+	private void runChunk(int pass, int chunk) {
+		int from = chunk * CHUNK_SIZE;
+		int length = Math.min(hypothesisCount - from, CHUNK_SIZE);
+		Block block = acquireBlock();
+		try {
+			runChunk(pass, chunk, from, length, block);
+		} finally {
+			releaseBlock(block);
+		}
+	}
+	
+	private void runChunk(int pass, int chunk, int from, int length, Block block) {
+		if (pass == LIKELIHOOD_PASS)
+			decode(block, from, from + length);
+		double[] chunkBeliefs = block.logBeliefs;
+		logBeliefs.read(from, chunkBeliefs, length);
+		switch (pass) {
+		case LIKELIHOOD_PASS:
+			product.multiply(block.weights, blockSize, offerValues, block.likelihoods, 0, length);
+			double chunkMaximum = Double.NEGATIVE_INFINITY;
+			int chunkArgmax = from;
+			int chunkAliveCount = 0;
+			for (int r = 0; r < length; r++) {
+				double logBelief = chunkBeliefs[r] + Math.log(block.likelihoods[r] / block.weightSums[r]);
+				chunkBeliefs[r] = logBelief;
+				if (logBelief != Double.NEGATIVE_INFINITY) {
+					chunkAliveCount++;
+					if (chunkMaximum <= logBelief) {
+						chunkMaximum = logBelief;
+						chunkArgmax = from + r;
+					}
+				}
+			}
+			logBeliefs.write(from, chunkBeliefs, length);
+			chunkHighest[chunk] = chunkMaximum;
+			chunkBest[chunk] = chunkArgmax;
+			chunkAlive[chunk] = chunkAliveCount;
+			break;
+		case TOTAL_PASS:
+			double total = 0;
+			for (int r = 0; r < length; r++) {
+				total += Math.exp(chunkBeliefs[r] - highest);
+			}
+			chunkTotals[chunk] = total;
+			break;
+		case NORMALIZE_PASS:
+			for (int r = 0; r < length; r++) {
+				chunkBeliefs[r] -= logTotal;
+			}
+			logBeliefs.write(from, chunkBeliefs, length);
+			break;
+		}
+	}
+	
+	/**
+	 * Take a free block, or create one if all blocks are in use by other chunks.
+	 */
+	private synchronized Block acquireBlock() {
+		if (freeBlockCount == 0)
+			return new Block(issueCount, blockSize);
+		Block block = freeBlocks[--freeBlockCount];
+		freeBlocks[freeBlockCount] = null;
+		return block;
+	}
+	
+	private synchronized void releaseBlock(Block block) {
+		if (freeBlockCount == freeBlocks.length)
+			freeBlocks = Arrays.copyOf(freeBlocks, 2 * freeBlocks.length);
+		freeBlocks[freeBlockCount++] = block;
+	}
+	
+	/**
+	 * Decode the weights of the hypotheses with the ranks from up to (excluding) to into a block. Only the
+	 * first rank is decoded from its Lehmer code, the next permutation in lexicographic order is the next
+	 * rank. The weight sums are summed in position order.
+	 */
+	private void decode(Block block, int from, int to) {
+		int[] permutation = block.permutation;
+		double[] weights = block.weights;
+		getPermutation(from, permutation);
+		for (int r = 0; r < to - from; r++) {
+			for (int i = 0; i < issueCount; i++) {
+				weights[permutation[i] * blockSize + r] = rankWeights[i];
+			}
+			double sum = 0;
+			for (int i = 0; i < issueCount; i++) {
+				sum += weights[i * blockSize + r];
+			}
+			block.weightSums[r] = sum;
+			nextPermutation(permutation);
+		}
 	}
 	
 	/**
-	 * Get the weights, given a ranking of the issues.
-	 * Example: ranking: [3, 1, 2]
-	 * 			weights: {3:0, 1:0.5, 2:1}
+	 * Splits a range of chunks in halves until a single chunk is left.
+	 */
+	private class ChunkTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		final int pass;
+		final int from;
+		final int to;
+		
+		ChunkTask(int pass, int from, int to) {
+			this.pass = pass;
+			this.from = from;
+			this.to = to;
+		}
+		
+		@Override
+		protected void compute() {
+			if (to - from == 1) {
+				runChunk(pass, from);
+				return;
+			}
+			int middle = (from + to) >>> 1;
+			invokeAll(new ChunkTask(pass, from, middle), new ChunkTask(pass, middle, to));
+		}
+	}
+	
+	/**
+	 * Run the passes of the update on a pool from the given amount of hypotheses, the beliefs do not change.
 	 * 
-	 * @param ranking
-	 * @return weights
+	 * @param pool
+	 * @param parallelThreshold
+	 * 			The amount of hypotheses from which the update runs on the pool, Integer.MAX_VALUE to stay sequential.
 	 */
-	private Map<Issue, Double> getWeights(List<Issue> ranking) {
-		HashMap<Issue, Double> weights = new HashMap<Issue, Double>();
-		int n = ranking.size();
-		for (int i = 0; i < n; i++) {
-			weights.put(ranking.get(i), 2 * ((double) i + 1)/(n * (n + 1)));
+	public void setParallelism(ForkJoinPool pool, int parallelThreshold) {
+		this.pool = pool;
+		this.parallelThreshold = parallelThreshold;
+	}
+	
+	/**
+	 * Get the current belief in a hypothesis.
+	 * 
+	 * @param hypothesis
+	 * @return belief
+	 */
+	public double getBelief(int hypothesis) {
+		return Math.exp(logBeliefs.get(hypothesis));
+	}
+	
+	/**
+	 * @return the store of the beliefs.
+	 */
+	public BeliefStore getBeliefStore() {
+		return logBeliefs;
+	}
+	
+	/**
+	 * The amount of hypotheses, the best hypothesis, the counts of the evaluator and the beliefs.
+	 * 8 bytes per hypothesis, more than 2 GB from 12 issues.
+	 */
+	@Override
+	public long getModelSize() {
+		return 8 + super.getModelSize() + 8L * hypothesisCount;
+	}
+	
+	@Override
+	public void writeModel(ByteBuffer buffer) {
+		buffer.putInt(hypothesisCount);
+		buffer.putInt(best);
+		super.writeModel(buffer);
+		Block block = acquireBlock();
+		double[] chunkBeliefs = block.logBeliefs;
+		for (int from = 0; from < hypothesisCount; from += blockSize) {
+			int length = Math.min(blockSize, hypothesisCount - from);
+			logBeliefs.read(from, chunkBeliefs, length);
+			buffer.asDoubleBuffer().put(chunkBeliefs, 0, length);
+			buffer.position(buffer.position() + 8 * length);
 		}
-		return weights;
+		releaseBlock(block);
+	}
+	
+	@Override
+	public void readModel(ByteBuffer buffer) throws Exception {
+		int count = buffer.getInt();
+		if (count != hypothesisCount)
+			throw new Exception("saved model of " + count + " hypotheses does not match.");
+		int savedBest = buffer.getInt();
+		super.readModel(buffer);
+		best = savedBest;
+		Block block = acquireBlock();
+		double[] chunkBeliefs = block.logBeliefs;
+		alive = 0;
+		for (int from = 0; from < hypothesisCount; from += blockSize) {
+			int length = Math.min(blockSize, hypothesisCount - from);
+			buffer.asDoubleBuffer().get(chunkBeliefs, 0, length);
+			buffer.position(buffer.position() + 8 * length);
+			logBeliefs.write(from, chunkBeliefs, length);
+			for (int r = 0; r < length; r++) {
+				if (chunkBeliefs[r] != Double.NEGATIVE_INFINITY)
+					alive++;
+			}
+		}
+		releaseBlock(block);
 	}
 	
 	/**
-	 * Calculate all the permutations of the given list.
+	 * Release the store of the beliefs and the blocks.
+	 */
+	@Override
+	public void close() {
+		logBeliefs.close();
+		synchronized (this) {
+			Arrays.fill(freeBlocks, null);
+			freeBlockCount = 0;
+		}
+	}
+	
+	/**
+	 * @return the amount of hypotheses with a non-zero belief.
+	 */
+	@Override
+	public int getAliveHypotheses() {
+		return alive;
+	}
+	
+	/**
+	 * @return the amount of hypotheses, n!.
+	 */
+	public int getHypothesisCount() {
+		return hypothesisCount;
+	}
+	
+	/**
+	 * Decode a hypothesis from its rank, the index of its permutation in lexicographic order.
+	 * Digit i of the Lehmer code, rank / (n - 1 - i)! modulo n - i, picks the digit-th issue
+	 * that is not placed yet.
+	 * Example: n = 3, rank 3 has Lehmer code [1, 1, 0] and permutation [1, 2, 0].
 	 * 
-	 * @param original
-	 * 			The original list that will be used to calculate all permutations of it.
-	 * @return List of all permutations of the original list.
-	 */
-	private <E> List<List<E>> generatePerm(List<E> original) {
-		if (original.size() == 0) {
-			List<List<E>> result = new ArrayList<List<E>>(); 
-			result.add(new ArrayList<E>()); 
-			return result; 
-		}
-		E firstElement = original.remove(0);
-		List<List<E>> returnValue = new ArrayList<List<E>>();
-		List<List<E>> permutations = generatePerm(original);
-		for (List<E> smallerPermutated : permutations) {
-			for (int index=0; index <= smallerPermutated.size(); index++) {
-				List<E> temp = new ArrayList<E>(smallerPermutated);
-				temp.add(index, firstElement);
-				returnValue.add(temp);
+	 * @param rank
+	 * @param permutation
+	 * 			The array the positions of the issues are written to, place i of the ranking first.
+	 * @return permutation
+	 */
+	public int[] getPermutation(int rank, int[] permutation) {
+		int n = permutation.length;
+		boolean[] placed = new boolean[n];
+		long base = factorial(n - 1);
+		for (int i = 0; i < n; i++) {
+			int digit = (int) (rank / base);
+			rank %= base;
+			if (i < n - 1)
+				base /= n - 1 - i;
+			int position = -1;
+			while (digit >= 0) {
+				position++;
+				if (!placed[position])
+					digit--;
 			}
+			placed[position] = true;
+			permutation[i] = position;
 		}
-		return returnValue;
+		return permutation;
+	}
+	
+	/**
+	 * Step to the next permutation in lexicographic order, the permutation with the next rank.
+	 * The last permutation wraps around to the first.
+	 */
+	static void nextPermutation(int[] permutation) {
+		int i = permutation.length - 2;
+		while (i >= 0 && permutation[i] > permutation[i + 1]) {
+			i--;
+		}
+		if (i >= 0) {
+			int j = permutation.length - 1;
+			while (permutation[j] < permutation[i]) {
+				j--;
+			}
+			swap(permutation, i, j);
+		}
+		for (int k = i + 1, l = permutation.length - 1; k < l; k++, l--) {
+			swap(permutation, k, l);
+		}
+	}
+	
+	private static void swap(int[] array, int i, int j) {
+		int temp = array[i];
+		array[i] = array[j];
+		array[j] = temp;
+	}
+	
+	static long factorial(int n) {
+		long result = 1;
+		for (int i = 2; i <= n; i++) {
+			result *= i;
+		}
+		return result;
 	}
 	
 	/**
@@ -128,7 +519,12 @@ public class BayesianPredictor extends PreferenceEstimator {
 	 * 			the double is the opponents weight of that issue.
 	 */
 	public Map<Issue, Double> getPreferenceWeights() {
-		return getWeights(hypothesesSpace.get(best));
+		int[] permutation = getPermutation(best, new int[issueCount]);
+		HashMap<Issue, Double> weights = new HashMap<Issue, Double>();
+		for (int i = 0; i < issueCount; i++) {
+			weights.put(issueIndex.getIssue(permutation[i]), rankWeights[i]);
+		}
+		return weights;
 	}
 	
 	/**
@@ -137,6 +533,11 @@ public class BayesianPredictor extends PreferenceEstimator {
 	 * @return rankingList
 	 */
 	public List<Issue> getPreferenceRanking() {
-		return hypothesesSpace.get(best);
+		int[] permutation = getPermutation(best, new int[issueCount]);
+		List<Issue> ranking = new ArrayList<Issue>();
+		for (int i = 0; i < issueCount; i++) {
+			ranking.add(issueIndex.getIssue(permutation[i]));
+		}
+		return ranking;
 	}
 }
@@ -0,0 +1,166 @@
+package masters.agents.bayesian;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Storage of the log-beliefs of the hypotheses of a BayesianPredictor, indexed by hypothesis.
+ *
+ * The predictor processes the beliefs a chunk at a time: a chunk is read into a buffer on the heap,
+ * updated there, and written back. The HEAP store keeps the beliefs in a double array. The MAPPED
+ * stores keep them off-heap in a memory-mapped file, so the working set of very large hypothesis
+ * spaces is handled by the page cache of the OS instead of the garbage collector. MAPPED_FLOAT
+ * stores every belief in single precision, which halves the file, the beliefs are then only
+ * accurate to about 7 digits.
+ *
+ * The type is chosen with the system property masters.beliefStore (heap, mapped or mapped-float),
+ * and the mapped files are created in the directory masters.beliefStore.dir, java.io.tmpdir by default.
+ *
+ * @author MASters
+ */
+public abstract class BeliefStore {
+	public static final String TYPE_PROPERTY = "masters.beliefStore";
+	public static final String DIRECTORY_PROPERTY = "masters.beliefStore.dir";
+
+	/**
+	 * The kinds of storage.
+	 */
+	public enum Type {
+		HEAP,
+		MAPPED,
+		MAPPED_FLOAT;
+
+		/**
+		 * @param size
+		 * 			The amount of beliefs.
+		 * @return a store of this type with room for size beliefs.
+		 * @throws IOException
+		 * 			If the mapped file can not be created.
+		 */
+		public BeliefStore create(int size) throws IOException {
+			if (this == HEAP)
+				return new Heap(size);
+			return new MappedBeliefStore(size, this == MAPPED_FLOAT, getDirectory());
+		}
+
+		/**
+		 * @param name
+		 * 			heap, mapped or mapped-float.
+		 * @return type
+		 */
+		public static Type parse(String name) {
+			return valueOf(name.trim().toUpperCase().replace('-', '_'));
+		}
+	}
+
+	/**
+	 * @return the type chosen with the system property masters.beliefStore, HEAP if it is not set.
+	 */
+	public static Type getDefaultType() {
+		String name = System.getProperty(TYPE_PROPERTY);
+		return name == null ? Type.HEAP : Type.parse(name);
+	}
+
+	static File getDirectory() {
+		return new File(System.getProperty(DIRECTORY_PROPERTY, System.getProperty("java.io.tmpdir")));
+	}
+
+	/**
+	 * @return the amount of beliefs.
+	 */
+	public abstract int size();
+
+	/**
+	 * @param index
+	 * @return the belief at the index.
+	 */
+	public abstract double get(int index);
+
+	/**
+	 * @param index
+	 * @param value
+	 */
+	public abstract void set(int index, double value);
+
+	/**
+	 * Copy the beliefs from up to (excluding) from + length into the buffer.
+	 *
+	 * @param from
+	 * @param buffer
+	 * @param length
+	 */
+	public abstract void read(int from, double[] buffer, int length);
+
+	/**
+	 * Copy the first length elements of the buffer to the beliefs from up to (excluding) from + length.
+	 *
+	 * @param from
+	 * @param buffer
+	 * @param length
+	 */
+	public abstract void write(int from, double[] buffer, int length);
+
+	/**
+	 * @param value
+	 * 			The value every belief is set to.
+	 */
+	public abstract void fill(double value);
+
+	/**
+	 * @return the name of the store.
+	 */
+	public abstract String getName();
+
+	/**
+	 * Release the storage, the store can not be used afterwards.
+	 */
+	public void close() {
+	}
+
+	/**
+	 * The beliefs in a double array on the heap.
+	 */
+	static class Heap extends BeliefStore {
+		double[] beliefs;
+
+		Heap(int size) {
+			this.beliefs = new double[size];
+		}
+
+		@Override
+		public int size() {
+			return beliefs.length;
+		}
+
+		@Override
+		public double get(int index) {
+			return beliefs[index];
+		}
+
+		@Override
+		public void set(int index, double value) {
+			beliefs[index] = value;
+		}
+
+		@Override
+		public void read(int from, double[] buffer, int length) {
+			System.arraycopy(beliefs, from, buffer, 0, length);
+		}
+
+		@Override
+		public void write(int from, double[] buffer, int length) {
+			System.arraycopy(buffer, 0, beliefs, from, length);
+		}
+
+		@Override
+		public void fill(double value) {
+			Arrays.fill(beliefs, value);
+		}
+
+		@Override
+		public String getName() {
+			return "heap";
+		}
+	}
+}
@@ -0,0 +1,221 @@
+package masters.agents.bayesian;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+import negotiator.Bid;
+import negotiator.Domain;
+import negotiator.issue.Value;
+
+/**
+ * Bids of a domain of Integer and Discrete issues, sorted on the utility of the agent.
+ *
+ * The index is built once when a session starts, by enumerating the bid space. A bid is stored as a row
+ * of primitive values (the Integer value, or the index of a Discrete value) in one int array, so the index
+ * costs 4 * issues + 8 bytes per bid. Domains with Real issues, or with more bids than the maximum size of
+ * the index, are not indexed: a random sample of a large space would offer whichever sample happens to be
+ * above the target instead of a constructed bid.
+ *
+ * The bids above a target utility are found with a binary search, and all of them are scored for the
+ * opponent, so the best bid for the opponent that reaches the target is offered. The size of the index
+ * bounds the cost of a search.
+ *
+ * @author MASters
+ */
+public class BidIndex {
+	public static final int DEFAULT_MAXIMUM_BIDS = 1 << 15;
+
+	Domain domain;
+	UtilityEvaluator evaluator;
+	int issueCount;
+	int size;
+	/** values[row * issueCount + i] is the value of issue i in the bid of the row. */
+	int[] values;
+	/** The utility of the bid of every row for the agent, ascending. */
+	double[] utilities;
+	/** The amount of bids the last call of getBid(targetUtility, opponentWeights) considered. */
+	int candidates;
+
+	/**
+	 * Build the index of a domain.
+	 *
+	 * @param domain
+	 * @param evaluator
+	 * 			The utility evaluator of the agent.
+	 * @param maximumBids
+	 * 			The maximum size of the index.
+	 * @return index, or null if the domain has a Real issue, more bids than maximumBids, or maximumBids is not positive.
+	 */
+	public static BidIndex create(Domain domain, UtilityEvaluator evaluator, int maximumBids) {
+		if (maximumBids < 1)
+			return null;
+		double spaceSize = 1;
+		for (int i = 0; i < evaluator.size(); i++) {
+			if (!evaluator.isInteger(i) && !evaluator.isDiscrete(i))
+				return null;
+			spaceSize *= getValueCount(evaluator, i);
+		}
+		if (spaceSize > maximumBids)
+			return null;
+		return new BidIndex(domain, evaluator, (int) spaceSize);
+	}
+
+	private static int getValueCount(UtilityEvaluator evaluator, int position) {
+		return (int) (evaluator.getUpperBound(position) - evaluator.getLowerBound(position)) + 1;
+	}
+
+	BidIndex(Domain domain, UtilityEvaluator evaluator, int size) {
+		this.domain = domain;
+		this.evaluator = evaluator;
+		this.issueCount = evaluator.size();
+		this.size = size;
+
+		int[] unsorted = new int[size * issueCount];
+		int[] row = new int[issueCount];
+		for (int i = 0; i < issueCount; i++) {
+			row[i] = (int) evaluator.getLowerBound(i);
+		}
+		for (int r = 0; r < size; r++) {
+			System.arraycopy(row, 0, unsorted, r * issueCount, issueCount);
+			next(row);
+		}
+
+		// Sort on utility with a primitive sort: the utility, rounded to 2^-31, in the high bits and the row in the low bits.
+		long[] keys = new long[size];
+		for (int r = 0; r < size; r++) {
+			double utility = Math.min(1, Math.max(0, getUtility(unsorted, r)));
+			keys[r] = ((long) (utility * (1L << 31)) << 31) | r;
+		}
+		Arrays.sort(keys);
+
+		this.values = new int[size * issueCount];
+		this.utilities = new double[size];
+		for (int r = 0; r < size; r++) {
+			int from = (int) (keys[r] & Integer.MAX_VALUE);
+			System.arraycopy(unsorted, from * issueCount, values, r * issueCount, issueCount);
+			utilities[r] = getUtility(values, r);
+		}
+	}
+
+	/**
+	 * Advance the row to the next bid, counting in the mixed radix of the value counts of the issues.
+	 */
+	private void next(int[] row) {
+		for (int i = 0; i < issueCount; i++) {
+			if (row[i] < evaluator.getUpperBound(i)) {
+				row[i]++;
+				return;
+			}
+			row[i] = (int) evaluator.getLowerBound(i);
+		}
+	}
+
+	private double getUtility(int[] rows, int row) {
+		double u = 0.0;
+		int offset = row * issueCount;
+		for (int i = 0; i < issueCount; i++) {
+			u += evaluator.getWeight(i) * evaluator.getNormalizedValue(i, rows[offset + i]);
+		}
+		return u / evaluator.getWeightSum();
+	}
+
+	/**
+	 * @return the amount of bids in the index.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @param row
+	 * @return the utility of the bid of the row for the agent.
+	 */
+	public double getUtility(int row) {
+		return utilities[row];
+	}
+
+	/**
+	 * Find the first row with at least the target utility, all later rows have a higher utility.
+	 *
+	 * @param targetUtility
+	 * @return row, or size() if no bid reaches the target.
+	 */
+	public int getFirst(double targetUtility) {
+		int low = 0;
+		int high = size;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (utilities[middle] < targetUtility)
+				low = middle + 1;
+			else
+				high = middle;
+		}
+		return low;
+	}
+
+	/**
+	 * Calculate the utility of the bid of a row for the opponent given an estimate of its weights.
+	 *
+	 * @param row
+	 * @param opponentWeights
+	 * 			The weights of the opponent, indexed by position.
+	 * @return utility
+	 */
+	public double getOpponentUtility(int row, double[] opponentWeights) {
+		double u = 0.0;
+		double max = 0.0;
+		int offset = row * issueCount;
+		for (int i = 0; i < issueCount; i++) {
+			max += opponentWeights[i];
+			u += opponentWeights[i] * evaluator.getOpponentNormalizedValue(i, values[offset + i]);
+		}
+		return u / max;
+	}
+
+	/**
+	 * Get the bid of the opponent's choice among all bids of the index that reach the target utility.
+	 *
+	 * @param targetUtility
+	 * @param opponentWeights
+	 * 			The weights of the opponent, indexed by position.
+	 * @return bid, or null if no bid in the index reaches the target.
+	 */
+	public Bid getBid(double targetUtility, double[] opponentWeights) {
+		int first = getFirst(targetUtility);
+		if (first == size) {
+			candidates = 0;
+			return null;
+		}
+		int best = first;
+		double bestUtility = -1;
+		candidates = size - first;
+		for (int row = first; row < size; row++) {
+			double utility = getOpponentUtility(row, opponentWeights);
+			if (utility > bestUtility) {
+				best = row;
+				bestUtility = utility;
+			}
+		}
+		return getBid(best);
+	}
+
+	/**
+	 * @return the amount of bids the last search for a bid considered.
+	 */
+	public int getCandidateCount() {
+		return candidates;
+	}
+
+	/**
+	 * @param row
+	 * @return the bid of the row.
+	 */
+	public Bid getBid(int row) {
+		HashMap<Integer, Value> bidValues = new HashMap<Integer, Value>();
+		int offset = row * issueCount;
+		for (int i = 0; i < issueCount; i++) {
+			bidValues.put(evaluator.getIssueNumber(i), evaluator.createValue(i, values[offset + i]));
+		}
+		return new Bid(domain, bidValues);
+	}
+}
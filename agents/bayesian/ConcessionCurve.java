@@ -0,0 +1,39 @@
+package masters.agents.bayesian;
+
+/**
+ * Schedule of how far an agent concedes from its best towards its worst utility during a session.
+ * A curve is evaluated in constant time, the ConcessionEngine maps the concession to a target utility.
+ *
+ * @author MASters
+ */
+public interface ConcessionCurve {
+	/**
+	 * Boulware: hardly concedes until the deadline comes close, t^4.
+	 */
+	ConcessionCurve BOULWARE = new PowerCurve(4);
+
+	/**
+	 * Linear: concedes at a constant rate, t.
+	 */
+	ConcessionCurve LINEAR = new PowerCurve(1);
+
+	/**
+	 * Conceder: concedes most at the start of the session, t^(1/4).
+	 */
+	ConcessionCurve CONCEDER = new PowerCurve(0.25);
+
+	/**
+	 * Uniform stopping: the target is the expected maximum of the offers still to come when the
+	 * utilities of the offers are uniformly distributed between the worst and best utility.
+	 */
+	ConcessionCurve UNIFORM_STOPPING = new UniformStoppingCurve();
+
+	/**
+	 * @param time
+	 * 			Normalized time of the session, between 0 and 1.
+	 * @param offers
+	 * 			The amount of offers received from the opponent so far.
+	 * @return the fraction of the utility range conceded, between 0 (best utility) and 1 (worst utility).
+	 */
+	double getConcession(double time, int offers);
+}
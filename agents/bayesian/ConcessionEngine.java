@@ -0,0 +1,87 @@
+package masters.agents.bayesian;
+
+/**
+ * Target utility of an agent over a session. The best and worst utility of the domain are
+ * determined once when the session starts, finding them can enumerate the bid space. After that,
+ * a target utility is a constant time evaluation of the concession curve:
+ * target = best - (best - worst) * concession(time, offers).
+ *
+ * The engine also counts the offers received, for curves that depend on them.
+ *
+ * @author MASters
+ */
+public class ConcessionEngine {
+	final double bestUtility;
+	final double worstUtility;
+	final double range;
+	ConcessionCurve curve;
+	int offers;
+
+	/**
+	 * @param bestUtility
+	 * 			The utility of the best bid of the agent.
+	 * @param worstUtility
+	 * 			The utility of the worst bid of the agent.
+	 * @param curve
+	 */
+	public ConcessionEngine(double bestUtility, double worstUtility, ConcessionCurve curve) {
+		this.bestUtility = bestUtility;
+		this.worstUtility = worstUtility;
+		this.range = bestUtility - worstUtility;
+		this.curve = curve;
+	}
+
+	/**
+	 * Count an offer of the opponent.
+	 */
+	public void addOffer() {
+		offers++;
+	}
+
+	/**
+	 * @return the amount of offers received.
+	 */
+	public int getOfferCount() {
+		return offers;
+	}
+
+	/**
+	 * Get the target utility at the given time.
+	 *
+	 * @param time
+	 * 			Normalized time of the session, between 0 and 1.
+	 * @return target utility
+	 */
+	public double getTargetUtility(double time) {
+		return bestUtility - range * curve.getConcession(time, offers);
+	}
+
+	/**
+	 * @return the utility of the best bid.
+	 */
+	public double getBestUtility() {
+		return bestUtility;
+	}
+
+	/**
+	 * @return the utility of the worst bid.
+	 */
+	public double getWorstUtility() {
+		return worstUtility;
+	}
+
+	/**
+	 * @return the concession curve.
+	 */
+	public ConcessionCurve getCurve() {
+		return curve;
+	}
+
+	/**
+	 * @param curve
+	 * 			The concession curve used from now on.
+	 */
+	public void setCurve(ConcessionCurve curve) {
+		this.curve = curve;
+	}
+}
@@ -0,0 +1,199 @@
+package masters.agents.bayesian;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import negotiator.Bid;
+import negotiator.Domain;
+import negotiator.issue.Issue;
+import negotiator.issue.Value;
+
+/**
+ * Creates counter-offers using the Counter-offer proposition of Zhang.
+ * Starting from the last bid of the opponent, the issues are raised one at a time in the order of
+ * their weight ratio (own weight / opponent weight) until the target utility is reached.
+ *
+ * The utility is linear additive, so the value an issue needs to reach the target utility is solved
+ * directly instead of searched for. Integer values are rounded towards the better value of the agent,
+ * and for Discrete issues the value is found in the sorted evaluation table of the UtilityEvaluator.
+ * Creating a counter-offer costs O(issues) and only builds the final bid.
+ *
+ * With a BidIndex, the indexed bid above the target utility that is best for the opponent is offered
+ * instead; the proposition of Zhang is the fallback when no indexed bid reaches the target.
+ *
+ * @author MASters
+ */
+public class CounterOfferGenerator {
+	Domain domain;
+	UtilityEvaluator evaluator;
+	double[] opponentWeights;
+	double[] weightRatios;
+	int[] order;
+	BidIndex bidIndex;
+	/** The amount of bids constructed since takeBidCount was last called. */
+	int bidCount;
+	/** The candidates of the bid index or the issues raised for the last counter-offer. */
+	int iterations;
+
+	public CounterOfferGenerator(Domain domain, UtilityEvaluator evaluator) {
+		this.domain = domain;
+		this.evaluator = evaluator;
+		this.opponentWeights = new double[evaluator.size()];
+		this.weightRatios = new double[evaluator.size()];
+		this.order = new int[evaluator.size()];
+	}
+
+	/**
+	 * @param bidIndex
+	 * 			The index to pick counter-offers from, or null to always use the proposition of Zhang.
+	 */
+	public void setBidIndex(BidIndex bidIndex) {
+		this.bidIndex = bidIndex;
+	}
+
+	public BidIndex getBidIndex() {
+		return bidIndex;
+	}
+
+	/**
+	 * Create a counter-offer given the predicted preference of the opponent.
+	 *
+	 * @param opponentBid
+	 * 			The last bid of the opponent.
+	 * @param preference
+	 * 			The predicted weights of the opponent.
+	 * @param targetUtility
+	 * @return bid
+	 * @throws Exception
+	 */
+	public Bid getBid(Bid opponentBid, Map<Issue, Double> preference, double targetUtility) throws Exception {
+		evaluator.toArray(preference, opponentWeights);
+		for (int i = 0; i < order.length; i++) {
+			weightRatios[i] = evaluator.getWeight(i) / opponentWeights[i];
+		}
+		return getBid(opponentBid, opponentWeights, orderByWeightRatio(weightRatios, order), targetUtility);
+	}
+
+	/**
+	 * Create a counter-offer given the predicted weights of the opponent. The bid index is searched
+	 * first, if there is none or it has no bid that reaches the target the issues are raised in the given order.
+	 *
+	 * @param opponentBid
+	 * 			The last bid of the opponent.
+	 * @param opponentWeights
+	 * 			The predicted weights of the opponent, indexed by position.
+	 * @param order
+	 * 			Positions of the issues, the first issue is raised first.
+	 * @param targetUtility
+	 * @return bid
+	 * @throws Exception
+	 */
+	public Bid getBid(Bid opponentBid, double[] opponentWeights, int[] order, double targetUtility) throws Exception {
+		if (bidIndex != null) {
+			Bid bid = bidIndex.getBid(targetUtility, opponentWeights);
+			if (bid != null) {
+				bidCount++;
+				iterations = bidIndex.getCandidateCount();
+				return bid;
+			}
+		}
+		return getBid(opponentBid, order, targetUtility);
+	}
+
+	/**
+	 * Create a counter-offer by raising the issues in the given order.
+	 *
+	 * @param opponentBid
+	 * 			The last bid of the opponent.
+	 * @param order
+	 * 			Positions of the issues, the first issue is raised first.
+	 * @param targetUtility
+	 * @return bid
+	 * @throws Exception
+	 */
+	public Bid getBid(Bid opponentBid, int[] order, double targetUtility) throws Exception {
+		HashMap<Integer, Value> values = opponentBid.getValues();
+		double weightSum = evaluator.getWeightSum();
+		double utility = evaluator.getUtility(opponentBid);
+
+		int raised = 0;
+		for (int k = 0; k < order.length && utility < targetUtility; k++) {
+			int i = order[k];
+			double weight = evaluator.getWeight(i);
+			double current = evaluator.getNormalizedValue(i, evaluator.getValue(opponentBid, i));
+			double newValue = evaluator.getBestValue(i);
+			double gain = weight * (evaluator.getNormalizedValue(i, newValue) - current) / weightSum;
+			if (!(gain > 0))
+				continue;
+
+			if (utility + gain > targetUtility) {
+				// Solve weight * (normalized - current) / weightSum = targetUtility - utility.
+				double normalized = current + (targetUtility - utility) * weightSum / weight;
+				newValue = snap(i, evaluator.getValue(i, normalized));
+				gain = weight * (evaluator.getNormalizedValue(i, newValue) - current) / weightSum;
+			}
+			utility += gain;
+			values.put(evaluator.getIssueNumber(i), evaluator.createValue(i, newValue));
+			raised++;
+		}
+		bidCount++;
+		iterations = raised;
+		return new Bid(domain, values);
+	}
+
+	/**
+	 * @return the amount of bids constructed since the last call.
+	 */
+	public int takeBidCount() {
+		int count = bidCount;
+		bidCount = 0;
+		return count;
+	}
+
+	/**
+	 * @return the candidates of the bid index the last counter-offer was picked from, or the issues
+	 * 			raised for it if it was not taken from the index.
+	 */
+	public int getIterations() {
+		return iterations;
+	}
+
+	/**
+	 * Keep the value within the bounds of the issue, Integer values are rounded
+	 * towards the value that is better for the agent so the target is not undershot.
+	 *
+	 * @param position
+	 * @param value
+	 * @return value
+	 */
+	private double snap(int position, double value) {
+		if (evaluator.isInteger(position)) {
+			// Allow for rounding errors in the inverse before rounding up or down.
+			if (evaluator.getAim(position) == 1)
+				value = Math.ceil(value - 1e-9);
+			else
+				value = Math.floor(value + 1e-9);
+		}
+		return Math.min(evaluator.getUpperBound(position), Math.max(evaluator.getLowerBound(position), value));
+	}
+
+	/**
+	 * Order the positions on their weight ratio, highest first.
+	 *
+	 * @param ratios
+	 * @param order
+	 * 			The array the positions are written to.
+	 * @return order
+	 */
+	public static int[] orderByWeightRatio(double[] ratios, int[] order) {
+		for (int i = 0; i < order.length; i++) {
+			int j = i;
+			while (j > 0 && ratios[order[j - 1]] < ratios[i]) {
+				order[j] = order[j - 1];
+				j--;
+			}
+			order[j] = i;
+		}
+		return order;
+	}
+}
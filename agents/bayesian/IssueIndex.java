@@ -0,0 +1,213 @@
+package masters.agents.bayesian;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import negotiator.issue.ISSUETYPE;
+import negotiator.issue.Issue;
+import negotiator.issue.IssueDiscrete;
+import negotiator.issue.IssueInteger;
+import negotiator.issue.IssueReal;
+import negotiator.issue.Value;
+import negotiator.issue.ValueDiscrete;
+
+/**
+ * Index of the issues of a domain, built once when a session starts.
+ * Every issue gets a dense position (its index in the list of issues), and the issue number,
+ * Issue object, type, bounds and evaluation aim are cached in arrays indexed by that position.
+ * Issue numbers are mapped to positions with an array, so resolving an issue is O(1).
+ * The values of a Discrete issue get a dense index as well, in the order of the issue, so they can
+ * be used to index tables of evaluations or counts. The bounds of a Discrete issue are those of its
+ * value indices.
+ *
+ * @author MASters
+ */
+public class IssueIndex {
+	List<Issue> issues;
+	Issue[] issueArray;
+	int[] issueNumbers;
+	int[] positions;
+	ISSUETYPE[] types;
+	int[] aims;
+	double[] lowerBounds;
+	double[] upperBounds;
+	ValueDiscrete[][] discreteValues;
+	Map<Value, Integer>[] valueIndices;
+
+	/**
+	 * @param issues
+	 * @param agentEvaluationAim
+	 * 			The evaluation aim of the agent per issue.
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public IssueIndex(List<Issue> issues, Map<Issue, Integer> agentEvaluationAim) {
+		int n = issues.size();
+		this.issues = new ArrayList<Issue>(issues);
+		this.issueArray = new Issue[n];
+		this.issueNumbers = new int[n];
+		this.types = new ISSUETYPE[n];
+		this.aims = new int[n];
+		this.lowerBounds = new double[n];
+		this.upperBounds = new double[n];
+		this.discreteValues = new ValueDiscrete[n][];
+		this.valueIndices = new Map[n];
+
+		int maxNumber = -1;
+		for (Issue issue : issues) {
+			maxNumber = Math.max(maxNumber, issue.getNumber());
+		}
+		this.positions = new int[maxNumber + 1];
+		Arrays.fill(positions, -1);
+
+		for (int i = 0; i < n; i++) {
+			Issue issue = issues.get(i);
+			issueArray[i] = issue;
+			issueNumbers[i] = issue.getNumber();
+			positions[issue.getNumber()] = i;
+			types[i] = issue.getType();
+			aims[i] = agentEvaluationAim.get(issue);
+			switch (types[i]) {
+			case REAL:
+				lowerBounds[i] = ((IssueReal) issue).getLowerBound();
+				upperBounds[i] = ((IssueReal) issue).getUpperBound();
+				break;
+			case INTEGER:
+				lowerBounds[i] = ((IssueInteger) issue).getLowerBound();
+				upperBounds[i] = ((IssueInteger) issue).getUpperBound();
+				break;
+			case DISCRETE:
+				List<ValueDiscrete> values = ((IssueDiscrete) issue).getValues();
+				discreteValues[i] = values.toArray(new ValueDiscrete[values.size()]);
+				valueIndices[i] = new HashMap<Value, Integer>();
+				for (int k = 0; k < discreteValues[i].length; k++) {
+					valueIndices[i].put(discreteValues[i][k], k);
+				}
+				lowerBounds[i] = 0;
+				upperBounds[i] = discreteValues[i].length - 1;
+				break;
+			default:
+				lowerBounds[i] = Double.NaN;
+				upperBounds[i] = Double.NaN;
+			}
+		}
+	}
+
+	/**
+	 * @return the amount of issues.
+	 */
+	public int size() {
+		return issueArray.length;
+	}
+
+	/**
+	 * @return the issues, in order of their position.
+	 */
+	public List<Issue> getIssues() {
+		return issues;
+	}
+
+	/**
+	 * Get the position of an issue given its issue number.
+	 *
+	 * @param issueNumber
+	 * @return position, or -1 if the domain has no issue with this number.
+	 */
+	public int getPosition(int issueNumber) {
+		if (issueNumber < 0 || issueNumber >= positions.length)
+			return -1;
+		return positions[issueNumber];
+	}
+
+	/**
+	 * @param position
+	 * @return the issue at the position.
+	 */
+	public Issue getIssue(int position) {
+		return issueArray[position];
+	}
+
+	/**
+	 * Get the Issue object given the issue number.
+	 *
+	 * @param issueNumber
+	 * @return issue, or null if the domain has no issue with this number.
+	 */
+	public Issue getIssueByNumber(int issueNumber) {
+		int position = getPosition(issueNumber);
+		if (position == -1)
+			return null;
+		return issueArray[position];
+	}
+
+	/**
+	 * @param position
+	 * @return the issue number of the issue.
+	 */
+	public int getIssueNumber(int position) {
+		return issueNumbers[position];
+	}
+
+	/**
+	 * @param position
+	 * @return the type of the issue.
+	 */
+	public ISSUETYPE getType(int position) {
+		return types[position];
+	}
+
+	/**
+	 * @param position
+	 * @return the evaluation aim of the issue, 1 when the agent wants to maximize it and -1 otherwise.
+	 */
+	public int getAim(int position) {
+		return aims[position];
+	}
+
+	/**
+	 * @param position
+	 * @return the lowerbound of the issue, NaN if the issue is not of type Real, Integer or Discrete.
+	 */
+	public double getLowerBound(int position) {
+		return lowerBounds[position];
+	}
+
+	/**
+	 * @param position
+	 * @return the upperbound of the issue, NaN if the issue is not of type Real, Integer or Discrete.
+	 */
+	public double getUpperBound(int position) {
+		return upperBounds[position];
+	}
+
+	/**
+	 * @param position
+	 * @return the amount of values of a Discrete issue, 0 for other issues.
+	 */
+	public int getValueCount(int position) {
+		return discreteValues[position] == null ? 0 : discreteValues[position].length;
+	}
+
+	/**
+	 * Get the dense index of a value of a Discrete issue.
+	 *
+	 * @param position
+	 * @param value
+	 * @return index, or -1 if the value is not a value of the issue.
+	 */
+	public int getValueIndex(int position, Value value) {
+		Integer index = valueIndices[position].get(value);
+		return index == null ? -1 : index;
+	}
+
+	/**
+	 * @param position
+	 * @param index
+	 * @return the value of a Discrete issue with the given index.
+	 */
+	public ValueDiscrete getDiscreteValue(int position, int index) {
+		return discreteValues[position][index];
+	}
+}
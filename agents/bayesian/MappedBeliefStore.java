@@ -0,0 +1,157 @@
+package masters.agents.bayesian;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * Beliefs stored off-heap in a temporary memory-mapped file, in double or single precision.
+ *
+ * A mapped buffer holds at most 2 GB, so the file is mapped in segments of SEGMENT_BYTES. Segments and
+ * the chunks of the BayesianPredictor (CHUNK_SIZE beliefs of 4 or 8 bytes) are multiples of the page
+ * size, so every chunk starts on a page and lies within one segment. The buffers are only accessed at
+ * absolute positions, so chunks can be read and written by several threads at a time.
+ *
+ * The file is deleted when the store is closed, or else when the JVM exits. The mapping itself is
+ * released when the store is garbage collected.
+ *
+ * @author MASters
+ */
+public class MappedBeliefStore extends BeliefStore {
+	public static final int SEGMENT_BYTES = 1 << 30;
+
+	File file;
+	MappedByteBuffer[] segments;
+	int size;
+	boolean singlePrecision;
+	/** log2 of the amount of beliefs in a segment. */
+	int segmentShift;
+	int segmentMask;
+
+	/**
+	 * Create and map the file of the store.
+	 *
+	 * @param size
+	 * 			The amount of beliefs.
+	 * @param singlePrecision
+	 * 			Whether the beliefs are stored as floats instead of doubles.
+	 * @param directory
+	 * 			The directory the file is created in.
+	 * @throws IOException
+	 */
+	public MappedBeliefStore(int size, boolean singlePrecision, File directory) throws IOException {
+		this.size = size;
+		this.singlePrecision = singlePrecision;
+		int elementShift = singlePrecision ? 2 : 3;
+		this.segmentShift = Integer.numberOfTrailingZeros(SEGMENT_BYTES) - elementShift;
+		this.segmentMask = (1 << segmentShift) - 1;
+
+		long bytes = (long) size << elementShift;
+		this.segments = new MappedByteBuffer[(int) ((bytes + SEGMENT_BYTES - 1) / SEGMENT_BYTES)];
+		directory.mkdirs();
+		this.file = File.createTempFile("beliefs", ".bin", directory);
+		file.deleteOnExit();
+		RandomAccessFile access = new RandomAccessFile(file, "rw");
+		try {
+			access.setLength(bytes);
+			FileChannel channel = access.getChannel();
+			for (int s = 0; s < segments.length; s++) {
+				long position = (long) s * SEGMENT_BYTES;
+				segments[s] = channel.map(FileChannel.MapMode.READ_WRITE, position, Math.min(SEGMENT_BYTES, bytes - position));
+				segments[s].order(ByteOrder.nativeOrder());
+			}
+		} finally {
+			// The mappings stay valid after the channel is closed.
+			access.close();
+		}
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public double get(int index) {
+		MappedByteBuffer segment = segments[index >>> segmentShift];
+		int offset = index & segmentMask;
+		return singlePrecision ? segment.getFloat(offset << 2) : segment.getDouble(offset << 3);
+	}
+
+	@Override
+	public void set(int index, double value) {
+		MappedByteBuffer segment = segments[index >>> segmentShift];
+		int offset = index & segmentMask;
+		if (singlePrecision)
+			segment.putFloat(offset << 2, (float) value);
+		else
+			segment.putDouble(offset << 3, value);
+	}
+
+	@Override
+	public void read(int from, double[] buffer, int length) {
+		int i = 0;
+		while (i < length) {
+			int index = from + i;
+			MappedByteBuffer segment = segments[index >>> segmentShift];
+			int offset = index & segmentMask;
+			int end = i + Math.min(length - i, segmentMask + 1 - offset);
+			if (singlePrecision) {
+				for (int position = offset << 2; i < end; i++, position += 4) {
+					buffer[i] = segment.getFloat(position);
+				}
+			} else {
+				for (int position = offset << 3; i < end; i++, position += 8) {
+					buffer[i] = segment.getDouble(position);
+				}
+			}
+		}
+	}
+
+	@Override
+	public void write(int from, double[] buffer, int length) {
+		int i = 0;
+		while (i < length) {
+			int index = from + i;
+			MappedByteBuffer segment = segments[index >>> segmentShift];
+			int offset = index & segmentMask;
+			int end = i + Math.min(length - i, segmentMask + 1 - offset);
+			if (singlePrecision) {
+				for (int position = offset << 2; i < end; i++, position += 4) {
+					segment.putFloat(position, (float) buffer[i]);
+				}
+			} else {
+				for (int position = offset << 3; i < end; i++, position += 8) {
+					segment.putDouble(position, buffer[i]);
+				}
+			}
+		}
+	}
+
+	@Override
+	public void fill(double value) {
+		double[] buffer = new double[Math.min(size, BayesianPredictor.CHUNK_SIZE)];
+		Arrays.fill(buffer, value);
+		for (int from = 0; from < size; from += buffer.length) {
+			write(from, buffer, Math.min(buffer.length, size - from));
+		}
+	}
+
+	@Override
+	public String getName() {
+		return singlePrecision ? "mapped-float" : "mapped";
+	}
+
+	/**
+	 * Drop the mappings and delete the file.
+	 */
+	@Override
+	public void close() {
+		segments = null;
+		file.delete();
+	}
+}
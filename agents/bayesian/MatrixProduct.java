@@ -0,0 +1,88 @@
+package masters.agents.bayesian;
+
+/**
+ * Product of a matrix stored column after column in one contiguous array, and a vector:
+ * result[r] = matrix[0 * rows + r] * vector[0] + matrix[1 * rows + r] * vector[1] + ...
+ *
+ * Every element of the result is summed in column order starting from 0, whatever the implementation,
+ * so all implementations give bit-identical results. Rows are independent, so a product can be
+ * computed for a range of rows at a time.
+ *
+ * The implementation is chosen once with the system property masters.simd: with -Dmasters.simd=true
+ * the Vector API implementation (masters.simd.VectorMatrixProduct) is used if it is on the classpath
+ * and the jdk.incubator.vector module is available, otherwise the scalar implementation.
+ *
+ * @author MASters
+ */
+public abstract class MatrixProduct {
+	public static final String SIMD_PROPERTY = "masters.simd";
+	static final String VECTOR_IMPLEMENTATION = "masters.simd.VectorMatrixProduct";
+	static final MatrixProduct DEFAULT = create(Boolean.getBoolean(SIMD_PROPERTY));
+
+	/**
+	 * @return the implementation chosen with the system property masters.simd.
+	 */
+	public static MatrixProduct getDefault() {
+		return DEFAULT;
+	}
+
+	/**
+	 * @param simd
+	 * 			Whether to use the Vector API implementation if it is available.
+	 * @return implementation
+	 */
+	public static MatrixProduct create(boolean simd) {
+		if (simd) {
+			try {
+				return Class.forName(VECTOR_IMPLEMENTATION).asSubclass(MatrixProduct.class).getDeclaredConstructor().newInstance();
+			} catch (Throwable e) {
+				// Not compiled in, or started without --add-modules jdk.incubator.vector.
+			}
+		}
+		return new Scalar();
+	}
+
+	/**
+	 * Compute the rows from up to (excluding) to of the product.
+	 *
+	 * @param matrix
+	 * 			The matrix, element (r, c) at matrix[c * rows + r].
+	 * @param rows
+	 * @param vector
+	 * 			The vector, its length is the amount of columns.
+	 * @param result
+	 * 			The array the product is written to, indexed by row.
+	 * @param from
+	 * @param to
+	 */
+	public abstract void multiply(double[] matrix, int rows, double[] vector, double[] result, int from, int to);
+
+	/**
+	 * @return the name of the implementation.
+	 */
+	public abstract String getName();
+
+	/**
+	 * Scalar implementation, going through the matrix column after column so memory is read in order.
+	 */
+	static class Scalar extends MatrixProduct {
+		@Override
+		public void multiply(double[] matrix, int rows, double[] vector, double[] result, int from, int to) {
+			for (int r = from; r < to; r++) {
+				result[r] = 0.0;
+			}
+			for (int c = 0; c < vector.length; c++) {
+				double value = vector[c];
+				int offset = c * rows;
+				for (int r = from; r < to; r++) {
+					result[r] += matrix[offset + r] * value;
+				}
+			}
+		}
+
+		@Override
+		public String getName() {
+			return "scalar";
+		}
+	}
+}
@@ -1,11 +1,7 @@
 package masters.agents.bayesian;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Random;
+import java.nio.ByteBuffer;
 import java.util.Map;
-import java.util.List;
-import java.lang.Math;
 
 import negotiator.Bid;
 import negotiator.actions.Accept;
@@ -13,9 +9,10 @@ import negotiator.actions.Action;
 import negotiator.actions.EndNegotiation;
 import negotiator.actions.Offer;
 import negotiator.issue.Issue;
-import negotiator.issue.Value;
-import negotiator.utility.AdditiveUtilitySpace;
-import negotiator.timeline.Timeline;
+import masters.agents.monitor.FlightRecorder;
+import masters.agents.monitor.Metric;
+import masters.agents.monitor.Metrics;
+import masters.agents.monitor.TraceEvent;
 
 /**
  * BayesianAgent uses the bayesian rule to predict the preference of the opponent.
@@ -29,13 +26,14 @@ public class NormalBayesianAgent extends AbstractAgent {
     double bestUtility, worstUtility;
     int offerAmount = 0;
 
-    ArrayList<Double> history;
+    RunningStatistics history;
 
     int MINIMUM_HISTORY_LENGTH = 10;
-    int MAX_SAMPLE_SIZE = 10000;
+    int MAX_SAMPLE_SIZE = NormalMaximum.MAX_SAMPLE_SIZE;
     int SAMPLE_REPEATS = 25;
+    // Use the Monte Carlo estimate of the expected maximum instead of the precomputed table
+    boolean SAMPLE_EXPECTED_MAXIMUM = false;
 
-    Random random;
     
     /**
      * init is called when a next session starts with the same opponent.
@@ -43,17 +41,15 @@ public class NormalBayesianAgent extends AbstractAgent {
     @Override
     public void init() {
         try {
-            issues = utilitySpace.getDomain().getIssues();
+            initIssues();
             optimalBid = utilitySpace.getMaxUtilityBid();
-            agentEvaluationAim = getAgentEvaluationAim();
-            predictor = new BayesianPredictor(utilitySpace.getDomain().getIssues(), agentEvaluationAim);
+            predictor = createPredictor();
             bestUtility = getUtility(utilitySpace.getMaxUtilityBid());
             worstUtility = getUtility(utilitySpace.getMinUtilityBid());
         } catch (Exception e) {
             e.printStackTrace();
         }
-        history = new ArrayList<Double>();
-        random = new Random();
+        history = new RunningStatistics();
     }
 	
     /**
@@ -77,13 +73,36 @@ public class NormalBayesianAgent extends AbstractAgent {
      */
     @Override
     public void ReceiveMessage(Action opponentAction) {		
+        long start = Metrics.start();
+        restoreOpponentModel(opponentAction);
         actionOfOpponent = opponentAction;
         if (actionOfOpponent instanceof Offer) {
-            println("Received Offer");
             lastBidOpponent = ((Offer) actionOfOpponent).getBid();
-            predictor.updateModel(lastBidOpponent);
+            trace.record(TraceEvent.RECEIVED_OFFER);
+            updateModel(lastBidOpponent);
             history.add(getUtility(lastBidOpponent));
         }
+        metrics.stop(Metric.RECEIVE_MESSAGE, start);
+    }
+
+    /**
+     * The model of the opponent is the model of the predictor and the history of the utilities of its offers.
+     */
+    @Override
+    protected long getOpponentModelSize() {
+        return super.getOpponentModelSize() + RunningStatistics.SIZE;
+    }
+
+    @Override
+    protected void writeOpponentModel(ByteBuffer buffer) {
+        super.writeOpponentModel(buffer);
+        history.write(buffer);
+    }
+
+    @Override
+    protected void readOpponentModel(ByteBuffer buffer) throws Exception {
+        super.readOpponentModel(buffer);
+        history.read(buffer);
     }
 	
     /**
@@ -93,6 +112,7 @@ public class NormalBayesianAgent extends AbstractAgent {
      */
     @Override
     public Action chooseAction() {
+        long start = startTurn();
         Action action = null;
 		
         try {
@@ -102,13 +122,16 @@ public class NormalBayesianAgent extends AbstractAgent {
                 // Initial offer will be an optimal bid.
                 action = (new Offer(getAgentID(), optimalBid));
             } else if (actionOfOpponent instanceof Offer) {
-                if (time < 1 && time > 0.98) {
+                FlightRecorder.Span acceptance = flightRecorder.beginAcceptance(getName());
+                boolean accept = time < 1 && time > 0.98;
+                recordAcceptance(acceptance, accept, Double.NaN);
+                if (accept) {
                     // If the last turn is reached accept the offer.
                     action = new Accept(getAgentID(), lastBidOpponent);				
                 } else {
                     // Calculate offer using opponents preference.
                     Map<Issue, Double> preferenceOpponent = predictor.getPreferenceWeights();
-                    printPreference(preferenceOpponent);
+                    tracePreference(preferenceOpponent);
 					
                     Bid counterOffer = getBid(preferenceOpponent);
                     action = (new Offer(getAgentID(), counterOffer));
@@ -122,6 +145,7 @@ public class NormalBayesianAgent extends AbstractAgent {
             }
             e.printStackTrace();
         }
+        recordTurn(start, action);
         return action;
     }
 	
@@ -136,114 +160,17 @@ public class NormalBayesianAgent extends AbstractAgent {
      * @return bid
      */
     private Bid getBid(Map<Issue, Double> preference) throws Exception {
-        Bid bid = new Bid(utilitySpace.getDomain(), lastBidOpponent.getValues());
-        Map<Issue, Double> weightRatio = getWeightRatio(preference);
-        List<Issue> rankedWeightRatio = orderIssues(weightRatio);		
-		
+        long start = Metrics.start();
+        FlightRecorder.Span span = flightRecorder.beginCounterOffer(getName());
         // TODO: Add target utility function to the agent.
         double targetUtility = getExpectedMaximum();
-        println("Expected maximum: " + Double.toString(targetUtility));
-
-        HashMap<Integer, Value> values = bid.getValues();
-        Issue issue = rankedWeightRatio.get(0);
-        Value newValueObject;
-        Value value = values.get(issue.getNumber());
-        double newValue = getValue(value, issue);
-        double max = getUpperBound(issue);
-        double min = getLowerBound(issue);
-		
-        while(calculateUtility(bid) < targetUtility && !(issue == null)) {
-            if (agentEvaluationAim.get(issue) == 1) {
-                newValue = newValue + (max - min)/100;
-            } else {
-                newValue = newValue - (max - min)/100;
-            }
-			
-            if ((newValue > max && agentEvaluationAim.get(issue) == 1) || (newValue < min && agentEvaluationAim.get(issue) == -1)) {
-                // Maximum value of issue is reached
-                if (agentEvaluationAim.get(issue) == 1) {
-                    newValue = max;
-                } else {
-                    newValue = min;
-                }
-                newValueObject = getNewValue(value, newValue);
-                values.put(issue.getNumber(), newValueObject);
-				
-                // Setup new issue to increase
-                rankedWeightRatio.remove(0);
-                if (rankedWeightRatio.size() == 0) {
-                    issue = null;
-                } else {
-                    issue = rankedWeightRatio.get(0);
-                    value = values.get(issue.getNumber());
-                    newValue = getValue(value, issue);
-                    max = getUpperBound(issue);
-                    min = getLowerBound(issue);
-                }
-            } else {
-                newValueObject = getNewValue(value, newValue);
-                values.put(issue.getNumber(), newValueObject);
-            }
-            bid = new Bid(utilitySpace.getDomain(), values);
-        }
-
+        trace.record(TraceEvent.EXPECTED_MAXIMUM, targetUtility);
+        Bid bid = counterOfferGenerator.getBid(lastBidOpponent, preference, targetUtility);
+        span.endCounterOffer(targetUtility, counterOfferGenerator.getIterations());
+        metrics.stop(Metric.GET_BID, start);
         return bid;
     }
 	
-    /**
-     * Calculate the weight ratios.
-     * 
-     * @param preference
-     * @return weightRatioMap
-     */
-    private Map<Issue, Double> getWeightRatio(Map<Issue, Double> preference) {
-        AdditiveUtilitySpace additiveUtilitySpace = (AdditiveUtilitySpace) utilitySpace;
-		
-        HashMap<Issue, Double> weightRatio = new HashMap<Issue, Double>();
-        for (Issue issue : issues) {
-            double ratio = ((AdditiveUtilitySpace) utilitySpace).getWeight(issue.getNumber()) / preference.get(issue);
-            weightRatio.put(issue, ratio);
-        }
-        return weightRatio;
-    }
-	
-    /**
-     * Return the Issue with the highest value.
-     * 
-     * @param map
-     * @return
-     */
-    private Issue getMax(Map<Issue, Double> map) {
-        Issue issue = null;
-        double highest = 0.0;
-		
-        for (Map.Entry<Issue, Double> entry : map.entrySet()) {
-            if (entry.getValue() > highest) {
-                issue = entry.getKey();
-                highest = entry.getValue();
-            }
-        }
-        return issue;
-    }
-	
-    /**
-     * Order the map on issues by their value.
-     * 
-     * @param map
-     * @return orderedList
-     * 			List of Issues ordered on their value in the given map.
-     */
-    private List<Issue> orderIssues(Map<Issue, Double> map) {
-        ArrayList<Issue> orderedList = new ArrayList<Issue>();
-        Issue issue;
-        while (!(map.size() == 0)) {
-            issue = getMax(map);
-            orderedList.add(issue);
-            map.remove(issue);
-        }
-        return orderedList;
-    }
-	
     /**
      * Calculate the utility of a bid.
      * 
@@ -252,57 +179,33 @@ public class NormalBayesianAgent extends AbstractAgent {
      * @throws Exception
      */
     public double calculateUtility(Bid bid) throws Exception {
-        HashMap<Integer, Value> values = bid.getValues();
-		
-        double u = 0.0;
-        double max = 0.0;
-		
-        for (Issue issue : issues) {
-            double weight = ((AdditiveUtilitySpace) utilitySpace).getWeight(issue.getNumber());
-            double normVal = getNormalizedValue(issue, values.get(issue.getNumber()));
-			
-            max += weight;
-            u += weight * normVal;
-        }
-		
-        return normalize(u, max, 0.0);
+        return evaluator.getUtility(bid);
     }
     public double getExpectedMaximum() {
+        long start = Metrics.start();
+        FlightRecorder.Span span = flightRecorder.beginExpectedMaximum(getName());
+        double expectedMaximum = calculateExpectedMaximum();
+        span.endExpectedMaximum(expectedMaximum);
+        metrics.stop(Metric.EXPECTED_MAXIMUM, start);
+        return expectedMaximum;
+    }
+
+    private double calculateExpectedMaximum() {
         if (timeline.getTime() < 0.5)
             return bestUtility;
 
-        double mean = 0;
-        for (double doub : history) {
-            mean += doub;
-        }
-        mean /= history.size();
-
-        double sd = 0;
-        for (double doub : history) {
-            sd += Math.pow(doub - mean, 2);
-        }
-        sd /= history.size();
-        sd = Math.pow(sd, 0.5);
-
-        double maximum = 0;
+        double mean = history.getMean();
+        double sd = history.getStandardDeviation();
 
         double time = timeline.getTime();
-        int sample_size = (int) (history.size() * (1 - time) / time);
+        int sample_size = (int) (history.getCount() * (1 - time) / time);
         if (sample_size > MAX_SAMPLE_SIZE)
             sample_size = MAX_SAMPLE_SIZE;
         if (sample_size < 1)
             sample_size = 1;
 
-        for (int i = 0; i < SAMPLE_REPEATS; i++) {
-            double tempMaximum = 0;
-            for (int j = 0; j < sample_size; j++) {
-                double example = random.nextGaussian() * sd + mean;
-                if (example > tempMaximum)
-                    tempMaximum = example;
-            }
-            maximum += tempMaximum / SAMPLE_REPEATS;
-        }
-
-        return maximum;
+        if (SAMPLE_EXPECTED_MAXIMUM)
+            return NormalMaximum.sampleExpectedMaximum(random, sample_size, SAMPLE_REPEATS, mean, sd);
+        return NormalMaximum.getExpectedMaximum(sample_size, mean, sd);
     }
 }
@@ -0,0 +1,124 @@
+package masters.agents.bayesian;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Expected maximum of n draws from a normal distribution, used by the normal acceptance strategy
+ * to estimate the best offer still to come.
+ *
+ * E[max of n draws] = mean + sd * e(n), where e(n) is the expected maximum of n standard normal
+ * draws. e(n) does not depend on the mean and sd, so it is integrated numerically once per n and
+ * kept in a table. A lookup is O(1), only the first lookup of a sample size integrates.
+ *
+ * The table is accurate to 1e-4 * sd for every sample size up to MAX_SAMPLE_SIZE (e(10) = 1.5388,
+ * e(1000) = 3.2414). The Monte Carlo estimate with 25 repeats (sampleExpectedMaximum) has a standard
+ * error of 0.06 * sd to 0.1 * sd, so both agree within the noise of the Monte Carlo estimate.
+ *
+ * @author MASters
+ */
+public class NormalMaximum {
+	public static final int MAX_SAMPLE_SIZE = 10000;
+
+	private static final double LOWER = -8.0;
+	private static final double UPPER = 8.0;
+	private static final int STEPS = 4000;
+
+	private static final double[] x = new double[STEPS + 1];
+	private static final double[] densityTimesX = new double[STEPS + 1];
+	private static final double[] logCumulative = new double[STEPS + 1];
+	private static final double[] table = new double[MAX_SAMPLE_SIZE + 1];
+
+	static {
+		double h = (UPPER - LOWER) / STEPS;
+		for (int k = 0; k <= STEPS; k++) {
+			x[k] = LOWER + k * h;
+			// Simpson weights folded into the density.
+			double simpson = (k == 0 || k == STEPS) ? 1 : (k % 2 == 1 ? 4 : 2);
+			densityTimesX[k] = simpson * h / 3 * x[k] * Math.exp(-x[k] * x[k] / 2) / Math.sqrt(2 * Math.PI);
+			logCumulative[k] = Math.log(0.5 * erfc(-x[k] / Math.sqrt(2)));
+		}
+		Arrays.fill(table, Double.NaN);
+	}
+
+	private NormalMaximum() {
+	}
+
+	/**
+	 * Get the expected maximum of sampleSize draws from a normal distribution, clamped at 0.
+	 *
+	 * The clamp approximates what the Monte Carlo estimate computes, E[max(0, M)] for the maximum M of
+	 * the draws. That is E[M] + E[max(0, -M)], so the clamped value is lower by E[max(0, -M)]. For a
+	 * mean of at least 0 this is at most 0.40 * sd for one draw, 0.0067 * sd for 5 and 1e-4 * sd from
+	 * 10 draws. For a negative mean the clamped value can be 0 where E[max(0, M)] is not.
+	 *
+	 * @param sampleSize
+	 * 			Between 1 and MAX_SAMPLE_SIZE.
+	 * @param mean
+	 * @param sd
+	 * @return expected maximum
+	 */
+	public static double getExpectedMaximum(int sampleSize, double mean, double sd) {
+		return Math.max(0, mean + sd * getStandardExpectedMaximum(sampleSize));
+	}
+
+	/**
+	 * Get the expected maximum of n draws from the standard normal distribution:
+	 * e(n) = integral of x * n * phi(x) * Phi(x)^(n-1) dx.
+	 *
+	 * @param n
+	 * @return e(n)
+	 */
+	public static double getStandardExpectedMaximum(int n) {
+		double e = table[n];
+		if (Double.isNaN(e)) {
+			e = 0;
+			for (int k = 0; k <= STEPS; k++) {
+				e += densityTimesX[k] * Math.exp((n - 1) * logCumulative[k]);
+			}
+			e *= n;
+			// Concurrent writes of the same value are harmless.
+			table[n] = e;
+		}
+		return e;
+	}
+
+	/**
+	 * Estimate the expected maximum of sampleSize draws from a normal distribution
+	 * by averaging the maximum of repeats samples.
+	 *
+	 * @param random
+	 * @param sampleSize
+	 * @param repeats
+	 * @param mean
+	 * @param sd
+	 * @return expected maximum
+	 */
+	public static double sampleExpectedMaximum(Random random, int sampleSize, int repeats, double mean, double sd) {
+		double maximum = 0;
+		for (int i = 0; i < repeats; i++) {
+			double tempMaximum = 0;
+			for (int j = 0; j < sampleSize; j++) {
+				double example = random.nextGaussian() * sd + mean;
+				if (example > tempMaximum)
+					tempMaximum = example;
+			}
+			maximum += tempMaximum / repeats;
+		}
+		return maximum;
+	}
+
+	/**
+	 * Complementary error function with fractional error below 1.2e-7 (Numerical Recipes, erfcc).
+	 *
+	 * @param z
+	 * @return erfc(z)
+	 */
+	static double erfc(double z) {
+		double t = 1 / (1 + 0.5 * Math.abs(z));
+		double ans = t * Math.exp(-z * z - 1.26551223 + t * (1.00002368 + t * (0.37409196 + t * (0.09678418
+				+ t * (-0.18628806 + t * (0.27886807 + t * (-1.13520398 + t * (1.48851587
+				+ t * (-0.82215223 + t * 0.17087277)))))))));
+		return z >= 0 ? ans : 2 - ans;
+	}
+}
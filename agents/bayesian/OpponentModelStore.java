@@ -0,0 +1,318 @@
+package masters.agents.bayesian;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Memory-mapped store of the opponent models of past sessions, so an agent meeting the same opponent
+ * on the same domain again can start from what it learned before.
+ *
+ * The file has a header followed by records of a key, the length of the model, the time it was last
+ * used and the model itself in the compact binary format of the agent. A model that is saved again is
+ * appended and its old record is marked dead. When the file is full, dead records are dropped and the
+ * least recently used records are evicted until the new model fits, so the file never grows beyond
+ * its capacity. Records are indexed on opening, a model is then loaded without copying.
+ *
+ * The store is enabled with the system property masters.opponentStore, the path of the file, and
+ * masters.opponentStore.capacity sets its capacity in bytes. All agents of a JVM share one store per
+ * file, the store can not be shared between processes. The file is in the native byte order.
+ *
+ * @author MASters
+ */
+public class OpponentModelStore {
+	public static final String PATH_PROPERTY = "masters.opponentStore";
+	public static final String CAPACITY_PROPERTY = "masters.opponentStore.capacity";
+	public static final long DEFAULT_CAPACITY = 64L << 20;
+	static final int MAGIC = 0x4D415354;
+	static final int VERSION = 1;
+	/** Magic, version, end of the records and clock. */
+	static final int HEADER_SIZE = 24;
+	/** Key, length and last use. */
+	static final int RECORD_HEADER_SIZE = 20;
+	static final long DEAD = 0;
+
+	static final Map<String, OpponentModelStore> stores = new HashMap<String, OpponentModelStore>();
+
+	MappedByteBuffer buffer;
+	int capacity;
+	int end;
+	long clock;
+	/** Position of the record of every live key. */
+	Map<Long, Integer> index = new HashMap<Long, Integer>();
+	int evictions;
+
+	/**
+	 * @return the store of the file set with masters.opponentStore, or null if it is not set or
+	 * 			can not be opened.
+	 */
+	public static OpponentModelStore getDefault() {
+		String path = System.getProperty(PATH_PROPERTY);
+		if (path == null)
+			return null;
+		try {
+			return open(new File(path), Long.getLong(CAPACITY_PROPERTY, DEFAULT_CAPACITY));
+		} catch (IOException e) {
+			System.out.println("Problem while opening the opponent model store " + path + ": " + e.getMessage());
+			return null;
+		}
+	}
+
+	/**
+	 * Open the store of a file, or the store already opened for it.
+	 *
+	 * @param file
+	 * @param capacity
+	 * 			The size of the file in bytes, at most Integer.MAX_VALUE. Only used when the store is
+	 * 			first opened in the JVM.
+	 * @return store
+	 * @throws IOException
+	 */
+	public static OpponentModelStore open(File file, long capacity) throws IOException {
+		synchronized (stores) {
+			String key = file.getCanonicalPath();
+			OpponentModelStore store = stores.get(key);
+			if (store == null) {
+				store = new OpponentModelStore(file, capacity);
+				stores.put(key, store);
+			}
+			return store;
+		}
+	}
+
+	OpponentModelStore(File file, long capacity) throws IOException {
+		if (capacity < HEADER_SIZE || capacity > Integer.MAX_VALUE)
+			throw new IOException("capacity " + capacity + " not supported.");
+		File directory = file.getAbsoluteFile().getParentFile();
+		if (directory != null)
+			directory.mkdirs();
+		RandomAccessFile access = new RandomAccessFile(file, "rw");
+		try {
+			if (access.length() > HEADER_SIZE)
+				capacity = Math.min(Integer.MAX_VALUE, Math.max(capacity, access.length()));
+			access.setLength(capacity);
+			buffer = access.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+			buffer.order(ByteOrder.nativeOrder());
+		} finally {
+			access.close();
+		}
+		this.capacity = (int) capacity;
+		if (buffer.getInt(0) == MAGIC && buffer.getInt(4) == VERSION && readIndex())
+			return;
+		// A new file, or one of another version or byte order.
+		index.clear();
+		end = HEADER_SIZE;
+		clock = 0;
+		buffer.putInt(0, MAGIC);
+		buffer.putInt(4, VERSION);
+		writeHeader();
+	}
+
+	/**
+	 * Index the records of the file.
+	 *
+	 * @return whether the records are consistent.
+	 */
+	private boolean readIndex() {
+		end = buffer.getInt(8);
+		clock = buffer.getLong(12);
+		if (end < HEADER_SIZE || end > capacity)
+			return false;
+		int position = HEADER_SIZE;
+		while (position < end) {
+			long key = buffer.getLong(position);
+			int length = buffer.getInt(position + 8);
+			if (length < 0 || position + RECORD_HEADER_SIZE + length > end)
+				return false;
+			if (key != DEAD)
+				index.put(key, position);
+			position += RECORD_HEADER_SIZE + length;
+		}
+		return true;
+	}
+
+	private void writeHeader() {
+		buffer.putInt(8, end);
+		buffer.putLong(12, clock);
+	}
+
+	/**
+	 * @param name
+	 * @return the key of a name, never DEAD.
+	 */
+	static long getKey(String name) {
+		// 64-bit FNV-1a
+		long hash = 0xcbf29ce484222325L;
+		for (int i = 0; i < name.length(); i++) {
+			hash ^= name.charAt(i);
+			hash *= 0x100000001b3L;
+		}
+		return hash == DEAD ? 1 : hash;
+	}
+
+	/**
+	 * Get the model saved under a name, and mark it as used.
+	 *
+	 * @param name
+	 * @return a read-only view of the model in the native byte order, or null if there is none.
+	 */
+	public synchronized ByteBuffer load(String name) {
+		Integer position = index.get(getKey(name));
+		if (position == null)
+			return null;
+		buffer.putLong(position + 12, ++clock);
+		writeHeader();
+		int length = buffer.getInt(position + 8);
+		ByteBuffer view = buffer.duplicate();
+		view.position(position + RECORD_HEADER_SIZE);
+		view.limit(position + RECORD_HEADER_SIZE + length);
+		return view.slice().asReadOnlyBuffer().order(ByteOrder.nativeOrder());
+	}
+
+	/**
+	 * Writes a model into the room the store made for it.
+	 */
+	public interface ModelWriter {
+		/**
+		 * @param buffer
+		 * 			The room for the model in the native byte order, its limit is the length of the model.
+		 */
+		void write(ByteBuffer buffer);
+	}
+
+	/**
+	 * Save a model under a name, replacing the model saved before. Least recently used models are
+	 * evicted if it does not fit.
+	 *
+	 * @param name
+	 * @param model
+	 * 			The model from its position up to its limit.
+	 * @return whether the model was saved, false if it is larger than the store.
+	 */
+	public boolean save(String name, final ByteBuffer model) {
+		return save(name, model.remaining(), new ModelWriter() {
+			@Override
+			public void write(ByteBuffer buffer) {
+				buffer.put(model.duplicate());
+			}
+		});
+	}
+
+	/**
+	 * Save a model under a name by writing it straight into the file, so large models are never copied
+	 * on the heap. Replaces the model saved before, least recently used models are evicted if it does not fit.
+	 *
+	 * @param name
+	 * @param length
+	 * 			The length of the model in bytes.
+	 * @param writer
+	 * 			Writes exactly length bytes.
+	 * @return whether the model was saved, false if it is larger than the store.
+	 */
+	public synchronized boolean save(String name, long length, ModelWriter writer) {
+		long key = getKey(name);
+		Integer old = index.remove(key);
+		if (old != null)
+			buffer.putLong(old, DEAD);
+		if (length < 0 || length > capacity - HEADER_SIZE - RECORD_HEADER_SIZE) {
+			writeHeader();
+			return false;
+		}
+		int size = RECORD_HEADER_SIZE + (int) length;
+		if (end + size > capacity)
+			compact(size);
+		ByteBuffer target = buffer.duplicate();
+		target.position(end + RECORD_HEADER_SIZE).limit(end + size);
+		ByteBuffer room = target.slice().order(ByteOrder.nativeOrder());
+		writer.write(room);
+		if (room.hasRemaining())
+			throw new IllegalStateException("model of " + name + " is " + room.position() + " bytes instead of " + length + ".");
+		buffer.putLong(end, key);
+		buffer.putInt(end + 8, (int) length);
+		buffer.putLong(end + 12, ++clock);
+		index.put(key, end);
+		end += size;
+		writeHeader();
+		return true;
+	}
+
+	/**
+	 * Drop the dead records and keep the most recently used records, in their order in the file,
+	 * with room for a record of the given size after them.
+	 */
+	private void compact(int size) {
+		List<Integer> positions = new ArrayList<Integer>(index.values());
+		Collections.sort(positions, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer a, Integer b) {
+				return Long.compare(buffer.getLong(b + 12), buffer.getLong(a + 12));
+			}
+		});
+		int room = capacity - HEADER_SIZE - size;
+		int kept = 0;
+		for (; kept < positions.size(); kept++) {
+			int recordSize = RECORD_HEADER_SIZE + buffer.getInt(positions.get(kept) + 8);
+			if (recordSize > room)
+				break;
+			room -= recordSize;
+		}
+		evictions += positions.size() - kept;
+		positions = new ArrayList<Integer>(positions.subList(0, kept));
+		Collections.sort(positions);
+
+		// Records only move towards the start of the file, so they can be moved in place in file order.
+		index.clear();
+		int target = HEADER_SIZE;
+		for (int position : positions) {
+			int recordSize = RECORD_HEADER_SIZE + buffer.getInt(position + 8);
+			if (position != target) {
+				ByteBuffer source = buffer.duplicate();
+				source.position(position).limit(position + recordSize);
+				ByteBuffer destination = buffer.duplicate();
+				destination.position(target);
+				if (target + recordSize > position) {
+					// Overlapping, copy through the heap.
+					byte[] record = new byte[recordSize];
+					source.get(record);
+					destination.put(record);
+				} else {
+					destination.put(source);
+				}
+			}
+			index.put(buffer.getLong(target), target);
+			target += recordSize;
+		}
+		end = target;
+	}
+
+	/**
+	 * @return the amount of models in the store.
+	 */
+	public synchronized int size() {
+		return index.size();
+	}
+
+	/**
+	 * @return the amount of models evicted since the store was opened.
+	 */
+	public synchronized int getEvictions() {
+		return evictions;
+	}
+
+	/**
+	 * Write the store to disk.
+	 */
+	public synchronized void flush() {
+		buffer.force();
+	}
+}
@@ -0,0 +1,376 @@
+package masters.agents.bayesian;
+
+import negotiator.Bid;
+import negotiator.issue.Issue;
+import masters.agents.monitor.TraceEvent;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.HashMap;
+import java.util.Random;
+
+
+/**
+ * @author MASters
+ *
+ * 			Sampling-based preference predictor in Bilateral Multi-issue Negotiation.
+ *
+ * The BayesianPredictor enumerates all n! rankings of the issues, which does not fit in memory
+ * for larger domains. This predictor keeps a fixed-size population of weighted rankings (particles)
+ * instead. Every offer reweights the particles with the same likelihood as the BayesianPredictor, the
+ * weights are the posterior and carry over to the next offer. Only when the effective sample size drops
+ * below RESAMPLE_THRESHOLD of the population, it is resampled and mutated by swapping two issues in a
+ * ranking. The estimate orders the issues on their expected place under the posterior. The most
+ * frequent ranking would be the mode, but with the weak likelihood of a single offer the copies of a
+ * ranking say more about the luck of the resampling than about the opponent.
+ *
+ * Memory and the cost per offer are O(particles * issues).
+ *
+ * Assumptions:
+ * 	- All issues are Real, Integer or Discrete. The opponent prefers the Discrete values it offers most.
+ * 	- All issues are conflict issues.
+ */
+public class ParticleFilterPredictor extends PreferenceEstimator {
+	public static final int DEFAULT_PARTICLE_COUNT = 1000;
+	public static final double DEFAULT_MUTATION_RATE = 0.1;
+	/** The population is resampled when the effective sample size drops below this fraction of it. */
+	public static final double RESAMPLE_THRESHOLD = 0.5;
+
+	/** particles[p][i] is the index (in issues) of the issue at place i of the ranking of particle p. */
+	int[][] particles;
+	int[][] resampled;
+	double[] weights;
+	int[] bestRanking;
+	double mutationRate;
+	Random random;
+	double[] weightsOfParticle;
+	/** Open addressing table of the distinct rankings: the last particle holding it, or -1, and its weight. */
+	int[] rankingParticles;
+	double[] rankingWeights;
+	int distinctRankings;
+	/** The expected place of every issue under the posterior, and the issues ordered on it. */
+	double[] expectedPlaces;
+	int[] order;
+
+	/**
+	 * Initialize the particle filter with the default amount of particles.
+	 */
+	public ParticleFilterPredictor(List<Issue> issues, Map<Issue, Integer> agentEvaluationAim) throws Exception {
+		this(issues, agentEvaluationAim, DEFAULT_PARTICLE_COUNT);
+	}
+
+	/**
+	 * Initialize the particle filter with random rankings of the issues, all with the same weight.
+	 *
+	 * @param particleCount
+	 * 			The size of the population, this bounds memory and the cost per offer.
+	 */
+	public ParticleFilterPredictor(List<Issue> issues, Map<Issue, Integer> agentEvaluationAim, int particleCount) throws Exception {
+		this(issues, agentEvaluationAim, particleCount, DEFAULT_MUTATION_RATE, new Random());
+	}
+
+	public ParticleFilterPredictor(List<Issue> issues, Map<Issue, Integer> agentEvaluationAim, int particleCount,
+			double mutationRate, Random random) throws Exception {
+		super(new ArrayList<Issue>(issues), agentEvaluationAim);
+		int n = this.issues.size();
+		this.particles = new int[particleCount][n];
+		this.resampled = new int[particleCount][n];
+		this.weights = new double[particleCount];
+		this.mutationRate = mutationRate;
+		this.random = random;
+		this.weightsOfParticle = new double[n];
+		this.rankingParticles = new int[Integer.highestOneBit(Math.max(1, particleCount)) << 2];
+		this.rankingWeights = new double[rankingParticles.length];
+		this.expectedPlaces = new double[n];
+		this.order = new int[n];
+
+		for (int p = 0; p < particleCount; p++) {
+			for (int i = 0; i < n; i++) {
+				particles[p][i] = i;
+			}
+			shuffle(particles[p]);
+			weights[p] = 1 / (double) particleCount;
+		}
+		this.bestRanking = particles[0].clone();
+		this.distinctRankings = tallyRankings();
+	}
+
+	/**
+	 * Reweight the particles given the new offer, estimate the ranking from the posterior, and resample
+	 * and mutate the population when too few particles carry the weight.
+	 *
+	 * @param bid
+	 * 			The bid of the opponent.
+	 */
+	public void updateModel(Bid bid) {
+		evaluator.addOpponentBid(bid);
+		double total = 0;
+		for (int p = 0; p < particles.length; p++) {
+			double newWeight = weights[p] * calculateUtilityOpponent(getWeights(particles[p], weightsOfParticle), bid);
+			weights[p] = newWeight;
+			total += newWeight;
+		}
+
+		if (!(total > 0)) {
+			// The offer is impossible under every particle, start again from a uniform population.
+			trace.record(TraceEvent.PARTICLES_RESET);
+			for (int p = 0; p < weights.length; p++) {
+				weights[p] = 1 / (double) weights.length;
+			}
+			distinctRankings = tallyRankings();
+			return;
+		}
+		double sumOfSquares = 0;
+		for (int p = 0; p < weights.length; p++) {
+			weights[p] /= total;
+			sumOfSquares += weights[p] * weights[p];
+		}
+		distinctRankings = tallyRankings();
+		estimateRanking();
+		trace.record(TraceEvent.EFFECTIVE_PARTICLES, distinctRankings, 1 / sumOfSquares);
+
+		if (1 / sumOfSquares < RESAMPLE_THRESHOLD * particles.length) {
+			resample(1);
+			mutate();
+			distinctRankings = tallyRankings();
+		}
+	}
+
+	/**
+	 * Order the issues on their expected place under the posterior, least important first, into
+	 * bestRanking. Issues with the same expected place keep the order of issues.
+	 */
+	private void estimateRanking() {
+		int n = bestRanking.length;
+		Arrays.fill(expectedPlaces, 0);
+		for (int p = 0; p < particles.length; p++) {
+			int[] particle = particles[p];
+			for (int i = 0; i < n; i++) {
+				expectedPlaces[particle[i]] += weights[p] * i;
+			}
+		}
+		// Insertion sort, stable and without allocation, n is small.
+		for (int k = 0; k < n; k++) {
+			int j = k;
+			while (j > 0 && expectedPlaces[order[j - 1]] > expectedPlaces[k]) {
+				order[j] = order[j - 1];
+				j--;
+			}
+			order[j] = k;
+		}
+		System.arraycopy(order, 0, bestRanking, 0, n);
+	}
+
+	/**
+	 * Sum the weights of the particles per distinct ranking into the table of rankings.
+	 *
+	 * @return the amount of distinct rankings with a non-zero weight.
+	 */
+	private int tallyRankings() {
+		Arrays.fill(rankingParticles, -1);
+		int distinct = 0;
+		for (int p = 0; p < particles.length; p++) {
+			int slot = findRanking(particles[p]);
+			if (rankingParticles[slot] == -1)
+				rankingWeights[slot] = 0;
+			if (weights[p] > 0 && rankingWeights[slot] == 0)
+				distinct++;
+			rankingParticles[slot] = p;
+			rankingWeights[slot] += weights[p];
+		}
+		return distinct;
+	}
+
+	/**
+	 * Find the slot of a ranking in the table of rankings, the first empty slot if it is not in there.
+	 */
+	private int findRanking(int[] ranking) {
+		long hash = 0;
+		for (int i : ranking) {
+			hash = (hash + i + 1) * 0x9E3779B97F4A7C15L;
+		}
+		int mask = rankingParticles.length - 1;
+		int slot = (int) (hash ^ (hash >>> 32)) & mask;
+		while (rankingParticles[slot] != -1 && !Arrays.equals(particles[rankingParticles[slot]], ranking)) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	/**
+	 * Systematic resampling: draw the new population proportional to the weights, using a single
+	 * random offset. Afterwards all particles have the same weight again.
+	 *
+	 * @param total
+	 * 			The sum of the weights.
+	 */
+	private void resample(double total) {
+		int count = particles.length;
+		double step = total / count;
+		double position = random.nextDouble() * step;
+		double cumulative = weights[0];
+		int source = 0;
+
+		for (int p = 0; p < count; p++) {
+			while (position > cumulative && source < count - 1) {
+				source++;
+				cumulative += weights[source];
+			}
+			System.arraycopy(particles[source], 0, resampled[p], 0, resampled[p].length);
+			position += step;
+		}
+
+		int[][] swap = particles;
+		particles = resampled;
+		resampled = swap;
+		for (int p = 0; p < count; p++) {
+			weights[p] = 1 / (double) count;
+		}
+	}
+
+	/**
+	 * Swap two random issues in the ranking of a particle with chance mutationRate, this keeps
+	 * rankings alive that were not in the population yet.
+	 */
+	private void mutate() {
+		int n = bestRanking.length;
+		if (n < 2)
+			return;
+		for (int[] particle : particles) {
+			if (random.nextDouble() < mutationRate) {
+				int i = random.nextInt(n);
+				int j = random.nextInt(n - 1);
+				if (j >= i)
+					j++;
+				int temp = particle[i];
+				particle[i] = particle[j];
+				particle[j] = temp;
+			}
+		}
+	}
+
+	/**
+	 * Fisher-Yates shuffle of a ranking.
+	 *
+	 * @param ranking
+	 */
+	private void shuffle(int[] ranking) {
+		for (int i = ranking.length - 1; i > 0; i--) {
+			int j = random.nextInt(i + 1);
+			int temp = ranking[i];
+			ranking[i] = ranking[j];
+			ranking[j] = temp;
+		}
+	}
+
+	/**
+	 * Get the weights indexed by position, given a ranking of the issues.
+	 *
+	 * @param ranking
+	 * @param weights
+	 * 			The array the weights are written to.
+	 * @return weights
+	 */
+	private double[] getWeights(int[] ranking, double[] weights) {
+		int n = ranking.length;
+		for (int i = 0; i < n; i++) {
+			weights[ranking[i]] = 2 * ((double) i + 1)/(n * (n + 1));
+		}
+		return weights;
+	}
+
+	/**
+	 * Get the weights, given a ranking of the issues. The weights are written into the given map.
+	 * Example: ranking: [3, 1, 2]
+	 * 			weights: {3:1/6, 1:2/6, 2:3/6}
+	 *
+	 * @param ranking
+	 * @param weights
+	 * @return weights
+	 */
+	private Map<Issue, Double> getWeights(int[] ranking, Map<Issue, Double> weights) {
+		int n = ranking.length;
+		for (int i = 0; i < n; i++) {
+			weights.put(issues.get(ranking[i]), 2 * ((double) i + 1)/(n * (n + 1)));
+		}
+		return weights;
+	}
+
+	/**
+	 * Get the most likely preference of the opponent represented in weights per issue.
+	 *
+	 * @return weightMap
+	 */
+	public Map<Issue, Double> getPreferenceWeights() {
+		return getWeights(bestRanking, new HashMap<Issue, Double>());
+	}
+
+	/**
+	 * Get the most likely preference of the opponent represented as a ranking.
+	 *
+	 * @return rankingList
+	 */
+	public List<Issue> getPreferenceRanking() {
+		List<Issue> ranking = new ArrayList<Issue>();
+		for (int i : bestRanking) {
+			ranking.add(issues.get(i));
+		}
+		return ranking;
+	}
+
+	/**
+	 * @return the amount of distinct rankings in the population with a non-zero weight.
+	 */
+	@Override
+	public int getAliveHypotheses() {
+		return distinctRankings;
+	}
+
+	/**
+	 * The size of the population and the amount of issues, the counts of the evaluator, the particles,
+	 * their weights and the best ranking.
+	 */
+	@Override
+	public long getModelSize() {
+		int n = bestRanking.length;
+		return 8 + super.getModelSize() + particles.length * (4L * n + 8) + 4L * n;
+	}
+
+	@Override
+	public void writeModel(ByteBuffer buffer) {
+		buffer.putInt(particles.length);
+		buffer.putInt(bestRanking.length);
+		super.writeModel(buffer);
+		for (int p = 0; p < particles.length; p++) {
+			for (int i : particles[p]) {
+				buffer.putInt(i);
+			}
+			buffer.putDouble(weights[p]);
+		}
+		for (int i : bestRanking) {
+			buffer.putInt(i);
+		}
+	}
+
+	@Override
+	public void readModel(ByteBuffer buffer) throws Exception {
+		int particleCount = buffer.getInt();
+		int n = buffer.getInt();
+		if (particleCount != particles.length || n != bestRanking.length)
+			throw new Exception("saved model of " + particleCount + " particles of " + n + " issues does not match.");
+		super.readModel(buffer);
+		for (int p = 0; p < particles.length; p++) {
+			for (int i = 0; i < n; i++) {
+				particles[p][i] = buffer.getInt();
+			}
+			weights[p] = buffer.getDouble();
+		}
+		for (int i = 0; i < n; i++) {
+			bestRanking[i] = buffer.getInt();
+		}
+		distinctRankings = tallyRankings();
+	}
+}
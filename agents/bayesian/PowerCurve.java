@@ -0,0 +1,38 @@
+package masters.agents.bayesian;
+
+/**
+ * Time dependent concession t^e. An exponent above 1 is Boulware, 1 is linear and below 1 is a conceder.
+ * The common exponents 1 and 4 are multiplied out instead of calling Math.pow.
+ *
+ * @author MASters
+ */
+public class PowerCurve implements ConcessionCurve {
+	final double exponent;
+
+	/**
+	 * @param exponent
+	 * 			Positive exponent of the curve.
+	 */
+	public PowerCurve(double exponent) {
+		if (!(exponent > 0))
+			throw new IllegalArgumentException("exponent " + exponent + " not supported.");
+		this.exponent = exponent;
+	}
+
+	public double getConcession(double time, int offers) {
+		if (exponent == 4) {
+			double square = time * time;
+			return square * square;
+		}
+		if (exponent == 1)
+			return time;
+		return Math.pow(time, exponent);
+	}
+
+	/**
+	 * @return the exponent of the curve.
+	 */
+	public double getExponent() {
+		return exponent;
+	}
+}
@@ -1,16 +1,12 @@
 package masters.agents.bayesian;
 
-import java.util.HashMap;
+import java.nio.ByteBuffer;
 import java.util.List;
 import java.util.Map;
 
 import negotiator.Bid;
 import negotiator.issue.Issue;
-import negotiator.issue.IssueInteger;
-import negotiator.issue.IssueReal;
-import negotiator.issue.Value;
-import negotiator.issue.ValueInteger;
-import negotiator.issue.ValueReal;
+import masters.agents.monitor.Trace;
 
 
 /**
@@ -24,15 +20,67 @@ import negotiator.issue.ValueReal;
 public abstract class PreferenceEstimator {
 	List<Issue> issues;
 	public Map<Issue, Integer> agentEvaluationAim;
-	boolean debug = true;
+	IssueIndex issueIndex;
+	UtilityEvaluator evaluator;
+	Trace trace = Trace.DISABLED;
 	
 	/**
 	 * Initialize the PreferenceEstimator with the issues in the domain.
 	 * @param issues
+	 * @throws Exception
+	 * 			If an issue is not of type Real, Integer or Discrete.
 	 */
-	public PreferenceEstimator(List<Issue> issues, Map<Issue, Integer> agentEvaluationAim){
+	public PreferenceEstimator(List<Issue> issues, Map<Issue, Integer> agentEvaluationAim) throws Exception {
 		this.issues = issues;
 		this.agentEvaluationAim = agentEvaluationAim;
+		this.issueIndex = new IssueIndex(issues, agentEvaluationAim);
+		this.evaluator = new UtilityEvaluator(issueIndex);
+	}
+	
+	/**
+	 * Record the events of the predictor in the given trace, usually the trace of the agent.
+	 * Without one the predictor records nothing.
+	 * @param trace
+	 */
+	public void setTrace(Trace trace) {
+		this.trace = trace;
+	}
+	
+	/**
+	 * @return the amount of hypotheses about the preference of the opponent that are still possible.
+	 */
+	public abstract int getAliveHypotheses();
+	
+	/**
+	 * @return the size in bytes of the model written by writeModel.
+	 */
+	public long getModelSize() {
+		return evaluator.getOpponentCountsSize();
+	}
+	
+	/**
+	 * Write what the predictor learned about the opponent in a compact binary format, so a predictor
+	 * for the same domain can continue from it in a next session.
+	 * @param buffer
+	 */
+	public void writeModel(ByteBuffer buffer) {
+		evaluator.writeOpponentCounts(buffer);
+	}
+	
+	/**
+	 * Continue from a model written by writeModel.
+	 * @param buffer
+	 * @throws Exception
+	 * 			If the model does not match the domain of the predictor.
+	 */
+	public void readModel(ByteBuffer buffer) throws Exception {
+		evaluator.readOpponentCounts(buffer);
+	}
+	
+	/**
+	 * Release the resources of the predictor, called when the session ends.
+	 */
+	public void close() {
 	}
 	
 	/**
@@ -47,6 +95,12 @@ public abstract class PreferenceEstimator {
 	 */
 	public abstract Map<Issue, Double> getPreferenceWeights();
 	
+	/**
+	 * Retrieve the currently most plausible preference of the opponent as a ranking of the issues.
+	 * @return
+	 */
+	public abstract List<Issue> getPreferenceRanking();
+	
 	
 	/**
 	 * Calculates the utility of the opponent given a bid and a weight distribution.
@@ -54,40 +108,21 @@ public abstract class PreferenceEstimator {
 	 * @param weights
 	 * @param bid
 	 * @return utility
-	 * @throws Exception
-	 * 			If an issue in the bid is not of type Real or Integer, throw an exception.
 	 */
-	public Double calculateUtilityOpponent(Map<Issue, Double> weights, Bid bid) throws Exception {
-		double u = 0.0;
-		double max = 0.0;
-		double v;
-		HashMap<Integer, Value> values = bid.getValues();
-		for (Issue issue : bid.getIssues()) {
-			if (issue instanceof IssueReal) {
-				IssueReal issueReal = (IssueReal) issue;
-				ValueReal valReal = (ValueReal) values.get(issue.getNumber());
-				if (agentEvaluationAim.get(issue) == -1) {
-					v = valReal.getValue();
-				} else {
-					v = issueReal.getUpperBound() - valReal.getValue();
-				}
-				max += weights.get(issue);
-				u += weights.get(issue) * normalize(v, issueReal.getUpperBound(), issueReal.getLowerBound());
-			} else if (issue instanceof IssueInteger) {
-				IssueInteger issueInt = (IssueInteger) issue;
-				ValueInteger valInt = (ValueInteger) values.get(issue.getNumber());
-				if (agentEvaluationAim.get(issue) == -1) {
-					v = (double) valInt.getValue();
-				} else {
-					v = (double) issueInt.getUpperBound() - valInt.getValue();
-				}
-				max += weights.get(issue);
-				u += weights.get(issue) * normalize(v, (double) issueInt.getUpperBound(), (double) issueInt.getLowerBound());
-			} else {
-				throw new Exception("issue type " + issue.getType()+ ", value type " + values.get(issue.getNumber()).getType() + " not supported by BayesianPredictor");
-			}
-		}
-		return normalize(u, max, 0.0);
+	public double calculateUtilityOpponent(Map<Issue, Double> weights, Bid bid) {
+		return evaluator.getOpponentUtility(evaluator.toArray(weights, new double[evaluator.size()]), bid);
+	}
+	
+	/**
+	 * Calculates the utility of the opponent given a bid and a weight distribution.
+	 * 
+	 * @param weights
+	 * 			The weights of the opponent, indexed by the position of the issue in issues.
+	 * @param bid
+	 * @return utility
+	 */
+	public double calculateUtilityOpponent(double[] weights, Bid bid) {
+		return evaluator.getOpponentUtility(weights, bid);
 	}
 	
 	/**
@@ -111,20 +146,4 @@ public abstract class PreferenceEstimator {
 	public double sq(double x) {
 		return x * x;
 	}
-	
-	/**
-	 * Convenient print procedure for tracing the process.
-	 */
-	protected final void print(String s) {
-		if (debug)
-			System.out.print(s);
-	}
-	
-	/**
-	 * Convenient print procedure for tracing the process.
-	 */
-	protected final void println(String s) {
-		if (debug)
-			System.out.println("############ " + s);
-	}
 }
\ No newline at end of file
@@ -0,0 +1,82 @@
+package masters.agents.bayesian;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Mean and variance of a stream of values, updated in O(1) per value with Welford's method.
+ * Only the count, mean and sum of squared differences are kept, not the values themselves.
+ *
+ * @author MASters
+ */
+public class RunningStatistics {
+	/** The size in bytes of the statistics written by write. */
+	public static final int SIZE = 20;
+
+	int count;
+	double mean;
+	double squaredDifferences;
+
+	/**
+	 * Add a value to the statistics.
+	 *
+	 * @param value
+	 */
+	public void add(double value) {
+		count++;
+		double delta = value - mean;
+		mean += delta / count;
+		squaredDifferences += delta * (value - mean);
+	}
+
+	/**
+	 * @return the amount of values added.
+	 */
+	public int getCount() {
+		return count;
+	}
+
+	/**
+	 * @return the mean of the values, 0 when there are none.
+	 */
+	public double getMean() {
+		return mean;
+	}
+
+	/**
+	 * @return the (population) variance of the values, 0 when there are none.
+	 */
+	public double getVariance() {
+		if (count == 0)
+			return 0;
+		return squaredDifferences / count;
+	}
+
+	/**
+	 * @return the (population) standard deviation of the values.
+	 */
+	public double getStandardDeviation() {
+		return Math.sqrt(getVariance());
+	}
+
+	/**
+	 * Write the statistics, SIZE bytes.
+	 *
+	 * @param buffer
+	 */
+	public void write(ByteBuffer buffer) {
+		buffer.putInt(count);
+		buffer.putDouble(mean);
+		buffer.putDouble(squaredDifferences);
+	}
+
+	/**
+	 * Read statistics written by write, replacing these.
+	 *
+	 * @param buffer
+	 */
+	public void read(ByteBuffer buffer) {
+		count = buffer.getInt();
+		mean = buffer.getDouble();
+		squaredDifferences = buffer.getDouble();
+	}
+}
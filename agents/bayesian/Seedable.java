@@ -0,0 +1,15 @@
+package masters.agents.bayesian;
+
+/**
+ * An agent that uses randomness and can be seeded, so a session can be replayed exactly.
+ * The seed is set after internalInit and before init.
+ *
+ * @author MASters
+ */
+public interface Seedable {
+	/**
+	 * @param seed
+	 * 			Seed of all randomness of the agent.
+	 */
+	void setSeed(long seed);
+}
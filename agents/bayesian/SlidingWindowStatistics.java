@@ -0,0 +1,147 @@
+package masters.agents.bayesian;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Mean and variance of the last windowSize values of a stream, kept in a ring buffer of doubles.
+ * The sum and the sum of squares of the window are maintained on every add, so adding a value and
+ * reading the statistics are O(1) regardless of the window size.
+ *
+ * To keep rounding errors from the subtractions from piling up, the sums are recomputed from the
+ * buffer once every windowSize values, which is still O(1) per value on average.
+ *
+ * @author MASters
+ */
+public class SlidingWindowStatistics {
+	double[] window;
+	int next;
+	int count;
+	int addedSinceRecompute;
+	double sum;
+	double sumOfSquares;
+
+	/**
+	 * @param windowSize
+	 * 			The amount of most recent values the statistics are calculated over, at least 1.
+	 */
+	public SlidingWindowStatistics(int windowSize) {
+		if (windowSize < 1)
+			throw new IllegalArgumentException("window size " + windowSize + " not supported.");
+		this.window = new double[windowSize];
+	}
+
+	/**
+	 * Add a value to the window, the oldest value is dropped when the window is full.
+	 *
+	 * @param value
+	 */
+	public void add(double value) {
+		if (count == window.length) {
+			double oldest = window[next];
+			sum -= oldest;
+			sumOfSquares -= oldest * oldest;
+		} else {
+			count++;
+		}
+		window[next] = value;
+		sum += value;
+		sumOfSquares += value * value;
+		next = (next + 1) % window.length;
+
+		if (++addedSinceRecompute == window.length)
+			recompute();
+	}
+
+	/**
+	 * Recompute the sums from the values in the window.
+	 */
+	private void recompute() {
+		sum = 0;
+		sumOfSquares = 0;
+		for (int i = 0; i < count; i++) {
+			sum += window[i];
+			sumOfSquares += window[i] * window[i];
+		}
+		addedSinceRecompute = 0;
+	}
+
+	/**
+	 * @return the amount of values in the window.
+	 */
+	public int getCount() {
+		return count;
+	}
+
+	/**
+	 * @return the size of the window.
+	 */
+	public int getWindowSize() {
+		return window.length;
+	}
+
+	/**
+	 * @return the mean of the values in the window, 0 when there are none.
+	 */
+	public double getMean() {
+		if (count == 0)
+			return 0;
+		return sum / count;
+	}
+
+	/**
+	 * @return the (population) variance of the values in the window, 0 when there are none.
+	 */
+	public double getVariance() {
+		if (count == 0)
+			return 0;
+		double mean = sum / count;
+		return Math.max(0, sumOfSquares / count - mean * mean);
+	}
+
+	/**
+	 * @return the (population) standard deviation of the values in the window.
+	 */
+	public double getStandardDeviation() {
+		return Math.sqrt(getVariance());
+	}
+
+	/**
+	 * @return the size in bytes of the statistics written by write.
+	 */
+	public int getSize() {
+		return 8 + 8 * count;
+	}
+
+	/**
+	 * Write the values in the window, oldest first.
+	 *
+	 * @param buffer
+	 */
+	public void write(ByteBuffer buffer) {
+		buffer.putInt(window.length);
+		buffer.putInt(count);
+		int first = count == window.length ? next : 0;
+		for (int i = 0; i < count; i++) {
+			buffer.putDouble(window[(first + i) % window.length]);
+		}
+	}
+
+	/**
+	 * Read statistics written by write, replacing these. The sums are recomputed from the values.
+	 *
+	 * @param buffer
+	 * @throws IllegalArgumentException
+	 * 			If the statistics were written with another window size, these are not changed then.
+	 */
+	public void read(ByteBuffer buffer) {
+		int windowSize = buffer.getInt();
+		if (windowSize != window.length)
+			throw new IllegalArgumentException("window size " + windowSize + " does not match.");
+		count = buffer.getInt();
+		for (int i = 0; i < count; i++) {
+			window[i] = buffer.getDouble();
+		}
+		next = count % window.length;
+		recompute();
+	}
+}
@@ -0,0 +1,17 @@
+package masters.agents.bayesian;
+
+/**
+ * Concession of the uniform acceptance strategy. With n offers received at time t, about
+ * n * (1 - t) / t offers are still to come. The expected maximum of k uniform draws lies k / (k + 1)
+ * of the way from the worst to the best utility, so the concession is 1 / (k + 1) = t / (t + n * (1 - t)).
+ * Without offers the agent does not concede.
+ *
+ * @author MASters
+ */
+public class UniformStoppingCurve implements ConcessionCurve {
+	public double getConcession(double time, int offers) {
+		if (offers == 0)
+			return 0;
+		return time / (time + offers * (1 - time));
+	}
+}
@@ -0,0 +1,476 @@
+package masters.agents.bayesian;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+
+import negotiator.Bid;
+import negotiator.issue.Issue;
+import negotiator.issue.Value;
+import negotiator.issue.ValueInteger;
+import negotiator.issue.ValueReal;
+import negotiator.utility.AdditiveUtilitySpace;
+import negotiator.utility.EvaluatorDiscrete;
+
+/**
+ * Scores bids for a linear additive utility, both for the agent itself and for an estimated
+ * preference of the opponent.
+ *
+ * The weights, bounds and evaluation aim of the issues are looked up once when the evaluator is
+ * built and stored in arrays indexed by the position of the issue in the IssueIndex. Scoring
+ * a bid is a single loop over these arrays and does not allocate.
+ *
+ * The value of a Discrete issue is represented by its index in the IssueIndex. The evaluations of the
+ * agent are kept in a table per issue, and the values are also sorted on that evaluation so the value
+ * that reaches a normalized value can be found with a binary search. The opponent is assumed to prefer
+ * the values it offers most often: the offers of the opponent are counted per value, and the
+ * normalized value of the opponent is the (smoothed) count of the value relative to the most
+ * offered value of the issue.
+ *
+ * @author MASters
+ */
+public class UtilityEvaluator {
+	IssueIndex issueIndex;
+	List<Issue> issues;
+	int[] issueNumbers;
+	int[] aims;
+	boolean[] integers;
+	boolean[] discretes;
+	/** evaluations[i][k] is the normalized evaluation of value k of Discrete issue i for the agent. */
+	double[][] evaluations;
+	/** The value indices of Discrete issue i, sorted on their evaluation for the agent, lowest first. */
+	int[][] valuesByEvaluation;
+	/** valueCounts[i][k] is the amount of offers of the opponent with value k for Discrete issue i. */
+	int[][] valueCounts;
+	int[] maximumCounts;
+	double[] lowerBounds;
+	double[] upperBounds;
+	double[] inverseRanges;
+	double[] weights;
+	double weightSum;
+
+	/**
+	 * Build an evaluator that can only score the utility of the opponent.
+	 *
+	 * @param issueIndex
+	 * @throws Exception
+	 * 			If an issue is not of type Real, Integer or Discrete.
+	 */
+	public UtilityEvaluator(IssueIndex issueIndex) throws Exception {
+		this(issueIndex, null);
+	}
+
+	/**
+	 * Build an evaluator for the utility space of the agent.
+	 *
+	 * @param issueIndex
+	 * @param utilitySpace
+	 * 			The utility space of the agent, the weights are read from it.
+	 * @throws Exception
+	 * 			If an issue is not of type Real, Integer or Discrete.
+	 */
+	public UtilityEvaluator(IssueIndex issueIndex, AdditiveUtilitySpace utilitySpace) throws Exception {
+		int n = issueIndex.size();
+		this.issueIndex = issueIndex;
+		this.issues = issueIndex.getIssues();
+		this.issueNumbers = new int[n];
+		this.aims = new int[n];
+		this.integers = new boolean[n];
+		this.discretes = new boolean[n];
+		this.evaluations = new double[n][];
+		this.valuesByEvaluation = new int[n][];
+		this.valueCounts = new int[n][];
+		this.maximumCounts = new int[n];
+		this.lowerBounds = new double[n];
+		this.upperBounds = new double[n];
+		this.inverseRanges = new double[n];
+		this.weights = new double[n];
+
+		for (int i = 0; i < n; i++) {
+			switch (issueIndex.getType(i)) {
+			case REAL:
+				break;
+			case INTEGER:
+				integers[i] = true;
+				break;
+			case DISCRETE:
+				discretes[i] = true;
+				initDiscrete(i, utilitySpace);
+				break;
+			default:
+				throw new Exception("issue type " + issueIndex.getType(i) + " not supported.");
+			}
+			issueNumbers[i] = issueIndex.getIssueNumber(i);
+			aims[i] = issueIndex.getAim(i);
+			lowerBounds[i] = issueIndex.getLowerBound(i);
+			upperBounds[i] = issueIndex.getUpperBound(i);
+			inverseRanges[i] = 1 / (upperBounds[i] - lowerBounds[i]);
+			if (utilitySpace != null) {
+				weights[i] = utilitySpace.getWeight(issueNumbers[i]);
+				weightSum += weights[i];
+			}
+		}
+	}
+
+	/**
+	 * Build the evaluation table of a Discrete issue and the order of its values. Without a utility
+	 * space all evaluations are 0.
+	 */
+	private void initDiscrete(int position, AdditiveUtilitySpace utilitySpace) throws Exception {
+		int count = issueIndex.getValueCount(position);
+		evaluations[position] = new double[count];
+		valueCounts[position] = new int[count];
+		if (utilitySpace != null) {
+			EvaluatorDiscrete evaluator = (EvaluatorDiscrete) utilitySpace.getEvaluator(issueIndex.getIssueNumber(position));
+			for (int k = 0; k < count; k++) {
+				evaluations[position][k] = evaluator.getEvaluation(issueIndex.getDiscreteValue(position, k));
+			}
+		}
+		int[] order = new int[count];
+		for (int k = 0; k < count; k++) {
+			int j = k;
+			while (j > 0 && evaluations[position][order[j - 1]] > evaluations[position][k]) {
+				order[j] = order[j - 1];
+				j--;
+			}
+			order[j] = k;
+		}
+		valuesByEvaluation[position] = order;
+	}
+
+	/**
+	 * @return the amount of issues.
+	 */
+	public int size() {
+		return issueNumbers.length;
+	}
+
+	/**
+	 * Get the position of an issue in the arrays of this evaluator.
+	 *
+	 * @param issue
+	 * @return position
+	 */
+	public int getPosition(Issue issue) {
+		return issueIndex.getPosition(issue.getNumber());
+	}
+
+	/**
+	 * Get the value of an issue in a bid as a double, the index of the value for Discrete issues.
+	 *
+	 * @param bid
+	 * @param position
+	 * @return value
+	 */
+	public double getValue(Bid bid, int position) {
+		return toDouble(position, bid.getValue(issueNumbers[position]));
+	}
+
+	/**
+	 * Get a Value object of an issue as a double, the index of the value for Discrete issues.
+	 *
+	 * @param position
+	 * @param value
+	 * @return value
+	 * @throws IllegalArgumentException
+	 * 			If the value is not a value of a Discrete issue.
+	 */
+	public double toDouble(int position, Value value) {
+		if (discretes[position]) {
+			int index = issueIndex.getValueIndex(position, value);
+			if (index == -1)
+				throw new IllegalArgumentException("Value " + value + " is not a value of issue "
+						+ issueIndex.getIssue(position).getName() + ".");
+			return index;
+		}
+		if (value instanceof ValueInteger)
+			return ((ValueInteger) value).getValue();
+		return ((ValueReal) value).getValue();
+	}
+
+	/**
+	 * Count the values of the Discrete issues in an offer of the opponent.
+	 *
+	 * @param bid
+	 */
+	public void addOpponentBid(Bid bid) {
+		for (int i = 0; i < discretes.length; i++) {
+			if (!discretes[i])
+				continue;
+			int k = issueIndex.getValueIndex(i, bid.getValue(issueNumbers[i]));
+			if (k == -1)
+				continue;
+			int count = ++valueCounts[i][k];
+			if (count > maximumCounts[i])
+				maximumCounts[i] = count;
+		}
+	}
+
+	/**
+	 * @return the size in bytes of the counts of the opponent's Discrete values written by writeOpponentCounts.
+	 */
+	public int getOpponentCountsSize() {
+		int size = 0;
+		for (int i = 0; i < discretes.length; i++) {
+			if (discretes[i])
+				size += 4 * (valueCounts[i].length + 2);
+		}
+		return size;
+	}
+
+	/**
+	 * Write the counts of the opponent's Discrete values, issue after issue.
+	 *
+	 * @param buffer
+	 */
+	public void writeOpponentCounts(ByteBuffer buffer) {
+		for (int i = 0; i < discretes.length; i++) {
+			if (!discretes[i])
+				continue;
+			buffer.putInt(valueCounts[i].length);
+			buffer.putInt(maximumCounts[i]);
+			for (int k = 0; k < valueCounts[i].length; k++) {
+				buffer.putInt(valueCounts[i][k]);
+			}
+		}
+	}
+
+	/**
+	 * Read the counts of the opponent's Discrete values written by writeOpponentCounts.
+	 *
+	 * @param buffer
+	 * @throws Exception
+	 * 			If the amount of values of an issue does not match, the counts are not changed then.
+	 */
+	public void readOpponentCounts(ByteBuffer buffer) throws Exception {
+		int start = buffer.position();
+		for (int i = 0; i < discretes.length; i++) {
+			if (!discretes[i])
+				continue;
+			int count = buffer.getInt();
+			if (count != valueCounts[i].length)
+				throw new Exception("saved values of issue " + issueNumbers[i] + " do not match.");
+			buffer.position(buffer.position() + 4 * (count + 1));
+		}
+		buffer.position(start);
+		for (int i = 0; i < discretes.length; i++) {
+			if (!discretes[i])
+				continue;
+			buffer.getInt();
+			maximumCounts[i] = buffer.getInt();
+			for (int k = 0; k < valueCounts[i].length; k++) {
+				valueCounts[i][k] = buffer.getInt();
+			}
+		}
+	}
+
+	/**
+	 * @param position
+	 * @param index
+	 * @return the amount of offers of the opponent with the value for a Discrete issue.
+	 */
+	public int getValueCount(int position, int index) {
+		return valueCounts[position][index];
+	}
+
+	/**
+	 * Get the normalized value of an issue for the agent, this takes the evaluation aim into account.
+	 *
+	 * @param position
+	 * @param value
+	 * @return normalized value
+	 */
+	public double getNormalizedValue(int position, double value) {
+		if (discretes[position])
+			return evaluations[position][(int) value];
+		if (aims[position] == 1)
+			return (value - lowerBounds[position]) * inverseRanges[position];
+		return (upperBounds[position] - value - lowerBounds[position]) * inverseRanges[position];
+	}
+
+	/**
+	 * Get the normalized value of an issue for the opponent, who is assumed to have the opposite
+	 * evaluation aim of the agent. For Discrete issues this is the count of the value relative to
+	 * the most offered value, with add-one smoothing, so a value that was never offered is not impossible.
+	 *
+	 * @param position
+	 * @param value
+	 * @return normalized value
+	 */
+	public double getOpponentNormalizedValue(int position, double value) {
+		if (discretes[position])
+			return (valueCounts[position][(int) value] + 1) / (double) (maximumCounts[position] + 1);
+		if (aims[position] == -1)
+			return (value - lowerBounds[position]) * inverseRanges[position];
+		return (upperBounds[position] - value - lowerBounds[position]) * inverseRanges[position];
+	}
+
+	/**
+	 * Get the value of an issue that has the given normalized value for the agent,
+	 * this is the inverse of getNormalizedValue. For Discrete issues this is the value with the lowest
+	 * evaluation that is at least the normalized value, or the best value if there is none.
+	 *
+	 * @param position
+	 * @param normalizedValue
+	 * @return value
+	 */
+	public double getValue(int position, double normalizedValue) {
+		if (discretes[position]) {
+			int[] order = valuesByEvaluation[position];
+			double[] evaluation = evaluations[position];
+			int low = 0;
+			int high = order.length - 1;
+			while (low < high) {
+				int middle = (low + high) >>> 1;
+				if (evaluation[order[middle]] < normalizedValue)
+					low = middle + 1;
+				else
+					high = middle;
+			}
+			return order[low];
+		}
+		double range = upperBounds[position] - lowerBounds[position];
+		if (aims[position] == 1)
+			return lowerBounds[position] + normalizedValue * range;
+		return upperBounds[position] - lowerBounds[position] - normalizedValue * range;
+	}
+
+	/**
+	 * Get the value of an issue that is best for the agent.
+	 *
+	 * @param position
+	 * @return value
+	 */
+	public double getBestValue(int position) {
+		if (discretes[position])
+			return valuesByEvaluation[position][valuesByEvaluation[position].length - 1];
+		if (aims[position] == 1)
+			return upperBounds[position];
+		return lowerBounds[position];
+	}
+
+	/**
+	 * Create a Value object of the type of the issue.
+	 *
+	 * @param position
+	 * @param value
+	 * @return value
+	 */
+	public Value createValue(int position, double value) {
+		if (discretes[position])
+			return issueIndex.getDiscreteValue(position, (int) value);
+		if (integers[position])
+			return new ValueInteger((int) value);
+		return new ValueReal(value);
+	}
+
+	/**
+	 * Calculate the utility of a bid for the agent.
+	 *
+	 * @param bid
+	 * @return utility
+	 */
+	public double getUtility(Bid bid) {
+		double u = 0.0;
+		for (int i = 0; i < issueNumbers.length; i++) {
+			u += weights[i] * getNormalizedValue(i, getValue(bid, i));
+		}
+		return u / weightSum;
+	}
+
+	/**
+	 * Calculate the utility of a bid for the opponent given an estimate of its weights.
+	 *
+	 * @param opponentWeights
+	 * 			The weights of the opponent, indexed by position.
+	 * @param bid
+	 * @return utility
+	 */
+	public double getOpponentUtility(double[] opponentWeights, Bid bid) {
+		double u = 0.0;
+		double max = 0.0;
+		for (int i = 0; i < issueNumbers.length; i++) {
+			max += opponentWeights[i];
+			u += opponentWeights[i] * getOpponentNormalizedValue(i, getValue(bid, i));
+		}
+		return u / max;
+	}
+
+	/**
+	 * Convert a weight map to an array indexed by position.
+	 *
+	 * @param weightMap
+	 * @param weights
+	 * 			The array the weights are written to.
+	 * @return weights
+	 */
+	public double[] toArray(Map<Issue, Double> weightMap, double[] weights) {
+		for (int i = 0; i < weights.length; i++) {
+			weights[i] = weightMap.get(issues.get(i));
+		}
+		return weights;
+	}
+
+	/**
+	 * @param position
+	 * @return the weight of the issue for the agent.
+	 */
+	public double getWeight(int position) {
+		return weights[position];
+	}
+
+	/**
+	 * @return the sum of the weights of the agent.
+	 */
+	public double getWeightSum() {
+		return weightSum;
+	}
+
+	/**
+	 * @param position
+	 * @return the evaluation aim of the issue, 1 when the agent wants to maximize it and -1 otherwise.
+	 */
+	public int getAim(int position) {
+		return aims[position];
+	}
+
+	/**
+	 * @param position
+	 * @return whether the issue is of type Integer.
+	 */
+	public boolean isInteger(int position) {
+		return integers[position];
+	}
+
+	/**
+	 * @param position
+	 * @return whether the issue is of type Discrete.
+	 */
+	public boolean isDiscrete(int position) {
+		return discretes[position];
+	}
+
+	/**
+	 * @param position
+	 * @return the lowerbound of the issue.
+	 */
+	public double getLowerBound(int position) {
+		return lowerBounds[position];
+	}
+
+	/**
+	 * @param position
+	 * @return the upperbound of the issue.
+	 */
+	public double getUpperBound(int position) {
+		return upperBounds[position];
+	}
+
+	/**
+	 * @param position
+	 * @return the issue number of the issue.
+	 */
+	public int getIssueNumber(int position) {
+		return issueNumbers[position];
+	}
+}
@@ -1,38 +1,27 @@
 package masters.agents.frequency;
 
-import masters.agents.bayesian.*;
+import masters.agents.bayesian.AbstractAgent;
+import masters.agents.bayesian.ConcessionCurve;
+import masters.agents.bayesian.CounterOfferGenerator;
+import masters.agents.bayesian.RunningStatistics;
+import masters.agents.monitor.Trace;
+import masters.agents.monitor.FlightRecorder;
+import masters.agents.monitor.Metric;
+import masters.agents.monitor.Metrics;
+import masters.agents.monitor.TraceEvent;
+
+import java.nio.ByteBuffer;
 
-import java.util.*;
-import java.lang.Math;
-
-import agents.SimpleAgent;
-import com.sun.msv.datatype.xsd.Comparator;
-import javafx.util.Pair;
-import negotiator.Agent;
 import negotiator.Bid;
 import negotiator.actions.Accept;
 import negotiator.actions.Action;
 import negotiator.actions.EndNegotiation;
 import negotiator.actions.Offer;
-import negotiator.analysis.pareto.IssueValue;
-import negotiator.issue.*;
-import negotiator.timeline.Timeline;
 import negotiator.utility.AdditiveUtilitySpace;
-import org.omg.CORBA.INTERNAL;
-
-import java.util.HashMap;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
-import java.util.Map;
-import java.util.Set;
-import java.util.Map.Entry;
-import java.util.stream.Collector;
-import java.util.stream.Collectors;
 
 public class AgentFrequencyUniform extends AbstractAgent {
-    Bid optimalBid, worstBid;
-    double optimalUtility, worstUtility;
+    Bid optimalBid;
+    double optimalUtility;
 
     Action lastPartnerAction;
     Bid lastPartnerBid;
@@ -41,34 +30,37 @@ public class AgentFrequencyUniform extends AbstractAgent {
     int MINIMUM_HISTORY_LENGTH = 5;
     int SAMPLE_SIZE = 10;
 
-    Random random;
     AdditiveUtilitySpace additiveUtilitySpace;
-    Map<Integer, ArrayList<Value>> issueValues;
-    Map<Integer, Double> ownWeights;
+    RunningStatistics[] issueStatistics;
+    int[] issuesRanking;
+    boolean rankingChanged;
+    double[] opponentWeights;
+    double[] ratios;
+    int[] sortedRatios;
 
     @Override
     public void init() {
         try {
-            issues = utilitySpace.getDomain().getIssues();
+            initIssues();
             optimalBid = utilitySpace.getMaxUtilityBid();
-            worstBid = utilitySpace.getMinUtilityBid();
-            agentEvaluationAim = getAgentEvaluationAim();
             additiveUtilitySpace = (AdditiveUtilitySpace) utilitySpace;
-            ownWeights = new HashMap<Integer, Double>();
+            concession = createConcessionEngine(ConcessionCurve.UNIFORM_STOPPING);
         } catch (Exception e) {
             e.printStackTrace();
         }
         optimalUtility = getUtility(optimalBid);
-        worstUtility = getTargetUtil()
 
-        random = new Random();
-        issueValues = new HashMap<Integer, ArrayList<Value>>();
-        for(Issue issue : utilitySpace.getDomain().getIssues()){
-            ArrayList<Value> values = new ArrayList<>();
-            issueValues.put(issue.getNumber(), values);
-            double ownWeight = additiveUtilitySpace.getWeight(issue.getNumber());
-            ownWeights.put(issue.getNumber(), ownWeight);
-        }
+        //Keeps the statistics of the normalized values the opponent offered, per issue
+        issueStatistics = new RunningStatistics[issues.size()];
+        issuesRanking = new int[issues.size()];
+        for(int i = 0; i < issues.size(); i++){
+            issueStatistics[i] = new RunningStatistics();
+            issuesRanking[i] = i;
+        }
+        rankingChanged = true;
+        opponentWeights = new double[issues.size()];
+        ratios = new double[issues.size()];
+        sortedRatios = new int[issues.size()];
     }
 
     @Override
@@ -83,47 +75,74 @@ public class AgentFrequencyUniform extends AbstractAgent {
 
     @Override
     public void ReceiveMessage(Action opponentAction) {
+        long start = Metrics.start();
+        restoreOpponentModel(opponentAction);
         lastPartnerAction = opponentAction;
         if (lastPartnerAction instanceof Offer) {
             lastPartnerBid = ((Offer) lastPartnerAction).getBid();
+            long update = Metrics.start();
+            FlightRecorder.Span span = flightRecorder.beginModelUpdate(getName());
             addToIssueValues(lastPartnerBid);
+            metrics.stop(Metric.UPDATE_MODEL, update);
+            span.endModelUpdate(-1);
+            concession.addOffer();
         }
         lastPartnerUtility = getUtility(lastPartnerBid);
+        metrics.stop(Metric.RECEIVE_MESSAGE, start);
+    }
+
+    //The model of the opponent that is kept for a next session: the statistics of the values it offered, per issue
+    @Override
+    protected long getOpponentModelSize() {
+        return 4 + issueStatistics.length * RunningStatistics.SIZE;
+    }
+
+    @Override
+    protected void writeOpponentModel(ByteBuffer buffer) {
+        buffer.putInt(issueStatistics.length);
+        for (RunningStatistics statistics : issueStatistics) {
+            statistics.write(buffer);
+        }
+    }
+
+    @Override
+    protected void readOpponentModel(ByteBuffer buffer) throws Exception {
+        int count = buffer.getInt();
+        if (count != issueStatistics.length)
+            throw new Exception("saved statistics of " + count + " issues do not match.");
+        for (RunningStatistics statistics : issueStatistics) {
+            statistics.read(buffer);
+        }
+        sortByValue(issuesRanking);
+        rankingChanged = true;
     }
 
-    //Updates the hashmap where all the values of the issues are stored during the negotiation
+    //Updates the statistics of the values of the issues that are offered during the negotiation, and the ranking of the issues
     private void addToIssueValues(Bid bid){
-        for(Issue issue : bid.getIssues()){
-            int issueNumber = issue.getNumber();
-            Value value = null;
-            switch (issue.getType()){
-                case REAL:
-                    IssueReal issueReal = (IssueReal)issue;
-                    value = (ValueReal) bid.getValue(issueNumber);
-                    break;
-                case INTEGER:
-                    IssueInteger issueInteger = (IssueInteger)issue;
-                    value = (ValueInteger) bid.getValue(issueNumber);
-                    break;
-                case DISCRETE:
-                    IssueDiscrete issueDiscrete = (IssueDiscrete)issue;
-                    value = (ValueDiscrete) bid.getValue(issueNumber);
-                    break;
-            }
-            ArrayList<Value> values = issueValues.get(issueNumber);
-            values.add(value);
+        for(int i = 0; i < issueStatistics.length; i++){
+            issueStatistics[i].add(evaluator.getNormalizedValue(i, evaluator.getValue(bid, i)));
+        }
+        if(sortByValue(issuesRanking)){
+            rankingChanged = true;
         }
     }
 
     @Override
     public Action chooseAction() {
+        long start = startTurn();
         Action action = null;
 
-        if (lastPartnerAction == null)
-            return new Offer(getAgentID(), optimalBid);
+        if (lastPartnerAction == null) {
+            action = new Offer(getAgentID(), optimalBid);
+            recordTurn(start, action);
+            return action;
+        }
         try {
-            if (lastPartnerAction instanceof Offer &&
-                    lastPartnerUtility >= getTargetUtil()) {
+            FlightRecorder.Span acceptance = flightRecorder.beginAcceptance(getName());
+            double threshold = getTargetUtil();
+            boolean accept = lastPartnerAction instanceof Offer && lastPartnerUtility >= threshold;
+            acceptance.endAcceptance(accept, lastPartnerUtility, threshold);
+            if (accept) {
                 action = new Accept(getAgentID(), lastPartnerBid);
             } else {
                 Bid bid = createBid();
@@ -137,189 +156,91 @@ public class AgentFrequencyUniform extends AbstractAgent {
                 action = new EndNegotiation(getAgentID());
             }
         }
+        recordTurn(start, action);
         return action;
     }
 
-    //Returns the issue from the last bid done by the opponent
-    private Issue getIssueInPartnerBid(int issueNumber){
-        for(int i = 0; i < lastPartnerBid.getIssues().size(); i++){
-            if(lastPartnerBid.getIssues().get(i).getNumber() == issueNumber){
-                return lastPartnerBid.getIssues().get(i);
-            }
-        }
-        return null;
-    }
-
     //Creates a bid
     public Bid createBid() throws Exception {
-        //Determines the standard deviations
-        Map<Integer, Double> sds = new HashMap<Integer, Double>();
-        for(Integer issueNumber : issueValues.keySet()){
-            double sd = calculateSD(issueNumber);
-            System.out.println("standard deviation of issue " + getIssueInPartnerBid(issueNumber) + ": " + sd);
-            sds.put(issueNumber, sd);
-        }
-        //Determines the order of the ratios
-        ArrayList<Integer> issuesRanking = sortByValue(sds);
-        System.out.println("Calculated preference of opponent: " + issuesRanking.stream().map(i -> getIssueInPartnerBid(i)).collect(Collectors.toList()));
-        Map<Integer, Double> opponentWeights = getWeights(issuesRanking);
-        System.out.println("opp weights: " + opponentWeights);
-        Map<Integer, Double> ratios = calculateRatios(opponentWeights);
-        ArrayList<Pair<Integer, Double>> sortedRatios = sortedRatios(ratios);
-        System.out.println("sorted ratios: " + sortedRatios);
-
-        System.out.println("Current target utility: " + getTargetUtil());
-
-        double currentUtility = 0;
-        Bid bid = new Bid(utilitySpace.getDomain(), lastPartnerBid.getValues());
-        HashMap<Integer, Value> values = bid.getValues();
-        //Loops through all the issues and adjusts the value of the issue one by one, until the target utility is reached
-        for(Pair pair : sortedRatios){
-            Issue issue = getIssueInPartnerBid((Integer)pair.getKey());
-            Integer issueNumber = issue.getNumber();
-            IssueInteger issueInteger = (IssueInteger) issue;
-            int step, start = (int)getValue(lastPartnerBid.getValue(issueNumber), issue), end;
-            if(agentEvaluationAim.get(issue) == 1){
-                step = 1;
-                end = (int)issueInteger.getUpperBound();
-            }else{
-                step = -1;
-                end = (int)issueInteger.getLowerBound();
-            }
-            //Adjusts the value of the issue step by step, until the target utility is reached
-            //TODO
-            for(int i = start; agentEvaluationAim.get(issue) == 1 ? i <= end : i >= end ; i += step){
-                Value value = new ValueInteger(i);
-                values.put(issueNumber, value);
-                bid = new Bid(utilitySpace.getDomain(), values);
-                currentUtility = calculateUtility(bid);
-                if(currentUtility >= getTargetUtil()){
-                    break;
-                }
-            }
-            if(currentUtility >= getTargetUtil()){
-                break;
-            }
-        }
+        long start = Metrics.start();
+        FlightRecorder.Span span = flightRecorder.beginCounterOffer(getName());
+        //The order of the ratios only changes when the ranking of the issues changes
+        if(rankingChanged){
+            calculateRatios(getWeights(issuesRanking));
+            CounterOfferGenerator.orderByWeightRatio(ratios, sortedRatios);
+            rankingChanged = false;
+            traceRanking();
+        }
+
+        double targetUtility = getTargetUtil();
+        trace.record(TraceEvent.TARGET_UTILITY, targetUtility);
+
+        //Picks the indexed bid above the target that is best for the opponent, without an index (or a bid above the target)
+        //the issues are adjusted in the order of the ratios and the value that reaches the target utility is solved directly
+        Bid bid = counterOfferGenerator.getBid(lastPartnerBid, opponentWeights, sortedRatios, targetUtility);
+        span.endCounterOffer(targetUtility, counterOfferGenerator.getIterations());
+        metrics.stop(Metric.GET_BID, start);
         return bid;
     }
 
     //Determines the target utility, this can vary
-    private double getTargetUtil() throws Exception{
-        if (offerAmount == 0)
-            return bestUtility;
-        double time = timeline.getTime();
-        double turnsLeft = offerAmount * (1 - time) / time;
-        return turnsLeft/(turnsLeft+1) * (optimalUtility - worstUtility) + worstUtility;
+    //The expected maximum of the offers still to come, the best and worst utility are cached in the concession engine
+    private double getTargetUtil(){
+        return concession.getTargetUtility(timeline.getTime());
     }
 
     //Calculates the ratio between your own weights and the opponent weights
-    private Map<Integer, Double> calculateRatios(Map<Integer, Double> opponentWeights){
-        Map<Integer, Double> ratios = new HashMap<Integer, Double>();
-        for(Integer issueNumber : opponentWeights.keySet()){
-            double opponentWeight = opponentWeights.get(issueNumber);
-            double ownWeight = ownWeights.get(issueNumber);
-            double ratio = ownWeight / opponentWeight;
-            ratios.put(issueNumber, ratio);
+    private void calculateRatios(double[] opponentWeights){
+        for(int i = 0; i < ratios.length; i++){
+            ratios[i] = evaluator.getWeight(i) / opponentWeights[i];
         }
-        return ratios;
     }
 
     //Calculates the utility for a bid
     public double calculateUtility(Bid bid) throws Exception {
-        HashMap<Integer, Value> values = bid.getValues();
-
-        double u = 0.0;
-        double max = 0.0;
-
-        for (Issue issue : issues) {
-            double weight = ((AdditiveUtilitySpace) utilitySpace).getWeight(issue.getNumber());
-            double normVal = getNormalizedValue(issue, values.get(issue.getNumber()));
-
-            max += weight;
-            u += weight * normVal;
-        }
-
-        return normalize(u, max, 0.0);
+        return evaluator.getUtility(bid);
     }
 
     //Determines which weight each issue gets, according to a ranking of the issues.
-    private Map<Integer, Double> getWeights(ArrayList<Integer> ranking) {
-        Map<Integer, Double> weights = new HashMap<Integer, Double>();
-        int n = ranking.size();
+    private double[] getWeights(int[] ranking) {
+        int n = ranking.length;
         for (int i = 0; i < n; i++) {
-            weights.put(ranking.get(i), 2 * ((double) i + 1)/(n * (n + 1)));
+            opponentWeights[ranking[i]] = 2 * ((double) i + 1)/(n * (n + 1));
         }
-        return weights;
+        return opponentWeights;
     }
 
-    //Sorts the ratios of the weights, starting with the largest ratio
-    private ArrayList<Pair<Integer, Double>> sortedRatios(Map<Integer, Double> ratios){
-        ArrayList<Pair<Integer, Double>> sortedRatios = new ArrayList<Pair<Integer, Double>>();
-
-        for(int i = 0; i < ratios.size(); i++) {
-            Integer maxIssue = null;
-            double maxRatio = Double.MIN_VALUE;
-            for (Integer issueNumber : ratios.keySet()) {
-                Pair<Integer, Double> pair = new Pair<Integer, Double>(issueNumber, ratios.get(issueNumber));
-                if (!sortedRatios.contains(pair) && ratios.get(issueNumber) > maxRatio) {
-                    maxIssue = issueNumber;
-                    maxRatio = ratios.get(issueNumber);
-                }
+    //Sorts the issues on the standard deviation of their values, starting with the largest.
+    //The ranking is nearly sorted after one offer, so this is close to O(issues). Returns whether the order changed.
+    private boolean sortByValue(int[] ranking){
+        boolean changed = false;
+        for(int i = 1; i < ranking.length; i++){
+            int issue = ranking[i];
+            double sd = issueStatistics[issue].getStandardDeviation();
+            int j = i;
+            while(j > 0 && issueStatistics[ranking[j - 1]].getStandardDeviation() < sd){
+                ranking[j] = ranking[j - 1];
+                j--;
             }
-            sortedRatios.add(new Pair<Integer, Double>(maxIssue, maxRatio));
-        }
-        return sortedRatios;
-    }
-
-    //Sorts the issuenumbers, looking at the standard deviation, starting with the largest
-    private ArrayList<Integer> sortByValue(Map<Integer, Double> sds){
-        ArrayList<Integer> sortedArray = new ArrayList<Integer>();
-
-        for(int i = 0; i < sds.size(); i++){
-            Integer minIssue = 0;
-            double minSd = 0;
-            for(Integer issueNumber: sds.keySet()){
-                if(!sortedArray.contains(issueNumber) && sds.get(issueNumber) >= minSd){
-                    minIssue = issueNumber;
-                    minSd = sds.get(issueNumber);
-                }
+            if(j != i){
+                ranking[j] = issue;
+                changed = true;
             }
-            sortedArray.add(minIssue);
         }
-        return sortedArray;
+        return changed;
     }
 
-    //Calculates the standard deviation over all values of a certain issue that has been offered
-    private double calculateSD(Integer issueNumber) throws Exception {
-        ArrayList<Value> values = issueValues.get(issueNumber);
-        ArrayList<Double> normalizedValues = new ArrayList<Double>();
-        Issue issue = getIssueInPartnerBid(issueNumber);
-
-        if(issue == null){
-            throw new Exception("issue is null");
+    //Traces the SDs, the ranking of the issues and the order of the ratios, only when the trace records them
+    private void traceRanking(){
+        if(!Trace.isEnabled(TraceEvent.OPPONENT_RANKING.getLevel()))
+            return;
+        for(int i = 0; i < issuesRanking.length; i++){
+            int issue = issuesRanking[i];
+            trace.record(TraceEvent.ISSUE_DEVIATION, evaluator.getIssueNumber(issue), issueStatistics[issue].getStandardDeviation());
+            trace.record(TraceEvent.OPPONENT_RANKING, evaluator.getIssueNumber(issue), i);
         }
-        double min = getLowerBound(issue);
-        double max = getUpperBound(issue);
-
-        for(Value value : values){
-            double integerValue = getValue(value, issue);
-            double normalizedValue = normalize(integerValue, min, max);
-            normalizedValues.add(normalizedValue);
-        }
-
-        double mean = 0;
-        for(double value : normalizedValues){
-            mean += value;
-        }
-        mean /= values.size();
-
-        double sd = 0;
-        for(double value : normalizedValues){
-            sd += Math.pow(value - mean, 2);
+        for(int i : sortedRatios){
+            trace.record(TraceEvent.WEIGHT_RATIO, evaluator.getIssueNumber(i), ratios[i]);
         }
-        sd /= values.size();
-        sd = Math.pow(sd, 0.5);
-        return sd;
     }
 }
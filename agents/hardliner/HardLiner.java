@@ -4,9 +4,9 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Random;
 
-import agents.SimpleAgent;
 import negotiator.Agent;
 import negotiator.Bid;
+import negotiator.NegotiationResult;
 import negotiator.actions.Accept;
 import negotiator.actions.Action;
 import negotiator.actions.EndNegotiation;
@@ -20,11 +20,16 @@ import negotiator.issue.ValueInteger;
 import negotiator.issue.ValueReal;
 import negotiator.timeline.Timeline;
 
+import masters.agents.monitor.Metric;
+import masters.agents.monitor.Metrics;
+import masters.agents.monitor.MetricsRegistry;
+
 public class HardLiner extends Agent {
     Bid optimalBid;
     double optimalUtility;
     Action actionOfPartner;
     Bid lastPartnerBid;
+    Metrics metrics = MetricsRegistry.getDefault().getMetrics(getClass().getName());
     
     @Override
     public void init() {
@@ -46,16 +51,25 @@ public class HardLiner extends Agent {
         return "Hardliner by MASters";
     }
 
+    @Override
+    public void endSession(NegotiationResult result) {
+        super.endSession(result);
+        MetricsRegistry.getDefault().exportToDefaultFile();
+    }
+
     @Override
     public void ReceiveMessage(Action opponentAction) {
+        long start = Metrics.start();
         actionOfPartner = opponentAction;
         if (actionOfPartner instanceof Offer) {
             lastPartnerBid = ((Offer) actionOfPartner).getBid();
         }
+        metrics.stop(Metric.RECEIVE_MESSAGE, start);
     }
 
     @Override
     public Action chooseAction() {
+        long start = Metrics.start();
         Action action = null;
 
         try {
@@ -75,6 +89,7 @@ public class HardLiner extends Agent {
                 action = new EndNegotiation(getAgentID());
             }
         }
+        metrics.stop(Metric.CHOOSE_ACTION, start);
         return action;
     }
 }
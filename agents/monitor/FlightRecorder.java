@@ -0,0 +1,172 @@
+package masters.agents.monitor;
+
+/**
+ * Spans of the decisions of an agent, for a flight recording. The agents are compiled for Java 8, so
+ * the Java Flight Recorder implementation (masters.jfr.JfrFlightRecorder, Java 11 or later) lives
+ * outside of them and is loaded when it is on the classpath; otherwise, or with -Dmasters.jfr=false,
+ * every span is a shared no-op.
+ *
+ * A span is begun before a decision and ended with its outcome. Spans are only created while a
+ * recording of their event is running, so with recording off a span costs a check of a flag.
+ * A span is ended once, on the thread it was begun on.
+ *
+ * @author MASters
+ */
+public abstract class FlightRecorder {
+	public static final String JFR_PROPERTY = "masters.jfr";
+	static final String JFR_IMPLEMENTATION = "masters.jfr.JfrFlightRecorder";
+	static final FlightRecorder DEFAULT = create(!"false".equalsIgnoreCase(System.getProperty(JFR_PROPERTY)));
+
+	/**
+	 * @return the implementation chosen with the system property masters.jfr.
+	 */
+	public static FlightRecorder getDefault() {
+		return DEFAULT;
+	}
+
+	/**
+	 * @param jfr
+	 * 			Whether to use the Java Flight Recorder implementation if it is available.
+	 * @return implementation
+	 */
+	public static FlightRecorder create(boolean jfr) {
+		if (jfr) {
+			try {
+				return Class.forName(JFR_IMPLEMENTATION).asSubclass(FlightRecorder.class).getDeclaredConstructor().newInstance();
+			} catch (Throwable e) {
+				// Not compiled in, or running on Java 8.
+			}
+		}
+		return new Disabled();
+	}
+
+	/**
+	 * @param agent
+	 * @return the span of chooseAction, ended with endTurn.
+	 */
+	public abstract Span beginTurn(String agent);
+
+	/**
+	 * @param agent
+	 * @return the span of the update of the opponent model with an offer, ended with endModelUpdate.
+	 */
+	public abstract Span beginModelUpdate(String agent);
+
+	/**
+	 * @param agent
+	 * @return the span of creating a counter-offer, ended with endCounterOffer.
+	 */
+	public abstract Span beginCounterOffer(String agent);
+
+	/**
+	 * @param agent
+	 * @return the span of the decision whether to accept the offer of the opponent, ended with endAcceptance.
+	 */
+	public abstract Span beginAcceptance(String agent);
+
+	/**
+	 * @param agent
+	 * @return the span of computing the expected maximum utility, ended with endExpectedMaximum.
+	 */
+	public abstract Span beginExpectedMaximum(String agent);
+
+	/**
+	 * @return the name of the implementation.
+	 */
+	public abstract String getName();
+
+	/**
+	 * A decision being recorded. The span itself records nothing, implementations override the end
+	 * method of the decision they record.
+	 */
+	public static class Span {
+		public static final Span NONE = new Span();
+
+		protected Span() {
+		}
+
+		/**
+		 * @return whether the span is recorded, to skip computing what is only needed for the recording.
+		 */
+		public boolean isRecording() {
+			return false;
+		}
+
+		/**
+		 * @param time
+		 * 			The normalized time of the negotiation.
+		 * @param action
+		 * 			The chosen action.
+		 * @param bids
+		 * 			The amount of bids constructed during the turn.
+		 */
+		public void endTurn(double time, String action, int bids) {
+		}
+
+		/**
+		 * @param hypothesesAlive
+		 * 			The hypotheses with a non-zero belief, -1 for models without hypotheses.
+		 */
+		public void endModelUpdate(long hypothesesAlive) {
+		}
+
+		/**
+		 * @param targetUtility
+		 * @param iterations
+		 * 			The candidates of the bid index or the issues raised to reach the target.
+		 */
+		public void endCounterOffer(double targetUtility, int iterations) {
+		}
+
+		/**
+		 * @param accepted
+		 * @param offeredUtility
+		 * 			The utility of the offer of the opponent.
+		 * @param threshold
+		 * 			The utility the offer had to reach, NaN if the agent decides on time alone.
+		 */
+		public void endAcceptance(boolean accepted, double offeredUtility, double threshold) {
+		}
+
+		/**
+		 * @param expectedMaximum
+		 */
+		public void endExpectedMaximum(double expectedMaximum) {
+		}
+	}
+
+	/**
+	 * Records nothing.
+	 */
+	static class Disabled extends FlightRecorder {
+		@Override
+		public Span beginTurn(String agent) {
+			return Span.NONE;
+		}
+
+		@Override
+		public Span beginModelUpdate(String agent) {
+			return Span.NONE;
+		}
+
+		@Override
+		public Span beginCounterOffer(String agent) {
+			return Span.NONE;
+		}
+
+		@Override
+		public Span beginAcceptance(String agent) {
+			return Span.NONE;
+		}
+
+		@Override
+		public Span beginExpectedMaximum(String agent) {
+			return Span.NONE;
+		}
+
+		@Override
+		public String getName() {
+			return "disabled";
+		}
+	}
+}
@@ -0,0 +1,152 @@
+package masters.agents.monitor;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free histogram of non-negative longs with log-linear buckets, in the style of HdrHistogram.
+ *
+ * Values below 2^SUB_BUCKET_BITS have a bucket each. Every next power of two is split into
+ * 2^SUB_BUCKET_BITS buckets of equal width, so a value is known to within 1/16 of itself whatever
+ * its magnitude, in 960 buckets for the whole range of a long. Recording a value is a bucket
+ * computation, an increment of the bucket and an add to the sum, without locks or allocation, so
+ * any amount of threads can record into the same histogram. The count is the sum of the buckets,
+ * and the maximum is only written when it grows.
+ *
+ * @author MASters
+ */
+public class Histogram {
+	public static final int SUB_BUCKET_BITS = 4;
+	static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+	final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+	final LongAdder sum = new LongAdder();
+	final AtomicLong max = new AtomicLong();
+
+	/**
+	 * @param value
+	 * 			A non-negative value, negative values are recorded as 0.
+	 */
+	public void record(long value) {
+		if (value < 0)
+			value = 0;
+		buckets.incrementAndGet(getBucket(value));
+		sum.add(value);
+		long highest = max.get();
+		while (value > highest && !max.compareAndSet(highest, value)) {
+			highest = max.get();
+		}
+	}
+
+	static int getBucket(long value) {
+		if (value < SUB_BUCKETS)
+			return (int) value;
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		return ((exponent - SUB_BUCKET_BITS + 1) << SUB_BUCKET_BITS)
+				+ (int) ((value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1));
+	}
+
+	/**
+	 * @param bucket
+	 * @return the highest value in the bucket.
+	 */
+	static long getUpperBound(int bucket) {
+		if (bucket < SUB_BUCKETS)
+			return bucket;
+		int exponent = (bucket >>> SUB_BUCKET_BITS) + SUB_BUCKET_BITS - 1;
+		long lower = (long) (SUB_BUCKETS + (bucket & (SUB_BUCKETS - 1))) << (exponent - SUB_BUCKET_BITS);
+		return lower + (1L << (exponent - SUB_BUCKET_BITS)) - 1;
+	}
+
+	/**
+	 * @return a copy of the histogram as it is now, for reading.
+	 */
+	public Snapshot snapshot() {
+		long[] counts = new long[BUCKETS];
+		for (int b = 0; b < BUCKETS; b++) {
+			counts[b] = buckets.get(b);
+		}
+		return new Snapshot(counts, sum.sum(), max.get());
+	}
+
+	/**
+	 * The counts of a histogram at one point in time. The sum and the maximum may include values
+	 * recorded while the snapshot was taken.
+	 */
+	public static class Snapshot {
+		final long[] counts;
+		final long count;
+		final long sum;
+		final long max;
+
+		Snapshot(long[] counts, long sum, long max) {
+			this.counts = counts;
+			long total = 0;
+			for (long c : counts) {
+				total += c;
+			}
+			this.count = total;
+			this.sum = sum;
+			this.max = max;
+		}
+
+		public long getCount() {
+			return count;
+		}
+
+		public long getSum() {
+			return sum;
+		}
+
+		public long getMax() {
+			return max;
+		}
+
+		public double getMean() {
+			return count == 0 ? 0 : sum / (double) count;
+		}
+
+		/**
+		 * @param quantile
+		 * 			Between 0 and 1.
+		 * @return the highest value of the bucket the quantile falls in, at most the maximum.
+		 */
+		public long getValueAtQuantile(double quantile) {
+			if (count == 0)
+				return 0;
+			long rank = Math.max(1, (long) Math.ceil(quantile * count));
+			long seen = 0;
+			for (int b = 0; b < counts.length; b++) {
+				seen += counts[b];
+				if (seen >= rank)
+					return Math.min(getUpperBound(b), max);
+			}
+			return max;
+		}
+
+		/**
+		 * @return the amount of buckets.
+		 */
+		public int getBucketCount() {
+			return counts.length;
+		}
+
+		/**
+		 * @param bucket
+		 * @return the amount of values in the bucket.
+		 */
+		public long getBucketValueCount(int bucket) {
+			return counts[bucket];
+		}
+
+		/**
+		 * @param bucket
+		 * @return the highest value in the bucket.
+		 */
+		public long getBucketUpperBound(int bucket) {
+			return getUpperBound(bucket);
+		}
+	}
+}
@@ -0,0 +1,41 @@
+package masters.agents.monitor;
+
+/**
+ * The metrics the agents record. Durations are recorded in nanoseconds and exported in seconds,
+ * the other metrics are amounts per turn.
+ *
+ * @author MASters
+ */
+public enum Metric {
+	RECEIVE_MESSAGE("receive_message_seconds", "Duration of ReceiveMessage", true),
+	CHOOSE_ACTION("choose_action_seconds", "Duration of chooseAction", true),
+	UPDATE_MODEL("update_model_seconds", "Duration of the update of the opponent model with an offer", true),
+	GET_BID("get_bid_seconds", "Duration of creating a counter-offer (getBid or createBid)", true),
+	EXPECTED_MAXIMUM("expected_maximum_seconds", "Duration of getExpectedMaximum", true),
+	BIDS_PER_TURN("bids_per_turn", "Bids constructed per turn", false),
+	HYPOTHESES_ALIVE("hypotheses_alive", "Hypotheses of the opponent model with a non-zero belief", false);
+
+	final String name;
+	final String help;
+	final boolean duration;
+
+	Metric(String name, String help, boolean duration) {
+		this.name = name;
+		this.help = help;
+		this.duration = duration;
+	}
+
+	/**
+	 * @return the name of the metric in the exports, without prefix.
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @return whether the metric is a duration in nanoseconds.
+	 */
+	public boolean isDuration() {
+		return duration;
+	}
+}
@@ -0,0 +1,70 @@
+package masters.agents.monitor;
+
+/**
+ * The histograms of one agent, one per Metric. Agents of the same class share their Metrics, so the
+ * metrics of a tournament add up over the sessions of every agent.
+ *
+ * Metrics are on by default and are turned off with -Dmasters.metrics=false, which is read once, so
+ * start() and stop() of disabled metrics are removed by the JIT like a disabled Trace.
+ *
+ * @author MASters
+ */
+public class Metrics {
+	public static final boolean ENABLED = !"false".equalsIgnoreCase(System.getProperty("masters.metrics"));
+
+	final String owner;
+	final Histogram[] histograms;
+
+	Metrics(String owner) {
+		this.owner = owner;
+		this.histograms = new Histogram[Metric.values().length];
+		for (int m = 0; m < histograms.length; m++) {
+			histograms[m] = new Histogram();
+		}
+	}
+
+	/**
+	 * @return the start time of a duration, 0 if metrics are disabled.
+	 */
+	public static long start() {
+		return ENABLED ? System.nanoTime() : 0;
+	}
+
+	/**
+	 * Record the duration since start.
+	 *
+	 * @param metric
+	 * @param start
+	 * 			The time returned by start().
+	 */
+	public void stop(Metric metric, long start) {
+		if (ENABLED)
+			histograms[metric.ordinal()].record(System.nanoTime() - start);
+	}
+
+	/**
+	 * Record an amount.
+	 *
+	 * @param metric
+	 * @param value
+	 */
+	public void record(Metric metric, long value) {
+		if (ENABLED)
+			histograms[metric.ordinal()].record(value);
+	}
+
+	/**
+	 * @return the name of the agent the metrics are of.
+	 */
+	public String getOwner() {
+		return owner;
+	}
+
+	/**
+	 * @param metric
+	 * @return the histogram of the metric.
+	 */
+	public Histogram getHistogram(Metric metric) {
+		return histograms[metric.ordinal()];
+	}
+}
@@ -0,0 +1,161 @@
+package masters.agents.monitor;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The Metrics of all agents of the JVM, exported as Prometheus text or CSV.
+ *
+ * If the system property masters.metrics.file is set, the agents export a snapshot of all metrics to
+ * that file at the end of every session, as CSV if the name ends in .csv and otherwise in the
+ * Prometheus text format. The file is replaced in one rename, so a scraper never reads half a snapshot.
+ *
+ * @author MASters
+ */
+public class MetricsRegistry {
+	public static final String FILE_PROPERTY = "masters.metrics.file";
+	static final String PREFIX = "masters_";
+	static final String CSV_HEADER = "agent,metric,count,sum,mean,p50,p90,p99,max";
+	private static final MetricsRegistry DEFAULT = new MetricsRegistry();
+
+	final ConcurrentHashMap<String, Metrics> metrics = new ConcurrentHashMap<String, Metrics>();
+
+	/**
+	 * @return the registry shared by all agents of the JVM.
+	 */
+	public static MetricsRegistry getDefault() {
+		return DEFAULT;
+	}
+
+	/**
+	 * @param owner
+	 * 			The class name of the agent, names given by getName() are not unique.
+	 * @return the metrics of the agent, created on first use.
+	 */
+	public Metrics getMetrics(String owner) {
+		Metrics result = metrics.get(owner);
+		if (result == null) {
+			Metrics created = new Metrics(owner);
+			result = metrics.putIfAbsent(owner, created);
+			if (result == null)
+				result = created;
+		}
+		return result;
+	}
+
+	private List<Metrics> getSortedMetrics() {
+		List<Metrics> sorted = new ArrayList<Metrics>(metrics.values());
+		Collections.sort(sorted, (a, b) -> a.owner.compareTo(b.owner));
+		return sorted;
+	}
+
+	/**
+	 * Export to the file in masters.metrics.file, if it is set. Called by the agents when a session ends.
+	 */
+	public void exportToDefaultFile() {
+		String path = System.getProperty(FILE_PROPERTY);
+		if (path == null || !Metrics.ENABLED)
+			return;
+		try {
+			export(new File(path));
+		} catch (IOException e) {
+			System.out.println("Problem while exporting the metrics to " + path + ": " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Write a snapshot of all metrics to a file, as CSV if its name ends in .csv, otherwise as Prometheus text.
+	 *
+	 * @param file
+	 * @throws IOException
+	 */
+	public synchronized void export(File file) throws IOException {
+		File directory = file.getAbsoluteFile().getParentFile();
+		File temporary = new File(directory, file.getName() + ".tmp");
+		PrintWriter out = new PrintWriter(new FileWriter(temporary));
+		try {
+			if (file.getName().endsWith(".csv"))
+				writeCsv(out);
+			else
+				writePrometheus(out);
+		} finally {
+			out.close();
+		}
+		if (!temporary.renameTo(file)) {
+			file.delete();
+			if (!temporary.renameTo(file))
+				throw new IOException("can not replace " + file + ".");
+		}
+	}
+
+	/**
+	 * Write every metric as a Prometheus histogram, with the agent as label. Only the buckets that
+	 * have values are written, durations are in seconds.
+	 *
+	 * @param out
+	 */
+	public void writePrometheus(PrintWriter out) {
+		List<Metrics> sorted = getSortedMetrics();
+		for (Metric metric : Metric.values()) {
+			String name = PREFIX + metric.name;
+			out.println("# HELP " + name + " " + metric.help);
+			out.println("# TYPE " + name + " histogram");
+			for (Metrics agent : sorted) {
+				Histogram.Snapshot snapshot = agent.getHistogram(metric).snapshot();
+				String label = "agent=\"" + escape(agent.owner) + "\"";
+				long cumulative = 0;
+				for (int b = 0; b < snapshot.getBucketCount(); b++) {
+					long count = snapshot.getBucketValueCount(b);
+					if (count == 0)
+						continue;
+					cumulative += count;
+					out.println(name + "_bucket{" + label + ",le=\"" + format(metric, snapshot.getBucketUpperBound(b)) + "\"} " + cumulative);
+				}
+				out.println(name + "_bucket{" + label + ",le=\"+Inf\"} " + snapshot.getCount());
+				out.println(name + "_sum{" + label + "} " + format(metric, snapshot.getSum()));
+				out.println(name + "_count{" + label + "} " + snapshot.getCount());
+			}
+		}
+	}
+
+	/**
+	 * Write a summary of every metric of every agent, one row each. Durations are in seconds.
+	 *
+	 * @param out
+	 */
+	public void writeCsv(PrintWriter out) {
+		out.println(CSV_HEADER);
+		for (Metrics agent : getSortedMetrics()) {
+			for (Metric metric : Metric.values()) {
+				Histogram.Snapshot snapshot = agent.getHistogram(metric).snapshot();
+				out.println(agent.owner + "," + metric.name + "," + snapshot.getCount()
+						+ "," + format(metric, snapshot.getSum())
+						+ "," + String.format(Locale.ROOT, "%.9g", metric.duration ? snapshot.getMean() * 1e-9 : snapshot.getMean())
+						+ "," + format(metric, snapshot.getValueAtQuantile(0.5))
+						+ "," + format(metric, snapshot.getValueAtQuantile(0.9))
+						+ "," + format(metric, snapshot.getValueAtQuantile(0.99))
+						+ "," + format(metric, snapshot.getMax()));
+			}
+		}
+	}
+
+	/**
+	 * @return a duration in seconds, or an amount as it is.
+	 */
+	private static String format(Metric metric, long value) {
+		if (metric.duration)
+			return String.format(Locale.ROOT, "%.9g", value * 1e-9);
+		return Long.toString(value);
+	}
+
+	private static String escape(String label) {
+		return label.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+	}
+}
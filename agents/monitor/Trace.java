@@ -0,0 +1,197 @@
+package masters.agents.monitor;
+
+import java.io.FileOutputStream;
+import java.io.PrintStream;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Leveled trace of a single agent, off by default.
+ *
+ * The level is read once from the system property masters.trace (off, info, debug or trace), so a
+ * disabled record() is a comparison of two constants that the JIT removes. When enabled, events are
+ * written as fixed-size binary records (time, event, int argument, double value) into a ring buffer of
+ * primitive arrays, nothing is formatted or printed while negotiating. A daemon thread flushes the
+ * buffers of all traces every FLUSH_INTERVAL milliseconds, and the agent flushes the rest at the end
+ * of the session. Messages go to System.out, or are appended to the file in masters.trace.file.
+ *
+ * A trace has a single writer, the thread of the agent. When the writer laps the flusher the oldest
+ * events are overwritten, the flush reports how many events were dropped.
+ *
+ * @author MASters
+ */
+public class Trace {
+	public static final TraceLevel LEVEL = TraceLevel.parse(System.getProperty("masters.trace"));
+	public static final int CAPACITY = 1 << 14;
+	public static final long FLUSH_INTERVAL = 200;
+
+	private static final int MASK = CAPACITY - 1;
+	private static final TraceEvent[] EVENTS = TraceEvent.values();
+	private static final Set<Trace> active = ConcurrentHashMap.newKeySet();
+	private static PrintStream out;
+	private static ScheduledExecutorService flusher;
+
+	/**
+	 * Trace that records nothing whatever the level, for components used without an agent.
+	 */
+	public static final Trace DISABLED = new Trace("disabled", false);
+
+	final String owner;
+	final long[] times;
+	final int[] events;
+	final int[] arguments;
+	final double[] values;
+	volatile long written;
+	long flushed;
+
+	/**
+	 * @param owner
+	 * 			Name printed in front of every message, usually the name of the agent.
+	 */
+	public Trace(String owner) {
+		this(owner, LEVEL != TraceLevel.OFF);
+	}
+
+	private Trace(String owner, boolean enabled) {
+		this.owner = owner;
+		if (!enabled) {
+			times = null;
+			events = null;
+			arguments = null;
+			values = null;
+			return;
+		}
+		times = new long[CAPACITY];
+		events = new int[CAPACITY];
+		arguments = new int[CAPACITY];
+		values = new double[CAPACITY];
+		startFlusher();
+		active.add(this);
+	}
+
+	/**
+	 * Check whether events of a level are recorded, so callers can skip collecting
+	 * the arguments of events that would be ignored.
+	 *
+	 * @param level
+	 * @return true if the level is enabled
+	 */
+	public static boolean isEnabled(TraceLevel level) {
+		return LEVEL.compareTo(level) >= 0 && level != TraceLevel.OFF;
+	}
+
+	/**
+	 * Record an event without argument or value.
+	 *
+	 * @param event
+	 */
+	public void record(TraceEvent event) {
+		record(event, 0, 0);
+	}
+
+	/**
+	 * Record an event with only a value.
+	 *
+	 * @param event
+	 * @param value
+	 */
+	public void record(TraceEvent event, double value) {
+		record(event, 0, value);
+	}
+
+	/**
+	 * Record an event if its level is enabled. Must only be called from the thread of the agent.
+	 *
+	 * @param event
+	 * @param argument
+	 * @param value
+	 */
+	public void record(TraceEvent event, int argument, double value) {
+		if (!isEnabled(event.level) || times == null)
+			return;
+		long sequence = written;
+		int slot = (int) (sequence & MASK);
+		times[slot] = System.nanoTime();
+		events[slot] = event.ordinal();
+		arguments[slot] = argument;
+		values[slot] = value;
+		// Publishes the slot to the flusher.
+		written = sequence + 1;
+	}
+
+	/**
+	 * Format and print the events recorded since the last flush.
+	 */
+	public synchronized void flush() {
+		if (times == null)
+			return;
+		long end = written;
+		long start = Math.max(flushed, end - CAPACITY);
+		long dropped = start - flushed;
+		StringBuilder messages = new StringBuilder();
+		for (long sequence = start; sequence < end; sequence++) {
+			int slot = (int) (sequence & MASK);
+			long time = times[slot];
+			int event = events[slot];
+			int argument = arguments[slot];
+			double value = values[slot];
+			// The writer may have reused the slot while it was read, sequence + CAPACITY is
+			// being written as soon as written reaches it.
+			if (written - CAPACITY >= sequence) {
+				dropped++;
+				continue;
+			}
+			messages.append("############ [").append(owner).append(' ').append(time).append("] ")
+					.append(EVENTS[event].format(argument, value)).append('\n');
+		}
+		flushed = end;
+		if (dropped > 0)
+			messages.append("############ [").append(owner).append("] ").append(dropped).append(" trace events dropped\n");
+		if (messages.length() > 0) {
+			synchronized (Trace.class) {
+				out.print(messages);
+				out.flush();
+			}
+		}
+	}
+
+	/**
+	 * Flush the remaining events and stop flushing this trace in the background.
+	 */
+	public void close() {
+		flush();
+		active.remove(this);
+	}
+
+	private static synchronized void startFlusher() {
+		if (flusher != null)
+			return;
+		out = System.out;
+		String file = System.getProperty("masters.trace.file");
+		if (file != null) {
+			try {
+				out = new PrintStream(new FileOutputStream(file, true), false);
+			} catch (Exception e) {
+				System.out.println("Cannot open trace file " + file + ": " + e.getMessage());
+			}
+		}
+		flusher = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "masters-trace");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		flusher.scheduleWithFixedDelay(new Runnable() {
+			public void run() {
+				for (Trace trace : active) {
+					trace.flush();
+				}
+			}
+		}, FLUSH_INTERVAL, FLUSH_INTERVAL, TimeUnit.MILLISECONDS);
+	}
+}
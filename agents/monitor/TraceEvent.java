@@ -0,0 +1,51 @@
+package masters.agents.monitor;
+
+/**
+ * The events the agents can trace. An event is recorded as its ordinal with one int argument and
+ * one double value, the message is only formatted when the trace is flushed.
+ * In the formats, %1$d is the argument and %2$f the value.
+ *
+ * @author MASters
+ */
+public enum TraceEvent {
+	RECEIVED_OFFER(TraceLevel.DEBUG, "Received offer"),
+	TARGET_UTILITY(TraceLevel.DEBUG, "Current target utility: %2$f"),
+	EXPECTED_MAXIMUM(TraceLevel.DEBUG, "Expected maximum: %2$f"),
+	BELIEF(TraceLevel.TRACE, "Belief %1$d has log chance %2$f"),
+	BEST_HYPOTHESIS(TraceLevel.DEBUG, "Best hypothesis : %1$d with log chance %2$f"),
+	BELIEFS_RESET(TraceLevel.INFO, "All hypotheses have chance 0, beliefs are reset"),
+	EFFECTIVE_PARTICLES(TraceLevel.DEBUG, "%1$d distinct rankings, effective sample size %2$f"),
+	PARTICLES_RESET(TraceLevel.INFO, "All particles have chance 0, weights are reset"),
+	OPPONENT_WEIGHT(TraceLevel.DEBUG, "Estimated weight of issue %1$d : %2$f"),
+	ISSUE_DEVIATION(TraceLevel.TRACE, "Standard deviation of issue %1$d : %2$f"),
+	OPPONENT_RANKING(TraceLevel.DEBUG, "Calculated preference of opponent, issue %1$d at place %2$.0f"),
+	WEIGHT_RATIO(TraceLevel.DEBUG, "Weight ratio of issue %1$d : %2$f"),
+	MODEL_RESTORED(TraceLevel.INFO, "Opponent model of %1$d bytes restored in %2$f us"),
+	MODEL_SAVED(TraceLevel.INFO, "Opponent model of %1$d bytes saved");
+
+	final TraceLevel level;
+	final String format;
+
+	TraceEvent(TraceLevel level, String format) {
+		this.level = level;
+		this.format = format;
+	}
+
+	/**
+	 * @return the lowest level at which the event is recorded.
+	 */
+	public TraceLevel getLevel() {
+		return level;
+	}
+
+	/**
+	 * Format the message of a recorded event.
+	 *
+	 * @param argument
+	 * @param value
+	 * @return message
+	 */
+	public String format(int argument, double value) {
+		return String.format(format, argument, value);
+	}
+}
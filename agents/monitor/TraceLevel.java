@@ -0,0 +1,29 @@
+package masters.agents.monitor;
+
+/**
+ * Verbosity of the trace, a level includes every level before it.
+ *
+ * @author MASters
+ */
+public enum TraceLevel {
+	OFF,
+	INFO,
+	DEBUG,
+	TRACE;
+
+	/**
+	 * Parse a level, case insensitive. Unknown or missing levels turn tracing off.
+	 *
+	 * @param name
+	 * @return level
+	 */
+	public static TraceLevel parse(String name) {
+		if (name == null)
+			return OFF;
+		for (TraceLevel level : values()) {
+			if (level.name().equalsIgnoreCase(name.trim()))
+				return level;
+		}
+		return OFF;
+	}
+}
@@ -1,30 +1,29 @@
 package masters.agents.normalaccepter;
 
-import java.util.HashMap;
-import java.util.List;
 import java.util.Random;
-import java.util.ArrayList;
 import java.lang.Math;
 
-import agents.SimpleAgent;
 import negotiator.Agent;
 import negotiator.Bid;
+import negotiator.NegotiationResult;
 import negotiator.actions.Accept;
 import negotiator.actions.Action;
 import negotiator.actions.EndNegotiation;
 import negotiator.actions.Offer;
-import negotiator.issue.Issue;
-import negotiator.issue.IssueDiscrete;
-import negotiator.issue.IssueInteger;
-import negotiator.issue.IssueReal;
-import negotiator.issue.Value;
-import negotiator.issue.ValueInteger;
-import negotiator.issue.ValueReal;
-import negotiator.timeline.Timeline;
+
+import masters.agents.monitor.FlightRecorder;
+import masters.agents.monitor.Metric;
+import masters.agents.monitor.Metrics;
+import masters.agents.monitor.MetricsRegistry;
+import masters.agents.monitor.Trace;
+import masters.agents.monitor.TraceEvent;
+import masters.agents.bayesian.NormalMaximum;
+import masters.agents.bayesian.RunningStatistics;
+import masters.agents.bayesian.Seedable;
 
 /* NormalAccepter is a really cool agent which estimates bidding behavior by a
    normal distribution and then uses that to estimate the highest bid to expect */
-public class NormalAccepter extends Agent {
+public class NormalAccepter extends Agent implements Seedable {
     Bid optimalBid;
     double optimalUtility;
 
@@ -32,24 +31,34 @@ public class NormalAccepter extends Agent {
     Bid lastPartnerBid;
     double lastPartnerUtility;
 
-    ArrayList<Double> history;
+    RunningStatistics history;
 
     int MINIMUM_HISTORY_LENGTH = 10;
-    int MAX_SAMPLE_SIZE = 10000;
+    int MAX_SAMPLE_SIZE = NormalMaximum.MAX_SAMPLE_SIZE;
     int SAMPLE_REPEATS = 25;
+    // Use the Monte Carlo estimate of the expected maximum instead of the precomputed table
+    boolean SAMPLE_EXPECTED_MAXIMUM = false;
 
-    Random random;
+    Random random = new Random();
+    Trace trace;
+    FlightRecorder flightRecorder = FlightRecorder.getDefault();
+    Metrics metrics = MetricsRegistry.getDefault().getMetrics(getClass().getName());
 
     @Override
     public void init() {
+        trace = new Trace(getName());
         try {
             optimalBid = utilitySpace.getMaxUtilityBid();
         } catch (Exception e) {
             e.printStackTrace();
         }
         optimalUtility = getUtility(optimalBid);
-        history = new ArrayList<Double>();
-        random = new Random();
+        history = new RunningStatistics();
+    }
+
+    @Override
+    public void setSeed(long seed) {
+        random.setSeed(seed);
     }
 
     @Override
@@ -62,29 +71,42 @@ public class NormalAccepter extends Agent {
         return "NormalAccepter by MASters";
     }
 
+    @Override
+    public void endSession(NegotiationResult result) {
+        super.endSession(result);
+        MetricsRegistry.getDefault().exportToDefaultFile();
+        trace.close();
+    }
+
     @Override
     public void ReceiveMessage(Action opponentAction) {
+        long start = Metrics.start();
         lastPartnerAction = opponentAction;
         if (lastPartnerAction instanceof Offer) {
             lastPartnerBid = ((Offer) lastPartnerAction).getBid();
         }
         lastPartnerUtility = getUtility(lastPartnerBid);
         history.add(lastPartnerUtility);
+        metrics.stop(Metric.RECEIVE_MESSAGE, start);
     }
 
     @Override
     public Action chooseAction() {
+        long start = Metrics.start();
+        FlightRecorder.Span turn = flightRecorder.beginTurn(getName());
         double expectedMaximum = getExpectedMaximum();
-        System.out.println("Expected maximum: " + Double.toString(expectedMaximum));
+        trace.record(TraceEvent.EXPECTED_MAXIMUM, expectedMaximum);
         
         Action action = null;
 
         if (lastPartnerAction == null)
-            return new Offer(getAgentID(), optimalBid);
+            return endTurn(start, turn, new Offer(getAgentID(), optimalBid));
 
         try {
-            if (lastPartnerAction instanceof Offer &&
-                lastPartnerUtility >= expectedMaximum) {
+            FlightRecorder.Span acceptance = flightRecorder.beginAcceptance(getName());
+            boolean accept = lastPartnerAction instanceof Offer && lastPartnerUtility >= expectedMaximum;
+            acceptance.endAcceptance(accept, lastPartnerUtility, expectedMaximum);
+            if (accept) {
 
                 action = new Accept(getAgentID(), lastPartnerBid);
             } else {
@@ -98,45 +120,42 @@ public class NormalAccepter extends Agent {
                 action = new EndNegotiation(getAgentID());
             }
         }
+        return endTurn(start, turn, action);
+    }
+
+    // Record the duration of the turn and end its span, the accepter constructs no bids
+    private Action endTurn(long start, FlightRecorder.Span turn, Action action) {
+        metrics.stop(Metric.CHOOSE_ACTION, start);
+        if (turn.isRecording())
+            turn.endTurn(timeline.getTime(), action.getClass().getSimpleName(), 0);
         return action;
     }
 
     public double getExpectedMaximum() {
+        long start = Metrics.start();
+        FlightRecorder.Span span = flightRecorder.beginExpectedMaximum(getName());
+        double expectedMaximum = calculateExpectedMaximum();
+        span.endExpectedMaximum(expectedMaximum);
+        metrics.stop(Metric.EXPECTED_MAXIMUM, start);
+        return expectedMaximum;
+    }
+
+    private double calculateExpectedMaximum() {
         if (timeline.getTime() < 0.5)
             return optimalUtility;
 
-        double mean = 0;
-        for (double doub : history) {
-            mean += doub;
-        }
-        mean /= history.size();
-
-        double sd = 0;
-        for (double doub : history) {
-            sd += Math.pow(doub - mean, 2);
-        }
-        sd /= history.size();
-        sd = Math.pow(sd, 0.5);
-
-        double maximum = 0;
+        double mean = history.getMean();
+        double sd = history.getStandardDeviation();
 
         double time = timeline.getTime();
-        int sample_size = (int) (history.size() * (1 - time) / time);
+        int sample_size = (int) (history.getCount() * (1 - time) / time);
         if (sample_size > MAX_SAMPLE_SIZE)
             sample_size = MAX_SAMPLE_SIZE;
         if (sample_size < 1)
             sample_size = 1;
 
-        for (int i = 0; i < SAMPLE_REPEATS; i++) {
-            double tempMaximum = 0;
-            for (int j = 0; j < sample_size; j++) {
-                double example = random.nextGaussian() * sd + mean;
-                if (example > tempMaximum)
-                    tempMaximum = example;
-            }
-            maximum += tempMaximum / SAMPLE_REPEATS;
-        }
-
-        return maximum;
+        if (SAMPLE_EXPECTED_MAXIMUM)
+            return NormalMaximum.sampleExpectedMaximum(random, sample_size, SAMPLE_REPEATS, mean, sd);
+        return NormalMaximum.getExpectedMaximum(sample_size, mean, sd);
     }
 }
@@ -6,9 +6,9 @@ import java.util.Random;
 import java.util.ArrayList;
 import java.lang.Math;
 
-import agents.SimpleAgent;
 import negotiator.Agent;
 import negotiator.Bid;
+import negotiator.NegotiationResult;
 import negotiator.actions.Accept;
 import negotiator.actions.Action;
 import negotiator.actions.EndNegotiation;
@@ -22,13 +22,23 @@ import negotiator.issue.ValueInteger;
 import negotiator.issue.ValueReal;
 import negotiator.timeline.Timeline;
 
+import masters.agents.bayesian.ConcessionCurve;
+import masters.agents.bayesian.ConcessionEngine;
+import masters.agents.bayesian.Seedable;
+import masters.agents.monitor.FlightRecorder;
+import masters.agents.monitor.Metric;
+import masters.agents.monitor.Metrics;
+import masters.agents.monitor.MetricsRegistry;
+import masters.agents.monitor.Trace;
+import masters.agents.monitor.TraceEvent;
+
 /* NormalAccepter is a really cool agent which estimates bidding behavior by a
    normal distribution and then uses that to estimate the highest bid to expect */
-public class UniformAccepter extends Agent {
+public class UniformAccepter extends Agent implements Seedable {
     Bid optimalBid;
     double optimalUtility;
     double worstUtility;
-    int offerAmount;
+    ConcessionEngine concession;
 
     Action lastPartnerAction;
     Bid lastPartnerBid;
@@ -37,20 +47,29 @@ public class UniformAccepter extends Agent {
     int MINIMUM_HISTORY_LENGTH = 10;
     int MAX_SAMPLE_SIZE = 10000;
 
-    Random random;
+    Random random = new Random();
+    Trace trace;
+    FlightRecorder flightRecorder = FlightRecorder.getDefault();
+    Metrics metrics = MetricsRegistry.getDefault().getMetrics(getClass().getName());
 
     @Override
     public void init() {
+        trace = new Trace(getName());
         Bid minimalBid;
         try {
             optimalBid = utilitySpace.getMaxUtilityBid();
             minimalBid = utilitySpace.getMinUtilityBid();
             optimalUtility = getUtility(optimalBid);
             worstUtility = getUtility(minimalBid);
+            concession = new ConcessionEngine(optimalUtility, worstUtility, ConcessionCurve.UNIFORM_STOPPING);
         } catch (Exception e) {
             e.printStackTrace();
         }
-        random = new Random();
+    }
+
+    @Override
+    public void setSeed(long seed) {
+        random.setSeed(seed);
     }
 
     @Override
@@ -63,29 +82,42 @@ public class UniformAccepter extends Agent {
         return "UniformAccepter by MASters";
     }
 
+    @Override
+    public void endSession(NegotiationResult result) {
+        super.endSession(result);
+        MetricsRegistry.getDefault().exportToDefaultFile();
+        trace.close();
+    }
+
     @Override
     public void ReceiveMessage(Action opponentAction) {
+        long start = Metrics.start();
         lastPartnerAction = opponentAction;
         if (lastPartnerAction instanceof Offer) {
             lastPartnerBid = ((Offer) lastPartnerAction).getBid();
-            offerAmount++;
+            concession.addOffer();
         }
         lastPartnerUtility = getUtility(lastPartnerBid);
+        metrics.stop(Metric.RECEIVE_MESSAGE, start);
     }
 
     @Override
     public Action chooseAction() {
+        long start = Metrics.start();
+        FlightRecorder.Span turn = flightRecorder.beginTurn(getName());
         double expectedMaximum = getExpectedMaximum();
-        System.out.println("Expected maximum: " + Double.toString(expectedMaximum));
+        trace.record(TraceEvent.EXPECTED_MAXIMUM, expectedMaximum);
 
         Action action = null;
 
         if (lastPartnerAction == null)
-            return new Offer(getAgentID(), optimalBid);
+            return endTurn(start, turn, new Offer(getAgentID(), optimalBid));
 
         try {
-            if (lastPartnerAction instanceof Offer &&
-                lastPartnerUtility >= expectedMaximum) {
+            FlightRecorder.Span acceptance = flightRecorder.beginAcceptance(getName());
+            boolean accept = lastPartnerAction instanceof Offer && lastPartnerUtility >= expectedMaximum;
+            acceptance.endAcceptance(accept, lastPartnerUtility, expectedMaximum);
+            if (accept) {
 
                 action = new Accept(getAgentID(), lastPartnerBid);
             } else {
@@ -99,18 +131,24 @@ public class UniformAccepter extends Agent {
                 action = new EndNegotiation(getAgentID());
             }
         }
+        return endTurn(start, turn, action);
+    }
+
+    // Record the duration of the turn and end its span, the accepter constructs no bids
+    private Action endTurn(long start, FlightRecorder.Span turn, Action action) {
+        metrics.stop(Metric.CHOOSE_ACTION, start);
+        if (turn.isRecording())
+            turn.endTurn(timeline.getTime(), action.getClass().getSimpleName(), 0);
         return action;
     }
 
     public double getExpectedMaximum() {
-        // We can't calculate it in this case so just give the upper bound
-        if (offerAmount == 0)
-            return optimalUtility;
-
-        double time = timeline.getTime();
-        double turnsLeft = offerAmount * (1 - time) / time;
-
-        return turnsLeft/(turnsLeft+1) * (optimalUtility - worstUtility)
-            + worstUtility;
+        long start = Metrics.start();
+        FlightRecorder.Span span = flightRecorder.beginExpectedMaximum(getName());
+        // Without offers this is the upper bound
+        double expectedMaximum = concession.getTargetUtility(timeline.getTime());
+        span.endExpectedMaximum(expectedMaximum);
+        metrics.stop(Metric.EXPECTED_MAXIMUM, start);
+        return expectedMaximum;
     }
 }
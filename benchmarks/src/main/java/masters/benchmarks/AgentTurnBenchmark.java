@@ -0,0 +1,77 @@
+package masters.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import negotiator.Agent;
+import negotiator.AgentID;
+import negotiator.Bid;
+import negotiator.actions.Action;
+import negotiator.actions.Offer;
+
+/**
+ * Latency of one turn of an agent: receiving an offer of the opponent and choosing an action.
+ * Every agent of the repository runs against synthetic domains of varying issue counts and ranges.
+ *
+ * @author MASters
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AgentTurnBenchmark {
+	static final long SEED = 42;
+	static final int ROUNDS = 1000;
+	static final int OFFERS = 1024;
+
+	/** Not listed here, Main runs every agent of Agents.ALL unless -p agent=... is given. */
+	@Param({})
+	public String agent;
+
+	@Param({ "2", "4", "8" })
+	public int issues;
+
+	@Param({ "10", "1000", "1000000" })
+	public int range;
+
+	Agent negotiator;
+	CyclicTimeline timeline;
+	Offer[] offers;
+	int next;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		SyntheticDomain domain = new SyntheticDomain(issues, range, false, SEED);
+		timeline = new CyclicTimeline(ROUNDS);
+		negotiator = Agents.start(agent, domain.getOwnUtilitySpace(), timeline, "agent");
+		AgentID opponent = new AgentID("opponent");
+		Bid[] bids = domain.createOpponentOffers(OFFERS, 0.5);
+		offers = new Offer[OFFERS];
+		for (int i = 0; i < OFFERS; i++) {
+			offers[i] = new Offer(opponent, bids[i]);
+		}
+	}
+
+	@Benchmark
+	public Action turn() {
+		negotiator.ReceiveMessage(offers[next]);
+		next = (next + 1) & (OFFERS - 1);
+		Action action = negotiator.chooseAction();
+		timeline.increment();
+		return action;
+	}
+}
@@ -0,0 +1,43 @@
+package masters.benchmarks;
+
+import java.util.Date;
+import java.util.HashMap;
+
+import masters.session.Tournament;
+import negotiator.Agent;
+import negotiator.AgentID;
+import negotiator.AgentParamValue;
+import negotiator.AgentParameterVariable;
+import negotiator.timeline.Timeline;
+import negotiator.utility.AbstractUtilitySpace;
+
+/**
+ * The agents of the repository and how to start them the way Genius does.
+ *
+ * @author MASters
+ */
+public final class Agents {
+	/** The agents in the order of the tournament, the list is kept in Tournament.AGENTS. */
+	public static final String[] ALL = Tournament.AGENTS;
+
+	private Agents() {
+	}
+
+	/**
+	 * Instantiate an agent and initialize it for a session.
+	 *
+	 * @param className
+	 * @param utilitySpace
+	 * @param timeline
+	 * @param id
+	 * @return agent
+	 * @throws Exception
+	 */
+	public static Agent start(String className, AbstractUtilitySpace utilitySpace, Timeline timeline, String id) throws Exception {
+		Agent agent = (Agent) Class.forName(className).getDeclaredConstructor().newInstance();
+		agent.internalInit(0, 1, new Date(), null, timeline, utilitySpace,
+				new HashMap<AgentParameterVariable, AgentParamValue>(), new AgentID(id));
+		agent.init();
+		return agent;
+	}
+}
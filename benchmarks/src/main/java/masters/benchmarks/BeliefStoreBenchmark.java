@@ -0,0 +1,93 @@
+package masters.benchmarks;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import masters.agents.bayesian.BayesianPredictor;
+import masters.agents.bayesian.BeliefStore;
+import negotiator.Bid;
+import negotiator.issue.Issue;
+
+/**
+ * Throughput of the belief stores of the BayesianPredictor: the whole belief update with the beliefs
+ * on the heap or in a memory-mapped file in double or single precision, and a read-modify-write pass
+ * over the store alone, chunk by chunk as the update does. The amount of hypotheses is issues!.
+ *
+ * @author MASters
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BeliefStoreBenchmark {
+	static final long SEED = 42;
+	static final int OFFERS = 1024;
+
+	@Param({ "8", "9", "10" })
+	public int issues;
+
+	@Param({ "heap", "mapped", "mapped-float" })
+	public String store;
+
+	Bid[] bids;
+	int next;
+	BayesianPredictor predictor;
+	BeliefStore beliefs;
+	double[] buffer;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		SyntheticDomain domain = new SyntheticDomain(issues, 1000, false, SEED);
+		bids = domain.createOpponentOffers(OFFERS, 0.5);
+		Map<Issue, Integer> aim = new HashMap<Issue, Integer>();
+		for (Issue issue : domain.getDomain().getIssues()) {
+			aim.put(issue, 1);
+		}
+		predictor = new BayesianPredictor(domain.getDomain().getIssues(), aim, BeliefStore.Type.parse(store));
+		beliefs = predictor.getBeliefStore();
+		buffer = new double[BayesianPredictor.CHUNK_SIZE];
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		predictor.close();
+	}
+
+	@Benchmark
+	public BayesianPredictor updateModel() {
+		predictor.updateModel(bids[next]);
+		next = (next + 1) & (OFFERS - 1);
+		return predictor;
+	}
+
+	@Benchmark
+	public double[] scan() {
+		int size = beliefs.size();
+		for (int from = 0; from < size; from += buffer.length) {
+			int length = Math.min(buffer.length, size - from);
+			beliefs.read(from, buffer, length);
+			for (int i = 0; i < length; i++) {
+				buffer[i] -= 1e-9;
+			}
+			beliefs.write(from, buffer, length);
+		}
+		return buffer;
+	}
+}
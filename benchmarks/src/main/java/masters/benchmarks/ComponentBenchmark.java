@@ -0,0 +1,169 @@
+package masters.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import masters.agents.bayesian.AbstractAgent;
+import masters.agents.bayesian.BayesianPredictor;
+import masters.agents.bayesian.CounterOfferGenerator;
+import masters.agents.bayesian.IssueIndex;
+import masters.agents.bayesian.NormalBayesianAgent;
+import masters.agents.bayesian.ParticleFilterPredictor;
+import masters.agents.bayesian.PreferenceEstimator;
+import masters.agents.bayesian.UniformBayesianAgent;
+import masters.agents.bayesian.UtilityEvaluator;
+import masters.agents.frequency.FrequencyAnalyzer;
+import masters.agents.normalaccepter.NormalAccepter;
+import masters.agents.uniformaccepter.UniformAccepter;
+import negotiator.AgentID;
+import negotiator.Bid;
+import negotiator.actions.Offer;
+import negotiator.issue.Issue;
+
+/**
+ * Latency of the parts of a turn separately: the belief update of the predictors, creating a
+ * counter-offer from a predicted preference (getBid) or from the frequency ranking (createBid),
+ * and the expected maximum of the acceptance strategies.
+ *
+ * @author MASters
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ComponentBenchmark {
+	static final long SEED = 42;
+	static final int ROUNDS = 1000;
+	static final int OFFERS = 1024;
+
+	@Param({ "2", "4", "8" })
+	public int issues;
+
+	@Param({ "1000" })
+	public int range;
+
+	SyntheticDomain domain;
+	CyclicTimeline timeline;
+	Bid[] bids;
+	Offer[] offers;
+	int next;
+
+	PreferenceEstimator exactPredictor;
+	PreferenceEstimator particlePredictor;
+	CounterOfferGenerator generator;
+	Map<Issue, Double> preference;
+	FrequencyAnalyzer frequencyAnalyzer;
+	NormalBayesianAgent normalBayesianAgent;
+	UniformBayesianAgent uniformBayesianAgent;
+	NormalAccepter normalAccepter;
+	UniformAccepter uniformAccepter;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		domain = new SyntheticDomain(issues, range, false, SEED);
+		timeline = new CyclicTimeline(ROUNDS);
+		bids = domain.createOpponentOffers(OFFERS, 0.5);
+		AgentID opponent = new AgentID("opponent");
+		offers = new Offer[OFFERS];
+		for (int i = 0; i < OFFERS; i++) {
+			offers[i] = new Offer(opponent, bids[i]);
+		}
+
+		normalBayesianAgent = start(NormalBayesianAgent.class);
+		uniformBayesianAgent = start(UniformBayesianAgent.class);
+		frequencyAnalyzer = start(FrequencyAnalyzer.class);
+		normalAccepter = (NormalAccepter) Agents.start(NormalAccepter.class.getName(), domain.getOwnUtilitySpace(), timeline, "agent");
+		uniformAccepter = (UniformAccepter) Agents.start(UniformAccepter.class.getName(), domain.getOwnUtilitySpace(), timeline, "agent");
+		for (int i = 0; i < OFFERS; i++) {
+			normalBayesianAgent.ReceiveMessage(offers[i]);
+			uniformBayesianAgent.ReceiveMessage(offers[i]);
+			frequencyAnalyzer.ReceiveMessage(offers[i]);
+			normalAccepter.ReceiveMessage(offers[i]);
+			uniformAccepter.ReceiveMessage(offers[i]);
+		}
+
+		List<Issue> domainIssues = domain.getDomain().getIssues();
+		Map<Issue, Integer> aim = normalBayesianAgent.agentEvaluationAim;
+		exactPredictor = new BayesianPredictor(new ArrayList<Issue>(domainIssues), aim);
+		particlePredictor = new ParticleFilterPredictor(new ArrayList<Issue>(domainIssues), aim, ParticleFilterPredictor.DEFAULT_PARTICLE_COUNT);
+		generator = new CounterOfferGenerator(domain.getDomain(),
+				new UtilityEvaluator(new IssueIndex(domainIssues, aim), domain.getOwnUtilitySpace()));
+		preference = exactPredictor.getPreferenceWeights();
+	}
+
+	@SuppressWarnings("unchecked")
+	private <T extends AbstractAgent> T start(Class<T> agent) throws Exception {
+		return (T) Agents.start(agent.getName(), domain.getOwnUtilitySpace(), timeline, "agent");
+	}
+
+	private Bid nextBid() {
+		Bid bid = bids[next];
+		next = (next + 1) & (OFFERS - 1);
+		timeline.increment();
+		return bid;
+	}
+
+	@Benchmark
+	public PreferenceEstimator updateModelExact() {
+		exactPredictor.updateModel(nextBid());
+		return exactPredictor;
+	}
+
+	@Benchmark
+	public PreferenceEstimator updateModelParticle() {
+		particlePredictor.updateModel(nextBid());
+		return particlePredictor;
+	}
+
+	@Benchmark
+	public Bid getBid() throws Exception {
+		return generator.getBid(nextBid(), preference, 0.8);
+	}
+
+	@Benchmark
+	public Bid createBid() throws Exception {
+		nextBid();
+		return frequencyAnalyzer.createBid();
+	}
+
+	@Benchmark
+	public double getExpectedMaximumNormalBayesian() {
+		nextBid();
+		return normalBayesianAgent.getExpectedMaximum();
+	}
+
+	@Benchmark
+	public double getExpectedMaximumUniformBayesian() {
+		nextBid();
+		return uniformBayesianAgent.getExpectedMaximum();
+	}
+
+	@Benchmark
+	public double getExpectedMaximumNormalAccepter() {
+		nextBid();
+		return normalAccepter.getExpectedMaximum();
+	}
+
+	@Benchmark
+	public double getExpectedMaximumUniformAccepter() {
+		nextBid();
+		return uniformAccepter.getExpectedMaximum();
+	}
+}
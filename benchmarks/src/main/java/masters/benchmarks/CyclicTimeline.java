@@ -0,0 +1,33 @@
+package masters.benchmarks;
+
+import negotiator.timeline.Timeline;
+
+/**
+ * Discrete timeline that starts again at time 0 after the last round, so a benchmark can run
+ * any amount of turns while the agent goes through its complete concession curve.
+ *
+ * @author MASters
+ */
+public class CyclicTimeline extends Timeline {
+	final int totalRounds;
+	int round;
+
+	public CyclicTimeline(int totalRounds) {
+		this.totalRounds = totalRounds;
+	}
+
+	@Override
+	public double getTime() {
+		return (round + 1) / (double) (totalRounds + 1);
+	}
+
+	@Override
+	public boolean isDeadlineReached() {
+		return false;
+	}
+
+	public void increment() {
+		if (++round == totalRounds)
+			round = 0;
+	}
+}
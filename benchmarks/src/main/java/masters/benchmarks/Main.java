@@ -0,0 +1,24 @@
+package masters.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the JMH command line options and always adds the gc profiler,
+ * so the allocation rate per turn is reported next to the latency. Without -p agent=... the
+ * benchmarks with an agent parameter run every agent of Agents.ALL.
+ *
+ * @author MASters
+ */
+public class Main {
+	public static void main(String[] args) throws Exception {
+		CommandLineOptions options = new CommandLineOptions(args);
+		ChainedOptionsBuilder builder = new OptionsBuilder().parent(options).addProfiler(GCProfiler.class);
+		if (!options.getParameter("agent").hasValue())
+			builder.param("agent", Agents.ALL);
+		new Runner(builder.build()).run();
+	}
+}
@@ -0,0 +1,73 @@
+package masters.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import masters.agents.bayesian.MatrixProduct;
+
+/**
+ * The likelihood product of the BayesianPredictor on its own: a matrix of hypotheses x issues rank
+ * weights times the normalized offer, with the scalar and the Vector API implementation. The amount
+ * of hypotheses is issues!. Setup fails if the Vector API implementation is asked for but not loaded.
+ *
+ * @author MASters
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "--add-modules=jdk.incubator.vector" })
+public class MatrixProductBenchmark {
+	@Param({ "6", "7", "8" })
+	public int issues;
+
+	@Param({ "false", "true" })
+	public boolean simd;
+
+	MatrixProduct product;
+	double[] matrix;
+	double[] vector;
+	double[] result;
+	int rows;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		product = MatrixProduct.create(simd);
+		if (simd && product.getName().equals("scalar"))
+			throw new IllegalStateException("the Vector API implementation is not available.");
+		rows = 1;
+		for (int i = 2; i <= issues; i++) {
+			rows *= i;
+		}
+		Random random = new Random(42);
+		matrix = new double[rows * issues];
+		for (int i = 0; i < matrix.length; i++) {
+			matrix[i] = random.nextDouble();
+		}
+		vector = new double[issues];
+		for (int i = 0; i < issues; i++) {
+			vector[i] = random.nextDouble();
+		}
+		result = new double[rows];
+	}
+
+	@Benchmark
+	public double[] multiply() {
+		product.multiply(matrix, rows, vector, result, 0, rows);
+		return result;
+	}
+}
@@ -0,0 +1,118 @@
+package masters.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import negotiator.Bid;
+import negotiator.DomainImpl;
+import negotiator.issue.Issue;
+import negotiator.issue.IssueInteger;
+import negotiator.issue.IssueReal;
+import negotiator.utility.AdditiveUtilitySpace;
+import negotiator.utility.EvaluatorInteger;
+import negotiator.utility.EvaluatorReal;
+
+/**
+ * Seeded in-memory domain with two opposing linear additive profiles. Every issue has a random
+ * weight per profile, and the profiles want the values of an issue to move in opposite directions.
+ *
+ * @author MASters
+ */
+public class SyntheticDomain {
+	final DomainImpl domain;
+	final AdditiveUtilitySpace ownUtilitySpace;
+	final AdditiveUtilitySpace opponentUtilitySpace;
+	final Random random;
+
+	/**
+	 * @param issueCount
+	 * @param range
+	 * 			The amount of values of an issue, the values are 0 up to range.
+	 * @param real
+	 * 			Use Real issues instead of Integer issues.
+	 * @param seed
+	 */
+	public SyntheticDomain(int issueCount, int range, boolean real, long seed) {
+		random = new Random(seed);
+		List<Issue> issues = new ArrayList<Issue>();
+		for (int i = 1; i <= issueCount; i++) {
+			if (real)
+				issues.add(new IssueReal("issue" + i, i, 0, range));
+			else
+				issues.add(new IssueInteger("issue" + i, i, 0, range));
+		}
+		domain = new DomainImpl("synthetic-" + issueCount + "-" + range, issues);
+
+		int[] aims = new int[issueCount];
+		for (int i = 0; i < issueCount; i++) {
+			aims[i] = random.nextBoolean() ? 1 : -1;
+		}
+		ownUtilitySpace = createUtilitySpace(issues, aims, 1);
+		opponentUtilitySpace = createUtilitySpace(issues, aims, -1);
+	}
+
+	private AdditiveUtilitySpace createUtilitySpace(List<Issue> issues, int[] aims, int direction) {
+		AdditiveUtilitySpace utilitySpace = new AdditiveUtilitySpace(domain);
+		double[] weights = new double[issues.size()];
+		double total = 0;
+		for (int i = 0; i < weights.length; i++) {
+			weights[i] = 0.1 + random.nextDouble();
+			total += weights[i];
+		}
+		for (int i = 0; i < weights.length; i++) {
+			Issue issue = issues.get(i);
+			boolean increasing = aims[i] * direction == 1;
+			utilitySpace.setWeight(issue, weights[i] / total);
+			if (issue instanceof IssueReal) {
+				IssueReal real = (IssueReal) issue;
+				double range = real.getUpperBound() - real.getLowerBound();
+				EvaluatorReal evaluator = new EvaluatorReal();
+				evaluator.setLowerBound(real.getLowerBound());
+				evaluator.setUpperBound(real.getUpperBound());
+				evaluator.setLinearParam((increasing ? 1 : -1) / range);
+				evaluator.setConstantParam(increasing ? -real.getLowerBound() / range : real.getUpperBound() / range);
+				utilitySpace.addEvaluator(issue, evaluator);
+			} else {
+				IssueInteger integer = (IssueInteger) issue;
+				EvaluatorInteger evaluator = new EvaluatorInteger();
+				evaluator.setLowerBound(integer.getLowerBound());
+				evaluator.setUpperBound(integer.getUpperBound());
+				evaluator.setLinearFunction(increasing ? 0 : 1, increasing ? 1 : 0);
+				utilitySpace.addEvaluator(issue, evaluator);
+			}
+		}
+		return utilitySpace;
+	}
+
+	/**
+	 * Create offers of the opponent, random bids of which the opponent utility does not drop below minimumUtility.
+	 *
+	 * @param count
+	 * @param minimumUtility
+	 * @return offers
+	 */
+	public Bid[] createOpponentOffers(int count, double minimumUtility) {
+		Bid[] offers = new Bid[count];
+		for (int i = 0; i < count; i++) {
+			Bid bid;
+			do {
+				bid = domain.getRandomBid(random);
+			} while (opponentUtilitySpace.getUtility(bid) < minimumUtility);
+			offers[i] = bid;
+		}
+		return offers;
+	}
+
+	public DomainImpl getDomain() {
+		return domain;
+	}
+
+	public AdditiveUtilitySpace getOwnUtilitySpace() {
+		return ownUtilitySpace;
+	}
+
+	public AdditiveUtilitySpace getOpponentUtilitySpace() {
+		return opponentUtilitySpace;
+	}
+}
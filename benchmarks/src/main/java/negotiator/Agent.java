@@ -0,0 +1,65 @@
+package negotiator;
+
+import java.util.Date;
+import java.util.HashMap;
+
+import negotiator.actions.Action;
+import negotiator.timeline.Timeline;
+import negotiator.utility.AbstractUtilitySpace;
+
+/**
+ * Stand-in for the Genius Agent, with the part of its API the MASters agents use.
+ */
+public abstract class Agent {
+	public AbstractUtilitySpace utilitySpace;
+	public Timeline timeline;
+	protected int sessionNr;
+	protected int sessionsTotal;
+	protected Date startTime;
+	protected Integer totalTime;
+	protected HashMap<AgentParameterVariable, AgentParamValue> parametervalues;
+	private AgentID agentID;
+
+	public final void internalInit(int sessionNumber, int sessionTotalNumber, Date startTimeP, Integer totalTimeP,
+			Timeline timeline, AbstractUtilitySpace us, HashMap<AgentParameterVariable, AgentParamValue> params,
+			AgentID agentID) {
+		this.sessionNr = sessionNumber;
+		this.sessionsTotal = sessionTotalNumber;
+		this.startTime = startTimeP;
+		this.totalTime = totalTimeP;
+		this.timeline = timeline;
+		this.utilitySpace = us;
+		this.parametervalues = params;
+		this.agentID = agentID;
+	}
+
+	public void init() {
+	}
+
+	public abstract void ReceiveMessage(Action opponentAction);
+
+	public abstract Action chooseAction();
+
+	public String getName() {
+		return getClass().getSimpleName();
+	}
+
+	public String getVersion() {
+		return "unknown";
+	}
+
+	public AgentID getAgentID() {
+		return agentID;
+	}
+
+	public void setAgentID(AgentID agentID) {
+		this.agentID = agentID;
+	}
+
+	public double getUtility(Bid bid) {
+		return utilitySpace.getUtility(bid);
+	}
+
+	public void endSession(NegotiationResult result) {
+	}
+}
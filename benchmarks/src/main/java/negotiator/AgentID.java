@@ -0,0 +1,31 @@
+package negotiator;
+
+/**
+ * Stand-in for the Genius AgentID.
+ */
+public class AgentID {
+	private final String id;
+
+	public AgentID(String id) {
+		this.id = id;
+	}
+
+	public String getName() {
+		return id;
+	}
+
+	@Override
+	public boolean equals(Object other) {
+		return other instanceof AgentID && id.equals(((AgentID) other).id);
+	}
+
+	@Override
+	public int hashCode() {
+		return id.hashCode();
+	}
+
+	@Override
+	public String toString() {
+		return id;
+	}
+}
@@ -0,0 +1,7 @@
+package negotiator;
+
+/**
+ * Stand-in for the Genius AgentParamValue, agent parameters are not used by the MASters agents.
+ */
+public class AgentParamValue {
+}
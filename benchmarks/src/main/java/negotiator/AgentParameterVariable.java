@@ -0,0 +1,7 @@
+package negotiator;
+
+/**
+ * Stand-in for the Genius AgentParameterVariable, agent parameters are not used by the MASters agents.
+ */
+public class AgentParameterVariable {
+}
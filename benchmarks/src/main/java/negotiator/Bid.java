@@ -0,0 +1,54 @@
+package negotiator;
+
+import java.util.HashMap;
+import java.util.List;
+
+import negotiator.issue.Issue;
+import negotiator.issue.Value;
+
+/**
+ * Stand-in for the Genius Bid: a value for every issue of a domain, keyed by issue number.
+ */
+public class Bid {
+	private final Domain domain;
+	private final HashMap<Integer, Value> values;
+
+	public Bid(Domain domain, HashMap<Integer, Value> values) {
+		this.domain = domain;
+		this.values = new HashMap<Integer, Value>(values);
+	}
+
+	/**
+	 * @return a copy of the values of the bid.
+	 */
+	public HashMap<Integer, Value> getValues() {
+		return new HashMap<Integer, Value>(values);
+	}
+
+	public Value getValue(int issueNumber) {
+		return values.get(issueNumber);
+	}
+
+	public List<Issue> getIssues() {
+		return domain.getIssues();
+	}
+
+	public Domain getDomain() {
+		return domain;
+	}
+
+	@Override
+	public boolean equals(Object other) {
+		return other instanceof Bid && values.equals(((Bid) other).values);
+	}
+
+	@Override
+	public int hashCode() {
+		return values.hashCode();
+	}
+
+	@Override
+	public String toString() {
+		return "Bid" + values;
+	}
+}
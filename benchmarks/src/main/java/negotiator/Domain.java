@@ -0,0 +1,17 @@
+package negotiator;
+
+import java.util.List;
+import java.util.Random;
+
+import negotiator.issue.Issue;
+
+/**
+ * Stand-in for the Genius Domain.
+ */
+public interface Domain {
+	String getName();
+
+	List<Issue> getIssues();
+
+	Bid getRandomBid(Random random);
+}
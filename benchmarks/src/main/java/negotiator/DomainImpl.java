@@ -0,0 +1,102 @@
+package negotiator;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+
+import org.w3c.dom.Element;
+
+import negotiator.issue.Issue;
+import negotiator.issue.IssueDiscrete;
+import negotiator.issue.IssueInteger;
+import negotiator.issue.IssueReal;
+import negotiator.issue.Value;
+import negotiator.issue.ValueInteger;
+import negotiator.issue.ValueReal;
+
+/**
+ * Stand-in for the Genius DomainImpl. The constructor with a list of issues does not exist in Genius,
+ * it is used to build synthetic domains in memory.
+ */
+public class DomainImpl implements Domain {
+	private final String name;
+	private final List<Issue> issues;
+
+	/**
+	 * Load a domain from a Genius domain file.
+	 *
+	 * @param fileName
+	 * @throws Exception
+	 */
+	public DomainImpl(String fileName) throws Exception {
+		Element root = XmlFile.read(fileName);
+		Element objective = XmlFile.getElement(root, "objective");
+		this.name = objective == null ? fileName : objective.getAttribute("name");
+		this.issues = new ArrayList<Issue>();
+		for (Element issue : XmlFile.getElements(root, "issue")) {
+			String issueName = issue.getAttribute("name");
+			int number = Integer.parseInt(issue.getAttribute("index"));
+			String type = issue.hasAttribute("etype") ? issue.getAttribute("etype") : issue.getAttribute("type");
+			if (type.equals("integer")) {
+				issues.add(new IssueInteger(issueName, number,
+						Integer.parseInt(XmlFile.getAttribute(issue, "range", "lowerbound")),
+						Integer.parseInt(XmlFile.getAttribute(issue, "range", "upperbound"))));
+			} else if (type.equals("real")) {
+				issues.add(new IssueReal(issueName, number,
+						Double.parseDouble(XmlFile.getAttribute(issue, "range", "lowerbound")),
+						Double.parseDouble(XmlFile.getAttribute(issue, "range", "upperbound"))));
+			} else if (type.equals("discrete")) {
+				List<Element> items = XmlFile.getElements(issue, "item");
+				String[] values = new String[items.size()];
+				for (int i = 0; i < values.length; i++) {
+					values[i] = items.get(i).getAttribute("value");
+				}
+				issues.add(new IssueDiscrete(issueName, number, values));
+			} else {
+				throw new Exception("issue type " + type + " not supported.");
+			}
+		}
+	}
+
+	public DomainImpl(String name, List<Issue> issues) {
+		this.name = name;
+		this.issues = new ArrayList<Issue>(issues);
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @return a new list of the issues, like Genius.
+	 */
+	public List<Issue> getIssues() {
+		return new ArrayList<Issue>(issues);
+	}
+
+	public Bid getRandomBid(Random random) {
+		HashMap<Integer, Value> values = new HashMap<Integer, Value>();
+		for (Issue issue : issues) {
+			switch (issue.getType()) {
+			case INTEGER:
+				IssueInteger integer = (IssueInteger) issue;
+				values.put(issue.getNumber(), new ValueInteger(integer.getLowerBound()
+						+ random.nextInt(integer.getUpperBound() - integer.getLowerBound() + 1)));
+				break;
+			case REAL:
+				IssueReal real = (IssueReal) issue;
+				values.put(issue.getNumber(), new ValueReal(real.getLowerBound()
+						+ random.nextDouble() * (real.getUpperBound() - real.getLowerBound())));
+				break;
+			case DISCRETE:
+				IssueDiscrete discrete = (IssueDiscrete) issue;
+				values.put(issue.getNumber(), discrete.getValue(random.nextInt(discrete.getNumberOfValues())));
+				break;
+			default:
+				throw new IllegalStateException("issue type " + issue.getType() + " not supported.");
+			}
+		}
+		return new Bid(this, values);
+	}
+}
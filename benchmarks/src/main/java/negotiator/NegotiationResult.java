@@ -0,0 +1,30 @@
+package negotiator;
+
+import negotiator.actions.Action;
+
+/**
+ * Stand-in for the Genius NegotiationResult, passed to Agent.endSession.
+ */
+public class NegotiationResult {
+	private final double myDiscountedUtility;
+	private final Action lastAction;
+	private final Bid lastBid;
+
+	public NegotiationResult(double myDiscountedUtility, Action lastAction, Bid lastBid) {
+		this.myDiscountedUtility = myDiscountedUtility;
+		this.lastAction = lastAction;
+		this.lastBid = lastBid;
+	}
+
+	public double getMyDiscountedUtility() {
+		return myDiscountedUtility;
+	}
+
+	public Action getLastAction() {
+		return lastAction;
+	}
+
+	public Bid getLastBid() {
+		return lastBid;
+	}
+}
@@ -0,0 +1,64 @@
+package negotiator;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+/**
+ * Reads the Genius XML files of domains and profiles for the stand-in. Not part of Genius.
+ */
+public final class XmlFile {
+	private XmlFile() {
+	}
+
+	public static Element read(String fileName) throws Exception {
+		return DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(new File(fileName)).getDocumentElement();
+	}
+
+	/**
+	 * @param parent
+	 * @param tag
+	 * @return all descendants of parent with the tag, in document order.
+	 */
+	public static List<Element> getElements(Element parent, String tag) {
+		NodeList nodes = parent.getElementsByTagName(tag);
+		List<Element> elements = new ArrayList<Element>();
+		for (int i = 0; i < nodes.getLength(); i++) {
+			elements.add((Element) nodes.item(i));
+		}
+		return elements;
+	}
+
+	/**
+	 * @param parent
+	 * @param tag
+	 * @return the first descendant of parent with the tag, or null.
+	 */
+	public static Element getElement(Element parent, String tag) {
+		NodeList nodes = parent.getElementsByTagName(tag);
+		return nodes.getLength() == 0 ? null : (Element) nodes.item(0);
+	}
+
+	/**
+	 * Get an attribute of the element, or of its first descendant with the tag when the element does not have it.
+	 * Genius writes the bounds of real issues in a range element and those of integer issues on the issue.
+	 *
+	 * @param element
+	 * @param tag
+	 * @param attribute
+	 * @return value
+	 */
+	public static String getAttribute(Element element, String tag, String attribute) {
+		if (element.hasAttribute(attribute))
+			return element.getAttribute(attribute);
+		Element child = getElement(element, tag);
+		if (child == null || !child.hasAttribute(attribute))
+			throw new IllegalArgumentException("missing attribute " + attribute + " of " + element.getAttribute("name"));
+		return child.getAttribute(attribute);
+	}
+}
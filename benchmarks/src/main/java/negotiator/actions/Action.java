@@ -0,0 +1,18 @@
+package negotiator.actions;
+
+import negotiator.AgentID;
+
+/**
+ * Stand-in for the Genius Action.
+ */
+public abstract class Action {
+	private final AgentID agent;
+
+	protected Action(AgentID agent) {
+		this.agent = agent;
+	}
+
+	public AgentID getAgent() {
+		return agent;
+	}
+}
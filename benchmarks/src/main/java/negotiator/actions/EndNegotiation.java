@@ -0,0 +1,17 @@
+package negotiator.actions;
+
+import negotiator.AgentID;
+
+/**
+ * Stand-in for the Genius EndNegotiation.
+ */
+public class EndNegotiation extends Action {
+	public EndNegotiation(AgentID agent) {
+		super(agent);
+	}
+
+	@Override
+	public String toString() {
+		return "EndNegotiation";
+	}
+}
@@ -0,0 +1,25 @@
+package negotiator.actions;
+
+import negotiator.AgentID;
+import negotiator.Bid;
+
+/**
+ * Stand-in for the Genius Offer.
+ */
+public class Offer extends Action {
+	private final Bid bid;
+
+	public Offer(AgentID agent, Bid bid) {
+		super(agent);
+		this.bid = bid;
+	}
+
+	public Bid getBid() {
+		return bid;
+	}
+
+	@Override
+	public String toString() {
+		return "Offer " + bid;
+	}
+}
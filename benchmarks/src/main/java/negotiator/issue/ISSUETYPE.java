@@ -0,0 +1,8 @@
+package negotiator.issue;
+
+/**
+ * Stand-in for the Genius ISSUETYPE.
+ */
+public enum ISSUETYPE {
+	UNKNOWN, DISCRETE, INTEGER, REAL, OBJECTIVE
+}
@@ -0,0 +1,12 @@
+package negotiator.issue;
+
+/**
+ * Stand-in for the Genius Issue.
+ */
+public abstract class Issue extends Objective {
+	public Issue(String name, int number) {
+		super(name, number);
+	}
+
+	public abstract ISSUETYPE getType();
+}
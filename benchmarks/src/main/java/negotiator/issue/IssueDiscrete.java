@@ -0,0 +1,42 @@
+package negotiator.issue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Stand-in for the Genius IssueDiscrete.
+ */
+public class IssueDiscrete extends Issue {
+	private final List<ValueDiscrete> values;
+
+	public IssueDiscrete(String name, int issueNumber, String[] values) {
+		super(name, issueNumber);
+		List<ValueDiscrete> list = new ArrayList<ValueDiscrete>();
+		for (String value : values) {
+			list.add(new ValueDiscrete(value));
+		}
+		this.values = Collections.unmodifiableList(list);
+	}
+
+	public List<ValueDiscrete> getValues() {
+		return values;
+	}
+
+	public int getNumberOfValues() {
+		return values.size();
+	}
+
+	public ValueDiscrete getValue(int index) {
+		return values.get(index);
+	}
+
+	public int getValueIndex(ValueDiscrete value) {
+		return values.indexOf(value);
+	}
+
+	@Override
+	public ISSUETYPE getType() {
+		return ISSUETYPE.DISCRETE;
+	}
+}
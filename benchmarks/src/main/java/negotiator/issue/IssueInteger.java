@@ -0,0 +1,28 @@
+package negotiator.issue;
+
+/**
+ * Stand-in for the Genius IssueInteger.
+ */
+public class IssueInteger extends Issue {
+	private final int lowerBound;
+	private final int upperBound;
+
+	public IssueInteger(String name, int issueNumber, int min, int max) {
+		super(name, issueNumber);
+		this.lowerBound = min;
+		this.upperBound = max;
+	}
+
+	public int getLowerBound() {
+		return lowerBound;
+	}
+
+	public int getUpperBound() {
+		return upperBound;
+	}
+
+	@Override
+	public ISSUETYPE getType() {
+		return ISSUETYPE.INTEGER;
+	}
+}
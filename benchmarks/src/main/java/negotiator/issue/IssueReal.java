@@ -0,0 +1,28 @@
+package negotiator.issue;
+
+/**
+ * Stand-in for the Genius IssueReal.
+ */
+public class IssueReal extends Issue {
+	private final double lowerBound;
+	private final double upperBound;
+
+	public IssueReal(String name, int issueNumber, double lower, double upper) {
+		super(name, issueNumber);
+		this.lowerBound = lower;
+		this.upperBound = upper;
+	}
+
+	public double getLowerBound() {
+		return lowerBound;
+	}
+
+	public double getUpperBound() {
+		return upperBound;
+	}
+
+	@Override
+	public ISSUETYPE getType() {
+		return ISSUETYPE.REAL;
+	}
+}
@@ -0,0 +1,27 @@
+package negotiator.issue;
+
+/**
+ * Stand-in for the Genius Objective.
+ */
+public class Objective {
+	private final String name;
+	private final int number;
+
+	public Objective(String name, int number) {
+		this.name = name;
+		this.number = number;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public int getNumber() {
+		return number;
+	}
+
+	@Override
+	public String toString() {
+		return name;
+	}
+}
@@ -0,0 +1,8 @@
+package negotiator.issue;
+
+/**
+ * Stand-in for the Genius Value.
+ */
+public abstract class Value {
+	public abstract ISSUETYPE getType();
+}
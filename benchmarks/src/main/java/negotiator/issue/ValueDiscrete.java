@@ -0,0 +1,36 @@
+package negotiator.issue;
+
+/**
+ * Stand-in for the Genius ValueDiscrete.
+ */
+public class ValueDiscrete extends Value {
+	private final String value;
+
+	public ValueDiscrete(String value) {
+		this.value = value;
+	}
+
+	public String getValue() {
+		return value;
+	}
+
+	@Override
+	public ISSUETYPE getType() {
+		return ISSUETYPE.DISCRETE;
+	}
+
+	@Override
+	public boolean equals(Object other) {
+		return other instanceof ValueDiscrete && value.equals(((ValueDiscrete) other).value);
+	}
+
+	@Override
+	public int hashCode() {
+		return value.hashCode();
+	}
+
+	@Override
+	public String toString() {
+		return value;
+	}
+}
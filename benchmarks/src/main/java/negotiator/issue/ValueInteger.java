@@ -0,0 +1,36 @@
+package negotiator.issue;
+
+/**
+ * Stand-in for the Genius ValueInteger.
+ */
+public class ValueInteger extends Value {
+	private final int value;
+
+	public ValueInteger(int value) {
+		this.value = value;
+	}
+
+	public int getValue() {
+		return value;
+	}
+
+	@Override
+	public ISSUETYPE getType() {
+		return ISSUETYPE.INTEGER;
+	}
+
+	@Override
+	public boolean equals(Object other) {
+		return other instanceof ValueInteger && value == ((ValueInteger) other).value;
+	}
+
+	@Override
+	public int hashCode() {
+		return value;
+	}
+
+	@Override
+	public String toString() {
+		return Integer.toString(value);
+	}
+}
@@ -0,0 +1,36 @@
+package negotiator.issue;
+
+/**
+ * Stand-in for the Genius ValueReal.
+ */
+public class ValueReal extends Value {
+	private final double value;
+
+	public ValueReal(double value) {
+		this.value = value;
+	}
+
+	public double getValue() {
+		return value;
+	}
+
+	@Override
+	public ISSUETYPE getType() {
+		return ISSUETYPE.REAL;
+	}
+
+	@Override
+	public boolean equals(Object other) {
+		return other instanceof ValueReal && Double.compare(value, ((ValueReal) other).value) == 0;
+	}
+
+	@Override
+	public int hashCode() {
+		return Double.hashCode(value);
+	}
+
+	@Override
+	public String toString() {
+		return Double.toString(value);
+	}
+}
@@ -0,0 +1,47 @@
+package negotiator.timeline;
+
+/**
+ * Stand-in for the Genius DiscreteTimeline: time advances one round at a time.
+ */
+public class DiscreteTimeline extends Timeline {
+	private final int totalRounds;
+	private int currentRound = 1;
+
+	public DiscreteTimeline(int totalRounds) {
+		this.totalRounds = totalRounds;
+	}
+
+	@Override
+	public double getTime() {
+		return (double) currentRound / (totalRounds + 1);
+	}
+
+	public void increment() {
+		currentRound++;
+	}
+
+	@Override
+	public boolean isDeadlineReached() {
+		return currentRound > totalRounds;
+	}
+
+	public int getRound() {
+		return currentRound;
+	}
+
+	public int getRoundsLeft() {
+		return totalRounds - currentRound;
+	}
+
+	public int getOwnRoundsLeft() {
+		return totalRounds - currentRound;
+	}
+
+	public int getTotalRounds() {
+		return totalRounds;
+	}
+
+	public double getTotalTime() {
+		return totalRounds;
+	}
+}
@@ -0,0 +1,15 @@
+package negotiator.timeline;
+
+/**
+ * Stand-in for the Genius Timeline.
+ */
+public abstract class Timeline {
+	/**
+	 * @return the normalized time of the session, between 0 and 1.
+	 */
+	public abstract double getTime();
+
+	public boolean isDeadlineReached() {
+		return getTime() >= 1;
+	}
+}
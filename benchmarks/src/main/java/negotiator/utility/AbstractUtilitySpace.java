@@ -0,0 +1,25 @@
+package negotiator.utility;
+
+import negotiator.Bid;
+import negotiator.Domain;
+
+/**
+ * Stand-in for the Genius AbstractUtilitySpace.
+ */
+public abstract class AbstractUtilitySpace {
+	protected Domain domain;
+
+	protected AbstractUtilitySpace(Domain domain) {
+		this.domain = domain;
+	}
+
+	public Domain getDomain() {
+		return domain;
+	}
+
+	public abstract double getUtility(Bid bid);
+
+	public abstract Bid getMaxUtilityBid() throws Exception;
+
+	public abstract Bid getMinUtilityBid() throws Exception;
+}
@@ -0,0 +1,166 @@
+package negotiator.utility;
+
+import java.util.HashMap;
+
+import org.w3c.dom.Element;
+
+import negotiator.Bid;
+import negotiator.Domain;
+import negotiator.XmlFile;
+import negotiator.issue.Issue;
+import negotiator.issue.IssueDiscrete;
+import negotiator.issue.IssueInteger;
+import negotiator.issue.IssueReal;
+import negotiator.issue.Objective;
+import negotiator.issue.Value;
+import negotiator.issue.ValueDiscrete;
+import negotiator.issue.ValueInteger;
+import negotiator.issue.ValueReal;
+
+/**
+ * Stand-in for the Genius AdditiveUtilitySpace: the utility is the weighted sum of the evaluations
+ * of the issues. As the issues are independent, the best and worst bid take the best and worst
+ * value of every issue.
+ */
+public class AdditiveUtilitySpace extends AbstractUtilitySpace {
+	private final HashMap<Integer, Double> weights = new HashMap<Integer, Double>();
+	private final HashMap<Integer, Evaluator> evaluators = new HashMap<Integer, Evaluator>();
+
+	public AdditiveUtilitySpace(Domain domain) {
+		super(domain);
+	}
+
+	/**
+	 * Load a linear additive profile from a Genius profile file.
+	 *
+	 * @param domain
+	 * @param fileName
+	 * @throws Exception
+	 */
+	public AdditiveUtilitySpace(Domain domain, String fileName) throws Exception {
+		super(domain);
+		Element root = XmlFile.read(fileName);
+		for (Element weight : XmlFile.getElements(root, "weight")) {
+			weights.put(Integer.parseInt(weight.getAttribute("index")), Double.parseDouble(weight.getAttribute("value")));
+		}
+		for (Element element : XmlFile.getElements(root, "issue")) {
+			int number = Integer.parseInt(element.getAttribute("index"));
+			Issue issue = null;
+			for (Issue i : domain.getIssues()) {
+				if (i.getNumber() == number)
+					issue = i;
+			}
+			if (issue == null)
+				throw new Exception("issue " + number + " is not in domain " + domain.getName() + ".");
+			Element evaluator = XmlFile.getElement(element, "evaluator");
+			switch (issue.getType()) {
+			case INTEGER: {
+				IssueInteger integer = (IssueInteger) issue;
+				EvaluatorInteger e = new EvaluatorInteger();
+				e.setLowerBound(integer.getLowerBound());
+				e.setUpperBound(integer.getUpperBound());
+				e.setLinearFunction(Double.parseDouble(evaluator.getAttribute("lowervalue")),
+						Double.parseDouble(evaluator.getAttribute("uppervalue")));
+				evaluators.put(number, e);
+				break;
+			}
+			case REAL: {
+				IssueReal real = (IssueReal) issue;
+				EvaluatorReal e = new EvaluatorReal();
+				e.setLowerBound(real.getLowerBound());
+				e.setUpperBound(real.getUpperBound());
+				e.setConstantParam(Double.parseDouble(evaluator.getAttribute("parameter0")));
+				e.setLinearParam(Double.parseDouble(evaluator.getAttribute("parameter1")));
+				evaluators.put(number, e);
+				break;
+			}
+			case DISCRETE: {
+				EvaluatorDiscrete e = new EvaluatorDiscrete();
+				for (Element item : XmlFile.getElements(element, "item")) {
+					e.setEvaluationDouble(new ValueDiscrete(item.getAttribute("value")),
+							Double.parseDouble(item.getAttribute("evaluation")));
+				}
+				evaluators.put(number, e);
+				break;
+			}
+			default:
+				throw new Exception("issue type " + issue.getType() + " not supported.");
+			}
+		}
+	}
+
+	public void addEvaluator(Objective objective, Evaluator evaluator) {
+		evaluators.put(objective.getNumber(), evaluator);
+	}
+
+	public void setWeight(Objective objective, double weight) {
+		weights.put(objective.getNumber(), weight);
+	}
+
+	public double getWeight(int issueNumber) {
+		return weights.get(issueNumber);
+	}
+
+	public Evaluator getEvaluator(int issueNumber) {
+		return evaluators.get(issueNumber);
+	}
+
+	@Override
+	public double getUtility(Bid bid) {
+		double utility = 0;
+		for (Issue issue : domain.getIssues()) {
+			int number = issue.getNumber();
+			utility += weights.get(number) * evaluators.get(number).getEvaluation(this, bid, number);
+		}
+		return utility;
+	}
+
+	@Override
+	public Bid getMaxUtilityBid() throws Exception {
+		return getExtremeBid(true);
+	}
+
+	@Override
+	public Bid getMinUtilityBid() throws Exception {
+		return getExtremeBid(false);
+	}
+
+	private Bid getExtremeBid(boolean maximum) throws Exception {
+		HashMap<Integer, Value> values = new HashMap<Integer, Value>();
+		for (Issue issue : domain.getIssues()) {
+			Evaluator evaluator = evaluators.get(issue.getNumber());
+			Value value;
+			switch (issue.getType()) {
+			case INTEGER: {
+				IssueInteger integer = (IssueInteger) issue;
+				EvaluatorInteger e = (EvaluatorInteger) evaluator;
+				boolean increasing = e.getUtilHighestValue() >= e.getUtilLowestValue();
+				value = new ValueInteger(increasing == maximum ? integer.getUpperBound() : integer.getLowerBound());
+				break;
+			}
+			case REAL: {
+				IssueReal real = (IssueReal) issue;
+				EvaluatorReal e = (EvaluatorReal) evaluator;
+				boolean increasing = e.getLinearParam() >= 0;
+				value = new ValueReal(increasing == maximum ? real.getUpperBound() : real.getLowerBound());
+				break;
+			}
+			case DISCRETE: {
+				EvaluatorDiscrete e = (EvaluatorDiscrete) evaluator;
+				ValueDiscrete best = null;
+				for (ValueDiscrete v : ((IssueDiscrete) issue).getValues()) {
+					if (best == null || (maximum ? e.getEvaluation(v) > e.getEvaluation(best)
+							: e.getEvaluation(v) < e.getEvaluation(best)))
+						best = v;
+				}
+				value = best;
+				break;
+			}
+			default:
+				throw new Exception("issue type " + issue.getType() + " not supported.");
+			}
+			values.put(issue.getNumber(), value);
+		}
+		return new Bid(domain, values);
+	}
+}
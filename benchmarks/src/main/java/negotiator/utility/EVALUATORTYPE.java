@@ -0,0 +1,8 @@
+package negotiator.utility;
+
+/**
+ * Stand-in for the Genius EVALUATORTYPE.
+ */
+public enum EVALUATORTYPE {
+	DISCRETE, INTEGER, REAL, OBJECTIVE
+}
@@ -0,0 +1,12 @@
+package negotiator.utility;
+
+import negotiator.Bid;
+
+/**
+ * Stand-in for the Genius Evaluator: the evaluation of the value of one issue, between 0 and 1.
+ */
+public interface Evaluator {
+	EVALUATORTYPE getType();
+
+	Double getEvaluation(AdditiveUtilitySpace utilitySpace, Bid bid, int issueNumber);
+}
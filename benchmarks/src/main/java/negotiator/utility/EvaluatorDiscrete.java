@@ -0,0 +1,47 @@
+package negotiator.utility;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import negotiator.Bid;
+import negotiator.issue.ValueDiscrete;
+
+/**
+ * Stand-in for the Genius EvaluatorDiscrete: evaluations are normalized by the highest evaluation.
+ */
+public class EvaluatorDiscrete implements Evaluator {
+	private final Map<ValueDiscrete, Double> evaluations = new LinkedHashMap<ValueDiscrete, Double>();
+	private double maximum;
+
+	public EVALUATORTYPE getType() {
+		return EVALUATORTYPE.DISCRETE;
+	}
+
+	public void setEvaluationDouble(ValueDiscrete value, double evaluation) {
+		evaluations.put(value, evaluation);
+		maximum = 0;
+		for (double e : evaluations.values()) {
+			maximum = Math.max(maximum, e);
+		}
+	}
+
+	public Set<ValueDiscrete> getValues() {
+		return evaluations.keySet();
+	}
+
+	public Double getEvaluationNotNormalized(ValueDiscrete value) {
+		return evaluations.get(value);
+	}
+
+	public Double getEvaluation(ValueDiscrete value) {
+		Double evaluation = evaluations.get(value);
+		if (evaluation == null || maximum == 0)
+			return 0.0;
+		return evaluation / maximum;
+	}
+
+	public Double getEvaluation(AdditiveUtilitySpace utilitySpace, Bid bid, int issueNumber) {
+		return getEvaluation((ValueDiscrete) bid.getValue(issueNumber));
+	}
+}
@@ -0,0 +1,58 @@
+package negotiator.utility;
+
+import negotiator.Bid;
+import negotiator.issue.ValueInteger;
+
+/**
+ * Stand-in for the Genius EvaluatorInteger: linear from the evaluation of the lowest
+ * to the evaluation of the highest value.
+ */
+public class EvaluatorInteger implements Evaluator {
+	private int lowerBound;
+	private int upperBound;
+	private double utilLowestValue;
+	private double utilHighestValue;
+
+	public EVALUATORTYPE getType() {
+		return EVALUATORTYPE.INTEGER;
+	}
+
+	public void setLowerBound(int lowerBound) {
+		this.lowerBound = lowerBound;
+	}
+
+	public void setUpperBound(int upperBound) {
+		this.upperBound = upperBound;
+	}
+
+	public void setLinearFunction(double utilLowestValue, double utilHighestValue) {
+		this.utilLowestValue = utilLowestValue;
+		this.utilHighestValue = utilHighestValue;
+	}
+
+	public int getLowerBound() {
+		return lowerBound;
+	}
+
+	public int getUpperBound() {
+		return upperBound;
+	}
+
+	public double getUtilLowestValue() {
+		return utilLowestValue;
+	}
+
+	public double getUtilHighestValue() {
+		return utilHighestValue;
+	}
+
+	public double getEvaluation(int value) {
+		if (upperBound == lowerBound)
+			return utilLowestValue;
+		return utilLowestValue + (utilHighestValue - utilLowestValue) * (value - lowerBound) / (double) (upperBound - lowerBound);
+	}
+
+	public Double getEvaluation(AdditiveUtilitySpace utilitySpace, Bid bid, int issueNumber) {
+		return getEvaluation(((ValueInteger) bid.getValue(issueNumber)).getValue());
+	}
+}
@@ -0,0 +1,58 @@
+package negotiator.utility;
+
+import negotiator.Bid;
+import negotiator.issue.ValueReal;
+
+/**
+ * Stand-in for the Genius EvaluatorReal with a linear evaluation function linearParam * x + constantParam.
+ */
+public class EvaluatorReal implements Evaluator {
+	private double lowerBound;
+	private double upperBound;
+	private double linearParam;
+	private double constantParam;
+
+	public EVALUATORTYPE getType() {
+		return EVALUATORTYPE.REAL;
+	}
+
+	public void setLowerBound(double lowerBound) {
+		this.lowerBound = lowerBound;
+	}
+
+	public void setUpperBound(double upperBound) {
+		this.upperBound = upperBound;
+	}
+
+	public void setLinearParam(double linearParam) {
+		this.linearParam = linearParam;
+	}
+
+	public void setConstantParam(double constantParam) {
+		this.constantParam = constantParam;
+	}
+
+	public double getLowerBound() {
+		return lowerBound;
+	}
+
+	public double getUpperBound() {
+		return upperBound;
+	}
+
+	public double getLinearParam() {
+		return linearParam;
+	}
+
+	public double getConstantParam() {
+		return constantParam;
+	}
+
+	public double getEvaluation(double value) {
+		return linearParam * value + constantParam;
+	}
+
+	public Double getEvaluation(AdditiveUtilitySpace utilitySpace, Bid bid, int issueNumber) {
+		return getEvaluation(((ValueReal) bid.getValue(issueNumber)).getValue());
+	}
+}
@@ -0,0 +1,50 @@
+package masters.agents.bayesian;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.ForkJoinPool;
+
+import negotiator.Bid;
+import masters.benchmarks.Agents;
+import masters.benchmarks.CyclicTimeline;
+import masters.benchmarks.SyntheticDomain;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * The chunked belief update on a pool of threads.
+ *
+ * @author MASters
+ */
+public class BayesianPredictorTest {
+
+	@Test
+	public void parallelUpdateMatchesSequentialAndKeepsABlockPerThread() throws Exception {
+		// 8! hypotheses, three chunks.
+		SyntheticDomain domain = new SyntheticDomain(8, 10, false, 7);
+		AbstractAgent agent = (AbstractAgent) Agents.start(BayesianAgent.class.getName(), domain.getOwnUtilitySpace(), new CyclicTimeline(100), "0");
+		BayesianPredictor sequential = new BayesianPredictor(agent.issues, agent.agentEvaluationAim);
+		BayesianPredictor parallel = new BayesianPredictor(agent.issues, agent.agentEvaluationAim);
+		ForkJoinPool pool = new ForkJoinPool(2);
+		try {
+			parallel.setParallelism(pool, 0);
+			for (Bid offer : domain.createOpponentOffers(10, 0.6)) {
+				sequential.updateModel(offer);
+				parallel.updateModel(offer);
+			}
+		} finally {
+			pool.shutdown();
+		}
+
+		for (int h = 0; h < sequential.getHypothesisCount(); h++) {
+			assertEquals(sequential.getBeliefStore().get(h), parallel.getBeliefStore().get(h), 0.0);
+		}
+		assertEquals(1, sequential.freeBlockCount);
+		// The workers of the pool and the calling thread.
+		assertTrue(parallel.freeBlockCount <= pool.getParallelism() + 1, parallel.freeBlockCount + " blocks");
+
+		parallel.close();
+		assertEquals(0, parallel.freeBlockCount);
+	}
+}
@@ -0,0 +1,76 @@
+package masters.agents.bayesian;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import negotiator.Bid;
+import masters.benchmarks.Agents;
+import masters.benchmarks.CyclicTimeline;
+import masters.benchmarks.SyntheticDomain;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * The bid index against the proposition of Zhang: for the same predicted weights and target, the
+ * indexed counter-offer reaches the target and is never worse for the opponent.
+ *
+ * @author MASters
+ */
+public class BidIndexTest {
+
+	private static AbstractAgent start(SyntheticDomain domain) throws Exception {
+		return (AbstractAgent) Agents.start(BayesianAgent.class.getName(), domain.getOwnUtilitySpace(), new CyclicTimeline(100), "0");
+	}
+
+	@Test
+	public void spacesLargerThanTheIndexAreNotIndexed() throws Exception {
+		// 11^8 bids, more than the default maximum.
+		AbstractAgent agent = start(new SyntheticDomain(8, 10, false, 1));
+		assertNull(BidIndex.create(agent.utilitySpace.getDomain(), agent.evaluator, BidIndex.DEFAULT_MAXIMUM_BIDS));
+	}
+
+	@Test
+	public void indexIsOffByDefault() throws Exception {
+		AbstractAgent agent = start(new SyntheticDomain(3, 10, false, 1));
+		assertNull(agent.counterOfferGenerator.getBidIndex());
+	}
+
+	@Test
+	public void indexedOffersAreNotWorseThanTheClosedForm() throws Exception {
+		SyntheticDomain domain = new SyntheticDomain(4, 10, false, 2);
+		AbstractAgent agent = start(domain);
+		UtilityEvaluator evaluator = agent.evaluator;
+		BidIndex index = BidIndex.create(domain.getDomain(), evaluator, BidIndex.DEFAULT_MAXIMUM_BIDS);
+		assertNotNull(index);
+		assertEquals(14641, index.size());
+
+		CounterOfferGenerator zhang = new CounterOfferGenerator(domain.getDomain(), evaluator);
+		CounterOfferGenerator indexed = new CounterOfferGenerator(domain.getDomain(), evaluator);
+		indexed.setBidIndex(index);
+
+		Random random = new Random(3);
+		Bid[] offers = domain.createOpponentOffers(50, 0.5);
+		double[] weights = new double[evaluator.size()];
+		int[] order = new int[evaluator.size()];
+		double[] ratios = new double[evaluator.size()];
+		for (Bid offer : offers) {
+			for (int i = 0; i < weights.length; i++) {
+				weights[i] = 0.05 + random.nextDouble();
+				ratios[i] = evaluator.getWeight(i) / weights[i];
+			}
+			CounterOfferGenerator.orderByWeightRatio(ratios, order);
+			double target = evaluator.getUtility(offer) + random.nextDouble() * (1 - evaluator.getUtility(offer));
+
+			Bid closedForm = zhang.getBid(offer, weights, order, target);
+			Bid fromIndex = indexed.getBid(offer, weights, order, target);
+			assertTrue(evaluator.getUtility(fromIndex) >= target - 1e-9);
+			if (evaluator.getUtility(closedForm) >= target - 1e-9)
+				assertTrue(evaluator.getOpponentUtility(weights, fromIndex) >= evaluator.getOpponentUtility(weights, closedForm) - 1e-9,
+						"indexed offer is worse for the opponent than the closed form");
+		}
+	}
+}
@@ -0,0 +1,93 @@
+package masters.agents.bayesian;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import negotiator.Bid;
+import masters.benchmarks.Agents;
+import masters.benchmarks.CyclicTimeline;
+import masters.benchmarks.SyntheticDomain;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Saving the model of an opponent and continuing from it.
+ *
+ * @author MASters
+ */
+public class OpponentModelTest {
+	@TempDir
+	File directory;
+
+	private static AbstractAgent start(SyntheticDomain domain) throws Exception {
+		return (AbstractAgent) Agents.start(BayesianAgent.class.getName(), domain.getOwnUtilitySpace(), new CyclicTimeline(100), "0");
+	}
+
+	private static BayesianPredictor createPredictor(AbstractAgent agent) throws Exception {
+		return new BayesianPredictor(agent.issues, agent.agentEvaluationAim);
+	}
+
+	@Test
+	public void restoredPredictorMatchesTheSavedOne() throws Exception {
+		SyntheticDomain domain = new SyntheticDomain(5, 10, false, 4);
+		AbstractAgent agent = start(domain);
+		BayesianPredictor saved = createPredictor(agent);
+		for (Bid offer : domain.createOpponentOffers(20, 0.6)) {
+			saved.updateModel(offer);
+		}
+
+		OpponentModelStore store = OpponentModelStore.open(new File(directory, "models"), 1 << 20);
+		assertTrue(store.save("model", saved.getModelSize(), saved::writeModel));
+		BayesianPredictor restored = createPredictor(agent);
+		restored.readModel(store.load("model"));
+
+		assertEquals(saved.getAliveHypotheses(), restored.getAliveHypotheses());
+		assertEquals(saved.getPreferenceRanking(), restored.getPreferenceRanking());
+		assertEquals(saved.getPreferenceWeights(), restored.getPreferenceWeights());
+		for (int h = 0; h < saved.getHypothesisCount(); h++) {
+			assertEquals(saved.getBeliefStore().get(h), restored.getBeliefStore().get(h), 0.0);
+		}
+	}
+
+	@Test
+	public void aliveHypothesesAreCountedFromTheRestoredBeliefs() throws Exception {
+		AbstractAgent agent = start(new SyntheticDomain(4, 10, false, 5));
+		BayesianPredictor saved = createPredictor(agent);
+		ByteBuffer model = ByteBuffer.allocate((int) saved.getModelSize()).order(ByteOrder.nativeOrder());
+		saved.writeModel(model);
+		int beliefs = (int) saved.getModelSize() - 8 * saved.getHypothesisCount();
+		for (int h = 0; h < 3; h++) {
+			model.putDouble(beliefs + 8 * h, Double.NEGATIVE_INFINITY);
+		}
+		model.flip();
+
+		BayesianPredictor restored = createPredictor(agent);
+		restored.readModel(model);
+		assertEquals(saved.getHypothesisCount() - 3, restored.getAliveHypotheses());
+	}
+
+	@Test
+	public void modelsLargerThanTheStoreAreNotSaved() throws Exception {
+		AbstractAgent agent = start(new SyntheticDomain(7, 10, false, 6));
+		BayesianPredictor predictor = createPredictor(agent);
+		OpponentModelStore store = OpponentModelStore.open(new File(directory, "small"), 4096);
+		assertFalse(store.save("model", predictor.getModelSize(), buffer -> {
+			throw new AssertionError("a model that does not fit is written");
+		}));
+		assertEquals(0, store.size());
+	}
+
+	@Test
+	public void opponentNameLeavesOutTheRole() {
+		assertEquals("masters.agents.bayesian.BayesianAgent", AbstractAgent.getOpponentName("0:masters.agents.bayesian.BayesianAgent"));
+		assertEquals("masters.agents.bayesian.BayesianAgent", AbstractAgent.getOpponentName("1:masters.agents.bayesian.BayesianAgent"));
+		assertEquals("Agent A", AbstractAgent.getOpponentName("Agent A"));
+		assertEquals("a:b", AbstractAgent.getOpponentName("a:b"));
+	}
+}
@@ -0,0 +1,103 @@
+package masters.agents.bayesian;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+
+import negotiator.Bid;
+import negotiator.issue.Issue;
+import negotiator.issue.IssueInteger;
+import negotiator.issue.Value;
+import negotiator.issue.ValueInteger;
+import negotiator.utility.AdditiveUtilitySpace;
+import masters.benchmarks.Agents;
+import masters.benchmarks.CyclicTimeline;
+import masters.benchmarks.SyntheticDomain;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * The particle filter against an opponent that offers consistently.
+ *
+ * @author MASters
+ */
+public class ParticleFilterPredictorTest {
+
+	private static AbstractAgent start(SyntheticDomain domain) throws Exception {
+		return (AbstractAgent) Agents.start(BayesianAgent.class.getName(), domain.getOwnUtilitySpace(), new CyclicTimeline(100), "0");
+	}
+
+	/**
+	 * @return the issues, least important for the opponent first.
+	 */
+	private static List<Issue> getOpponentRanking(SyntheticDomain domain, List<Issue> issues) {
+		final AdditiveUtilitySpace opponent = domain.getOpponentUtilitySpace();
+		List<Issue> ranking = new ArrayList<Issue>(issues);
+		Collections.sort(ranking, new Comparator<Issue>() {
+			public int compare(Issue a, Issue b) {
+				return Double.compare(opponent.getWeight(a.getNumber()), opponent.getWeight(b.getNumber()));
+			}
+		});
+		return ranking;
+	}
+
+	/**
+	 * Offers of an opponent that concedes less on the issues that matter more to it: the normalized value
+	 * of the issue at place r of its ranking is drawn from [(r + 1) / (n + 1), 1].
+	 */
+	private static Bid[] createConsistentOffers(AbstractAgent agent, List<Issue> opponentRanking, int count, Random random) {
+		int n = opponentRanking.size();
+		Bid[] offers = new Bid[count];
+		for (int k = 0; k < count; k++) {
+			HashMap<Integer, Value> values = new HashMap<Integer, Value>();
+			for (int r = 0; r < n; r++) {
+				IssueInteger issue = (IssueInteger) opponentRanking.get(r);
+				double lowest = (r + 1) / (double) (n + 1);
+				double value = lowest + (1 - lowest) * random.nextDouble();
+				int range = issue.getUpperBound() - issue.getLowerBound();
+				// The opponent aims the other way than the agent.
+				int offset = (int) Math.round(range * (agent.agentEvaluationAim.get(issue) == 1 ? 1 - value : value));
+				values.put(issue.getNumber(), new ValueInteger(issue.getLowerBound() + offset));
+			}
+			offers[k] = new Bid(agent.utilitySpace.getDomain(), values);
+		}
+		return offers;
+	}
+
+	@Test
+	public void recoversTheRankingOfAConsistentOpponent() throws Exception {
+		SyntheticDomain domain = new SyntheticDomain(6, 10, false, 11);
+		AbstractAgent agent = start(domain);
+		List<Issue> opponentRanking = getOpponentRanking(domain, agent.issues);
+		ParticleFilterPredictor filter = new ParticleFilterPredictor(agent.issues, agent.agentEvaluationAim, 1000,
+				ParticleFilterPredictor.DEFAULT_MUTATION_RATE, new Random(3));
+		BayesianPredictor exact = new BayesianPredictor(agent.issues, agent.agentEvaluationAim);
+		for (Bid offer : createConsistentOffers(agent, opponentRanking, 60, new Random(5))) {
+			filter.updateModel(offer);
+			exact.updateModel(offer);
+		}
+
+		assertEquals(opponentRanking, exact.getPreferenceRanking());
+		assertEquals(opponentRanking, filter.getPreferenceRanking());
+	}
+
+	@Test
+	public void aliveHypothesesAreTheDistinctRankings() throws Exception {
+		SyntheticDomain domain = new SyntheticDomain(3, 10, false, 12);
+		AbstractAgent agent = start(domain);
+		ParticleFilterPredictor filter = new ParticleFilterPredictor(agent.issues, agent.agentEvaluationAim, 100,
+				ParticleFilterPredictor.DEFAULT_MUTATION_RATE, new Random(4));
+		// 3 issues have 3! rankings, 100 random particles hold all of them.
+		assertEquals(6, filter.getAliveHypotheses());
+		for (Bid offer : domain.createOpponentOffers(40, 0.8)) {
+			filter.updateModel(offer);
+		}
+		assertTrue(filter.getAliveHypotheses() >= 1 && filter.getAliveHypotheses() <= 6);
+	}
+}
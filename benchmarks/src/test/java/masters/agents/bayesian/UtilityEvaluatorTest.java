@@ -0,0 +1,47 @@
+package masters.agents.bayesian;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import negotiator.issue.Issue;
+import negotiator.issue.IssueDiscrete;
+import negotiator.issue.ValueDiscrete;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Values of Discrete issues as their index in the IssueIndex.
+ *
+ * @author MASters
+ */
+public class UtilityEvaluatorTest {
+
+	private static UtilityEvaluator create() throws Exception {
+		Issue issue = new IssueDiscrete("colour", 1, new String[] { "red", "green", "blue" });
+		List<Issue> issues = Arrays.asList(issue);
+		Map<Issue, Integer> aims = new HashMap<Issue, Integer>();
+		aims.put(issue, 1);
+		return new UtilityEvaluator(new IssueIndex(issues, aims));
+	}
+
+	@Test
+	public void discreteValuesAreTheirIndex() throws Exception {
+		UtilityEvaluator evaluator = create();
+		assertEquals(0, evaluator.toDouble(0, new ValueDiscrete("red")), 0);
+		assertEquals(2, evaluator.toDouble(0, new ValueDiscrete("blue")), 0);
+	}
+
+	@Test
+	public void unknownDiscreteValueIsRejected() throws Exception {
+		UtilityEvaluator evaluator = create();
+		IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+				() -> evaluator.toDouble(0, new ValueDiscrete("purple")));
+		assertTrue(e.getMessage().contains("purple") && e.getMessage().contains("colour"), e.getMessage());
+	}
+}
@@ -0,0 +1,70 @@
+package masters.agents.monitor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * The ring buffer of the trace while the writer laps the flusher. Runs in its own JVM with
+ * masters.trace=trace and masters.trace.file set, see the trace-test execution in the pom.
+ *
+ * @author MASters
+ */
+public class TraceTest {
+	private static final Pattern BELIEF = Pattern.compile("Belief (\\d+) has log chance ([\\d.,]+)");
+	private static final Pattern DROPPED = Pattern.compile("(\\d+) trace events dropped");
+
+	@Test
+	public void writerLappingTheFlushNeverPrintsTornEvents() throws Exception {
+		assertEquals(TraceLevel.TRACE, Trace.LEVEL, "run with -Dmasters.trace=trace");
+		String owner = "lap-" + System.nanoTime();
+		final Trace trace = new Trace(owner);
+		final int total = 64 * Trace.CAPACITY;
+		Thread writer = new Thread(new Runnable() {
+			public void run() {
+				// Every event carries its sequence in both the argument and the value.
+				for (int sequence = 0; sequence < total; sequence++) {
+					trace.record(TraceEvent.BELIEF, sequence, sequence);
+				}
+			}
+		});
+		writer.start();
+		while (writer.isAlive()) {
+			trace.flush();
+		}
+		writer.join();
+		trace.close();
+
+		long printed = 0;
+		long dropped = 0;
+		long last = -1;
+		List<String> lines = Files.readAllLines(Paths.get(System.getProperty("masters.trace.file")), Charset.defaultCharset());
+		for (String line : lines) {
+			if (!line.contains("[" + owner))
+				continue;
+			Matcher belief = BELIEF.matcher(line);
+			Matcher lost = DROPPED.matcher(line);
+			if (belief.find()) {
+				long argument = Long.parseLong(belief.group(1));
+				double value = Double.parseDouble(belief.group(2).replace(',', '.'));
+				assertEquals(argument, (long) value, "torn event: " + line);
+				assertTrue(argument > last, "event out of order: " + line);
+				last = argument;
+				printed++;
+			} else if (lost.find()) {
+				dropped += Long.parseLong(lost.group(1));
+			}
+		}
+		assertEquals(total - 1, last);
+		assertEquals(total, printed + dropped);
+		assertTrue(dropped > 0, "the writer never lapped the flush");
+	}
+}
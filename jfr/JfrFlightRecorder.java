@@ -0,0 +1,286 @@
+package masters.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import masters.agents.monitor.FlightRecorder;
+
+/**
+ * FlightRecorder with Java Flight Recorder events, in the category MASters / Negotiation. An event is
+ * only created when its type is enabled in a running recording, so with recording off a span is a
+ * read of the flag of the event type and costs no allocation.
+ *
+ * The events have no stack trace, the thread and the duration relate them to the GC and CPU events of
+ * the recording. Needs Java 11 or later:
+ *
+ *     java -XX:StartFlightRecording=filename=tournament.jfr ... masters.session.Tournament ...
+ *
+ * @author MASters
+ */
+public class JfrFlightRecorder extends FlightRecorder {
+	static final EventType TURN = EventType.getEventType(TurnEvent.class);
+	static final EventType MODEL_UPDATE = EventType.getEventType(ModelUpdateEvent.class);
+	static final EventType COUNTER_OFFER = EventType.getEventType(CounterOfferEvent.class);
+	static final EventType ACCEPTANCE = EventType.getEventType(AcceptanceEvent.class);
+	static final EventType EXPECTED_MAXIMUM = EventType.getEventType(ExpectedMaximumEvent.class);
+
+	@Override
+	public Span beginTurn(String agent) {
+		if (!TURN.isEnabled())
+			return Span.NONE;
+		TurnEvent event = new TurnEvent();
+		event.agent = agent;
+		event.begin();
+		return new TurnSpan(event);
+	}
+
+	@Override
+	public Span beginModelUpdate(String agent) {
+		if (!MODEL_UPDATE.isEnabled())
+			return Span.NONE;
+		ModelUpdateEvent event = new ModelUpdateEvent();
+		event.agent = agent;
+		event.begin();
+		return new ModelUpdateSpan(event);
+	}
+
+	@Override
+	public Span beginCounterOffer(String agent) {
+		if (!COUNTER_OFFER.isEnabled())
+			return Span.NONE;
+		CounterOfferEvent event = new CounterOfferEvent();
+		event.agent = agent;
+		event.begin();
+		return new CounterOfferSpan(event);
+	}
+
+	@Override
+	public Span beginAcceptance(String agent) {
+		if (!ACCEPTANCE.isEnabled())
+			return Span.NONE;
+		AcceptanceEvent event = new AcceptanceEvent();
+		event.agent = agent;
+		event.begin();
+		return new AcceptanceSpan(event);
+	}
+
+	@Override
+	public Span beginExpectedMaximum(String agent) {
+		if (!EXPECTED_MAXIMUM.isEnabled())
+			return Span.NONE;
+		ExpectedMaximumEvent event = new ExpectedMaximumEvent();
+		event.agent = agent;
+		event.begin();
+		return new ExpectedMaximumSpan(event);
+	}
+
+	@Override
+	public String getName() {
+		return "jfr";
+	}
+
+	@Name("masters.Turn")
+	@Label("Turn")
+	@Description("chooseAction of an agent")
+	@Category({ "MASters", "Negotiation" })
+	@StackTrace(false)
+	static class TurnEvent extends Event {
+		@Label("Agent")
+		String agent;
+
+		@Label("Negotiation Time")
+		@Description("Normalized time of the negotiation, between 0 and 1")
+		double time;
+
+		@Label("Action")
+		String action;
+
+		@Label("Bids")
+		@Description("Bids constructed during the turn")
+		int bids;
+	}
+
+	@Name("masters.ModelUpdate")
+	@Label("Model Update")
+	@Description("Update of the opponent model with an offer")
+	@Category({ "MASters", "Negotiation" })
+	@StackTrace(false)
+	static class ModelUpdateEvent extends Event {
+		@Label("Agent")
+		String agent;
+
+		@Label("Hypotheses Alive")
+		@Description("Hypotheses with a non-zero belief, -1 for models without hypotheses")
+		long hypothesesAlive;
+	}
+
+	@Name("masters.CounterOffer")
+	@Label("Counter-Offer")
+	@Description("Creating a counter-offer")
+	@Category({ "MASters", "Negotiation" })
+	@StackTrace(false)
+	static class CounterOfferEvent extends Event {
+		@Label("Agent")
+		String agent;
+
+		@Label("Target Utility")
+		double targetUtility;
+
+		@Label("Iterations")
+		@Description("Candidates of the bid index or issues raised to reach the target")
+		int iterations;
+	}
+
+	@Name("masters.Acceptance")
+	@Label("Acceptance")
+	@Description("Decision whether to accept the offer of the opponent")
+	@Category({ "MASters", "Negotiation" })
+	@StackTrace(false)
+	static class AcceptanceEvent extends Event {
+		@Label("Agent")
+		String agent;
+
+		@Label("Accepted")
+		boolean accepted;
+
+		@Label("Offered Utility")
+		@Description("Utility of the offer of the opponent")
+		double offeredUtility;
+
+		@Label("Threshold")
+		@Description("Utility the offer had to reach, NaN if the agent decides on time alone")
+		double threshold;
+	}
+
+	@Name("masters.ExpectedMaximum")
+	@Label("Expected Maximum")
+	@Description("Computing the expected maximum utility of the offers to come")
+	@Category({ "MASters", "Negotiation" })
+	@StackTrace(false)
+	static class ExpectedMaximumEvent extends Event {
+		@Label("Agent")
+		String agent;
+
+		@Label("Expected Maximum")
+		double expectedMaximum;
+	}
+
+	static class TurnSpan extends Span {
+		final TurnEvent event;
+
+		TurnSpan(TurnEvent event) {
+			this.event = event;
+		}
+
+		@Override
+		public boolean isRecording() {
+			return true;
+		}
+
+		@Override
+		public void endTurn(double time, String action, int bids) {
+			event.end();
+			if (event.shouldCommit()) {
+				event.time = time;
+				event.action = action;
+				event.bids = bids;
+				event.commit();
+			}
+		}
+	}
+
+	static class ModelUpdateSpan extends Span {
+		final ModelUpdateEvent event;
+
+		ModelUpdateSpan(ModelUpdateEvent event) {
+			this.event = event;
+		}
+
+		@Override
+		public boolean isRecording() {
+			return true;
+		}
+
+		@Override
+		public void endModelUpdate(long hypothesesAlive) {
+			event.end();
+			if (event.shouldCommit()) {
+				event.hypothesesAlive = hypothesesAlive;
+				event.commit();
+			}
+		}
+	}
+
+	static class CounterOfferSpan extends Span {
+		final CounterOfferEvent event;
+
+		CounterOfferSpan(CounterOfferEvent event) {
+			this.event = event;
+		}
+
+		@Override
+		public boolean isRecording() {
+			return true;
+		}
+
+		@Override
+		public void endCounterOffer(double targetUtility, int iterations) {
+			event.end();
+			if (event.shouldCommit()) {
+				event.targetUtility = targetUtility;
+				event.iterations = iterations;
+				event.commit();
+			}
+		}
+	}
+
+	static class AcceptanceSpan extends Span {
+		final AcceptanceEvent event;
+
+		AcceptanceSpan(AcceptanceEvent event) {
+			this.event = event;
+		}
+
+		@Override
+		public boolean isRecording() {
+			return true;
+		}
+
+		@Override
+		public void endAcceptance(boolean accepted, double offeredUtility, double threshold) {
+			event.end();
+			if (event.shouldCommit()) {
+				event.accepted = accepted;
+				event.offeredUtility = offeredUtility;
+				event.threshold = threshold;
+				event.commit();
+			}
+		}
+	}
+
+	static class ExpectedMaximumSpan extends Span {
+		final ExpectedMaximumEvent event;
+
+		ExpectedMaximumSpan(ExpectedMaximumEvent event) {
+			this.event = event;
+		}
+
+		@Override
+		public boolean isRecording() {
+			return true;
+		}
+
+		@Override
+		public void endExpectedMaximum(double expectedMaximum) {
+			event.end();
+			if (event.shouldCommit()) {
+				event.expectedMaximum = expectedMaximum;
+				event.commit();
+			}
+		}
+	}
+}
@@ -0,0 +1,215 @@
+package masters.session;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Seeded generator of Genius domains with two linear additive profiles, for scale testing.
+ *
+ * A domain has Integer and Real issues with the values 0 up to range. The weights of a profile follow
+ * a WeightDistribution. The evaluation aim (the sign getAgentEvaluationAim derives) of every issue is
+ * increasing for profile A with probability increasingProbability, and profile B has the opposite aim
+ * with probability opposedProbability, so 1 gives fully opposed profiles.
+ *
+ * The same seed and parameters always give the same files.
+ *
+ * @author MASters
+ */
+public class DomainGenerator {
+	/**
+	 * How the weights of a profile are distributed over the issues.
+	 */
+	public enum WeightDistribution {
+		/** Every issue has the same weight. */
+		EQUAL,
+		/** Weights drawn uniformly and normalized. */
+		UNIFORM,
+		/** Weights halve from one issue to the next, in random order. */
+		SKEWED
+	}
+
+	final Random random;
+	int issues = 4;
+	long range = 100;
+	double realFraction = 0.5;
+	double increasingProbability = 0.5;
+	double opposedProbability = 1;
+	WeightDistribution weights = WeightDistribution.UNIFORM;
+
+	/**
+	 * @param seed
+	 */
+	public DomainGenerator(long seed) {
+		this.random = new Random(seed);
+	}
+
+	/**
+	 * @param issues
+	 * 			The amount of issues, at least 1.
+	 */
+	public void setIssues(int issues) {
+		this.issues = issues;
+	}
+
+	/**
+	 * @param range
+	 * 			The upper bound of every issue, up to Integer.MAX_VALUE.
+	 */
+	public void setRange(long range) {
+		if (range < 1 || range > Integer.MAX_VALUE)
+			throw new IllegalArgumentException("range " + range + " not supported.");
+		this.range = range;
+	}
+
+	/**
+	 * @param realFraction
+	 * 			The probability that an issue is Real instead of Integer.
+	 */
+	public void setRealFraction(double realFraction) {
+		this.realFraction = realFraction;
+	}
+
+	/**
+	 * @param increasingProbability
+	 * 			The probability that profile A wants to maximize an issue.
+	 */
+	public void setIncreasingProbability(double increasingProbability) {
+		this.increasingProbability = increasingProbability;
+	}
+
+	/**
+	 * @param opposedProbability
+	 * 			The probability that profile B has the opposite aim of profile A on an issue.
+	 */
+	public void setOpposedProbability(double opposedProbability) {
+		this.opposedProbability = opposedProbability;
+	}
+
+	/**
+	 * @param weights
+	 */
+	public void setWeights(WeightDistribution weights) {
+		this.weights = weights;
+	}
+
+	/**
+	 * Generate a domain and its two profiles, written to name.xml, name-a.xml and name-b.xml.
+	 *
+	 * @param directory
+	 * @param name
+	 * @return the scenario of the files
+	 * @throws IOException
+	 */
+	public Scenario generate(File directory, String name) throws IOException {
+		boolean[] real = new boolean[issues];
+		int[] aimsA = new int[issues];
+		int[] aimsB = new int[issues];
+		for (int i = 0; i < issues; i++) {
+			real[i] = random.nextDouble() < realFraction;
+			aimsA[i] = random.nextDouble() < increasingProbability ? 1 : -1;
+			aimsB[i] = random.nextDouble() < opposedProbability ? -aimsA[i] : aimsA[i];
+		}
+
+		directory.mkdirs();
+		File domain = new File(directory, name + ".xml");
+		File profileA = new File(directory, name + "-a.xml");
+		File profileB = new File(directory, name + "-b.xml");
+		writeDomain(domain, name, real);
+		writeProfile(profileA, name, real, aimsA, createWeights());
+		writeProfile(profileB, name, real, aimsB, createWeights());
+		return new Scenario(domain.getPath(), profileA.getPath(), profileB.getPath());
+	}
+
+	private double[] createWeights() {
+		double[] w = new double[issues];
+		double total = 0;
+		for (int i = 0; i < issues; i++) {
+			switch (weights) {
+			case EQUAL:
+				w[i] = 1;
+				break;
+			case UNIFORM:
+				w[i] = 0.05 + random.nextDouble();
+				break;
+			case SKEWED:
+				w[i] = Math.pow(0.5, i);
+				break;
+			}
+			total += w[i];
+		}
+		if (weights == WeightDistribution.SKEWED) {
+			for (int i = issues - 1; i > 0; i--) {
+				int j = random.nextInt(i + 1);
+				double swap = w[i];
+				w[i] = w[j];
+				w[j] = swap;
+			}
+		}
+		for (int i = 0; i < issues; i++) {
+			w[i] /= total;
+		}
+		return w;
+	}
+
+	private void writeDomain(File file, String name, boolean[] real) throws IOException {
+		PrintWriter out = new PrintWriter(new FileWriter(file));
+		try {
+			out.println("<negotiation_template>");
+			out.println("<utility_space number_of_issues=\"" + issues + "\">");
+			out.println("<objective index=\"0\" description=\"\" name=\"" + name + "\" type=\"objective\" etype=\"objective\">");
+			for (int i = 0; i < issues; i++) {
+				int number = i + 1;
+				if (real[i]) {
+					out.println("\t<issue name=\"issue" + number + "\" index=\"" + number + "\" etype=\"real\" type=\"real\" vtype=\"real\">");
+					out.println("\t\t<range lowerbound=\"0.0\" upperbound=\"" + (double) range + "\"></range>");
+					out.println("\t</issue>");
+				} else {
+					out.println("\t<issue name=\"issue" + number + "\" index=\"" + number
+							+ "\" etype=\"integer\" type=\"integer\" vtype=\"integer\" lowerbound=\"0\" upperbound=\"" + range + "\"></issue>");
+				}
+			}
+			out.println("</objective>");
+			out.println("</utility_space>");
+			out.println("</negotiation_template>");
+		} finally {
+			out.close();
+		}
+	}
+
+	private void writeProfile(File file, String name, boolean[] real, int[] aims, double[] w) throws IOException {
+		PrintWriter out = new PrintWriter(new FileWriter(file));
+		try {
+			out.println("<utility_space>");
+			out.println("<objective index=\"0\" description=\"\" name=\"" + name + "\" type=\"objective\" etype=\"objective\">");
+			for (int i = 0; i < issues; i++) {
+				int number = i + 1;
+				if (real[i]) {
+					// Evaluation parameter0 + parameter1 * x, from 0 to 1 over the range.
+					double slope = aims[i] / (double) range;
+					double offset = aims[i] == 1 ? 0 : 1;
+					out.println("\t<issue index=\"" + number + "\" etype=\"real\" type=\"real\" vtype=\"real\" name=\"issue" + number + "\">");
+					out.println("\t\t<range lowerbound=\"0.0\" upperbound=\"" + (double) range + "\"></range>");
+					out.println(String.format(Locale.ROOT, "\t\t<evaluator ftype=\"linear\" parameter0=\"%s\" parameter1=\"%s\"></evaluator>",
+							Double.toString(offset), Double.toString(slope)));
+				} else {
+					out.println("\t<issue index=\"" + number + "\" etype=\"integer\" type=\"integer\" vtype=\"integer\" name=\"issue"
+							+ number + "\" lowerbound=\"0\" upperbound=\"" + range + "\">");
+					out.println("\t\t<evaluator ftype=\"linear\" lowervalue=\"" + (aims[i] == 1 ? "0.0" : "1.0")
+							+ "\" uppervalue=\"" + (aims[i] == 1 ? "1.0" : "0.0") + "\"></evaluator>");
+				}
+				out.println("\t</issue>");
+			}
+			for (int i = 0; i < issues; i++) {
+				out.println("\t<weight index=\"" + (i + 1) + "\" value=\"" + Double.toString(w[i]) + "\"></weight>");
+			}
+			out.println("</objective>");
+			out.println("</utility_space>");
+		} finally {
+			out.close();
+		}
+	}
+}
@@ -0,0 +1,220 @@
+package masters.session;
+
+import java.util.Date;
+import java.util.HashMap;
+
+import masters.agents.bayesian.Seedable;
+import negotiator.Agent;
+import negotiator.AgentID;
+import negotiator.AgentParamValue;
+import negotiator.AgentParameterVariable;
+import negotiator.Bid;
+import negotiator.Domain;
+import negotiator.DomainImpl;
+import negotiator.NegotiationResult;
+import negotiator.actions.Accept;
+import negotiator.actions.Action;
+import negotiator.actions.EndNegotiation;
+import negotiator.actions.Offer;
+import negotiator.timeline.DiscreteTimeline;
+import negotiator.utility.AdditiveUtilitySpace;
+
+/**
+ * Runs a bilateral alternating-offers session between two agents in-process, without the Genius GUI.
+ *
+ * Agent A starts. Every action is passed to the other agent with ReceiveMessage before it chooses its
+ * own action, and the DiscreteTimeline advances one round after both agents acted. The session ends
+ * with an accept of the last offer, an EndNegotiation, the deadline, or an error of one of the agents:
+ * an exception, no action, or an accept without an offer. Agents are created with their no-argument
+ * constructor and started with internalInit and init, the same way Genius does. Every run creates
+ * new agents, so sessions do not share agent state.
+ *
+ * @author MASters
+ */
+public class HeadlessSession {
+	public static final int DEFAULT_ROUNDS = 180;
+
+	final Domain domain;
+	final AdditiveUtilitySpace[] utilitySpaces;
+	final String[] agentClasses;
+	final int rounds;
+	Long seed;
+
+	/**
+	 * @param domain
+	 * @param utilitySpaceA
+	 * @param utilitySpaceB
+	 * @param agentA
+	 * 			Class name of the agent that starts.
+	 * @param agentB
+	 * 			Class name of the other agent.
+	 * @param rounds
+	 * 			The deadline in rounds.
+	 */
+	public HeadlessSession(Domain domain, AdditiveUtilitySpace utilitySpaceA, AdditiveUtilitySpace utilitySpaceB,
+			String agentA, String agentB, int rounds) {
+		this.domain = domain;
+		this.utilitySpaces = new AdditiveUtilitySpace[] { utilitySpaceA, utilitySpaceB };
+		this.agentClasses = new String[] { agentA, agentB };
+		this.rounds = rounds;
+	}
+
+	/**
+	 * Seed the agents that implement Seedable, agent A with seed and agent B with seed + 1.
+	 * Without a seed the agents use their own unseeded randomness.
+	 *
+	 * @param seed
+	 */
+	public void setSeed(long seed) {
+		this.seed = seed;
+	}
+
+	/**
+	 * Create a session from a Genius domain file and two profile files.
+	 *
+	 * @param domainFile
+	 * @param profileA
+	 * @param profileB
+	 * @param agentA
+	 * @param agentB
+	 * @param rounds
+	 * @return session
+	 * @throws Exception
+	 */
+	public static HeadlessSession load(String domainFile, String profileA, String profileB, String agentA,
+			String agentB, int rounds) throws Exception {
+		Domain domain = new DomainImpl(domainFile);
+		return new HeadlessSession(domain, new AdditiveUtilitySpace(domain, profileA),
+				new AdditiveUtilitySpace(domain, profileB), agentA, agentB, rounds);
+	}
+
+	/**
+	 * Instantiate an agent and initialize it for a session.
+	 *
+	 * @param className
+	 * @param utilitySpace
+	 * @param timeline
+	 * @param id
+	 * @return agent
+	 * @throws Exception
+	 */
+	public static Agent createAgent(String className, AdditiveUtilitySpace utilitySpace, DiscreteTimeline timeline,
+			AgentID id) throws Exception {
+		Agent agent = Class.forName(className).asSubclass(Agent.class).getDeclaredConstructor().newInstance();
+		agent.internalInit(0, 1, new Date(), timeline.getTotalRounds(), timeline, utilitySpace,
+				new HashMap<AgentParameterVariable, AgentParamValue>(), id);
+		return agent;
+	}
+
+	/**
+	 * Run the session.
+	 *
+	 * @return result
+	 */
+	public SessionResult run() {
+		long start = System.nanoTime();
+		DiscreteTimeline timeline = new DiscreteTimeline(rounds);
+		Agent[] agents = new Agent[2];
+		long[] initNanos = new long[2];
+		long[] turnNanos = new long[2];
+		long[] maximumTurnNanos = new long[2];
+		int[] turns = new int[2];
+
+		SessionResult.Outcome outcome = SessionResult.Outcome.DEADLINE;
+		Bid lastBid = null;
+		Bid agreement = null;
+		Action lastAction = null;
+		String error = null;
+
+		try {
+			for (int a = 0; a < 2; a++) {
+				long begin = System.nanoTime();
+				agents[a] = createAgent(agentClasses[a], utilitySpaces[a], timeline, new AgentID(a + ":" + agentClasses[a]));
+				if (seed != null && agents[a] instanceof Seedable)
+					((Seedable) agents[a]).setSeed(seed + a);
+				agents[a].init();
+				initNanos[a] = System.nanoTime() - begin;
+			}
+		} catch (Throwable e) {
+			return new SessionResult(agentClasses[0], agentClasses[1], SessionResult.Outcome.ERROR, null, 0, 0, 0,
+					System.nanoTime() - start, initNanos, turnNanos, maximumTurnNanos, turns,
+					"init failed: " + e);
+		}
+
+		negotiation:
+		while (!timeline.isDeadlineReached()) {
+			for (int a = 0; a < 2; a++) {
+				Agent agent = agents[a];
+				Action action;
+				long begin = System.nanoTime();
+				try {
+					if (lastAction != null)
+						agent.ReceiveMessage(lastAction);
+					action = agent.chooseAction();
+				} catch (Throwable e) {
+					outcome = SessionResult.Outcome.ERROR;
+					error = agentClasses[a] + ": " + e;
+					break negotiation;
+				} finally {
+					long time = System.nanoTime() - begin;
+					turnNanos[a] += time;
+					maximumTurnNanos[a] = Math.max(maximumTurnNanos[a], time);
+					turns[a]++;
+				}
+
+				lastAction = action;
+				if (action instanceof Offer) {
+					lastBid = ((Offer) action).getBid();
+				} else if (action instanceof Accept && lastBid != null) {
+					outcome = SessionResult.Outcome.AGREEMENT;
+					agreement = lastBid;
+					break negotiation;
+				} else if (action instanceof EndNegotiation) {
+					outcome = SessionResult.Outcome.END_NEGOTIATION;
+					break negotiation;
+				} else {
+					outcome = SessionResult.Outcome.ERROR;
+					error = agentClasses[a] + ": invalid action " + action;
+					break negotiation;
+				}
+			}
+			timeline.increment();
+		}
+
+		double[] utilities = new double[2];
+		for (int a = 0; a < 2; a++) {
+			if (agreement != null)
+				utilities[a] = utilitySpaces[a].getUtility(agreement);
+			try {
+				agents[a].endSession(new NegotiationResult(utilities[a], lastAction, agreement));
+			} catch (Throwable e) {
+				// The outcome is final, a failing endSession is ignored.
+			}
+		}
+		return new SessionResult(agentClasses[0], agentClasses[1], outcome, agreement, utilities[0], utilities[1],
+				Math.min(timeline.getRound(), rounds), System.nanoTime() - start, initNanos, turnNanos,
+				maximumTurnNanos, turns, error);
+	}
+
+	/**
+	 * Run one session and print its result.
+	 * Usage: HeadlessSession domain.xml profileA.xml profileB.xml agentA agentB [rounds [seed]]
+	 *
+	 * @param args
+	 * @throws Exception
+	 */
+	public static void main(String[] args) throws Exception {
+		if (args.length < 5) {
+			System.out.println("usage: HeadlessSession domain.xml profileA.xml profileB.xml agentA agentB [rounds [seed]]");
+			return;
+		}
+		int rounds = args.length > 5 ? Integer.parseInt(args[5]) : DEFAULT_ROUNDS;
+		HeadlessSession session = load(args[0], args[1], args[2], args[3], args[4], rounds);
+		if (args.length > 6)
+			session.setSeed(Long.parseLong(args[6]));
+		SessionResult result = session.run();
+		System.out.println(result);
+		System.out.println(SessionResult.getCsvHeader());
+		System.out.println(result.toCsv());
+	}
+}
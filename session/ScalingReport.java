@@ -0,0 +1,397 @@
+package masters.session;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import negotiator.Agent;
+import negotiator.AgentID;
+import negotiator.Bid;
+import negotiator.Domain;
+import negotiator.DomainImpl;
+import negotiator.NegotiationResult;
+import negotiator.actions.Action;
+import negotiator.actions.Offer;
+import negotiator.timeline.DiscreteTimeline;
+import negotiator.utility.AdditiveUtilitySpace;
+
+/**
+ * Runs every agent across a grid of generated domains and reports where per-turn latency and memory
+ * stop being acceptable.
+ *
+ * For every amount of issues and range of the grid the DomainGenerator writes a domain with opposing
+ * profiles. Every agent then plays profile A for the full amount of rounds against a scripted opponent
+ * that offers random bids above a linearly conceding target of its own profile, so every agent is
+ * measured for the same amount of turns. Accepts of the agent are counted but do not end the run.
+ *
+ * Reported per agent and grid point: the time and heap retained by init, the mean, 99th percentile
+ * and maximum turn (ReceiveMessage and chooseAction together), and the bytes allocated per turn. A
+ * grid point is over budget when the mean turn or the allocation per turn exceeds the budget; the
+ * percentiles of a short run are dominated by collections and compilation, so they are reported but
+ * not judged. Every agent runs once on the first grid point before measuring to warm up the JIT.
+ * Allocation is measured with the HotSpot thread allocation counter and reported as -1 where that is
+ * not available.
+ *
+ * @author MASters
+ */
+public class ScalingReport {
+	public static final int[] DEFAULT_ISSUES = { 2, 4, 6, 8, 12, 16, 20 };
+	public static final long[] DEFAULT_RANGES = { 10, 1000, 100000, 10000000 };
+
+	/**
+	 * Measurements of one agent on one grid point.
+	 */
+	public static class Row {
+		String agent;
+		int issues;
+		long range;
+		double initMs;
+		long retainedBytes;
+		int turns;
+		int accepts;
+		double meanTurnUs;
+		double p99TurnUs;
+		double maxTurnUs;
+		long allocatedBytesPerTurn = -1;
+		String error;
+
+		public static String getCsvHeader() {
+			return "agent,issues,range,initMs,retainedKb,turns,accepts,meanTurnUs,p99TurnUs,maxTurnUs,allocatedKbPerTurn,error";
+		}
+
+		public String toCsv() {
+			return String.format(Locale.ROOT, "%s,%d,%d,%.3f,%.1f,%d,%d,%.3f,%.3f,%.3f,%.3f,%s", agent, issues, range,
+					initMs, retainedBytes / 1024.0, turns, accepts, meanTurnUs, p99TurnUs, maxTurnUs,
+					allocatedBytesPerTurn < 0 ? -1 : allocatedBytesPerTurn / 1024.0, error == null ? "" : error);
+		}
+	}
+
+	final List<String> agents;
+	final int[] issues;
+	final long[] ranges;
+	final int rounds;
+	final long seed;
+	final File directory;
+	double realFraction = 0.5;
+	double turnBudgetUs = 1000;
+	long allocationBudgetBytes = 1 << 20;
+	double maximumSeconds = 60;
+
+	/**
+	 * @param agents
+	 * 			Class names of the agents.
+	 * @param issues
+	 * 			The amounts of issues of the grid.
+	 * @param ranges
+	 * 			The ranges of the grid.
+	 * @param rounds
+	 * @param seed
+	 * 			Seed of the generated domains and of the opponent.
+	 * @param directory
+	 * 			Where the generated domains are written.
+	 */
+	public ScalingReport(List<String> agents, int[] issues, long[] ranges, int rounds, long seed, File directory) {
+		this.agents = agents;
+		this.issues = issues;
+		this.ranges = ranges;
+		this.rounds = rounds;
+		this.seed = seed;
+		this.directory = directory;
+	}
+
+	public void setRealFraction(double realFraction) {
+		this.realFraction = realFraction;
+	}
+
+	/**
+	 * @param turnBudgetUs
+	 * 			The acceptable mean turn in microseconds.
+	 * @param allocationBudgetBytes
+	 * 			The acceptable allocation per turn.
+	 */
+	public void setBudget(double turnBudgetUs, long allocationBudgetBytes) {
+		this.turnBudgetUs = turnBudgetUs;
+		this.allocationBudgetBytes = allocationBudgetBytes;
+	}
+
+	/**
+	 * @param maximumSeconds
+	 * 			The time after which the run of an agent on a grid point is cut short.
+	 */
+	public void setMaximumSeconds(double maximumSeconds) {
+		this.maximumSeconds = maximumSeconds;
+	}
+
+	/**
+	 * @param row
+	 * @return whether the row is over the latency or allocation budget, or failed
+	 */
+	public boolean isOverBudget(Row row) {
+		return row.error != null || row.meanTurnUs > turnBudgetUs || row.allocatedBytesPerTurn > allocationBudgetBytes;
+	}
+
+	/**
+	 * Run all agents on all grid points, in the order of the grid.
+	 *
+	 * @param out
+	 * 			Receives a CSV line of every row as it is measured, may be null.
+	 * @return rows
+	 * @throws Exception
+	 */
+	public List<Row> run(PrintWriter out) throws Exception {
+		List<Row> rows = new ArrayList<Row>();
+		if (out != null)
+			out.println(Row.getCsvHeader());
+		DomainGenerator warmup = new DomainGenerator(seed);
+		warmup.setIssues(issues[0]);
+		warmup.setRange(ranges[0]);
+		warmup.setRealFraction(realFraction);
+		Scenario warmupScenario = warmup.generate(directory, "scaling-warmup");
+		for (String agent : agents) {
+			measure(agent, warmupScenario, issues[0], ranges[0]);
+		}
+
+		int point = 0;
+		for (int n : issues) {
+			for (long range : ranges) {
+				DomainGenerator generator = new DomainGenerator(Tournament.getSessionSeed(seed, point++));
+				generator.setIssues(n);
+				generator.setRange(range);
+				generator.setRealFraction(realFraction);
+				Scenario scenario = generator.generate(directory, "scaling-" + n + "-" + range);
+				for (String agent : agents) {
+					Row row = measure(agent, scenario, n, range);
+					rows.add(row);
+					if (out != null) {
+						out.println(row.toCsv());
+						out.flush();
+					}
+				}
+			}
+		}
+		return rows;
+	}
+
+	Row measure(String agentClass, Scenario scenario, int n, long range) {
+		Row row = new Row();
+		row.agent = agentClass;
+		row.issues = n;
+		row.range = range;
+
+		Agent agent;
+		Domain domain;
+		AdditiveUtilitySpace opponentSpace;
+		DiscreteTimeline timeline = new DiscreteTimeline(rounds);
+		try {
+			domain = new DomainImpl(scenario.getDomainFile());
+			AdditiveUtilitySpace ownSpace = new AdditiveUtilitySpace(domain, scenario.getProfileA());
+			opponentSpace = new AdditiveUtilitySpace(domain, scenario.getProfileB());
+			long before = getUsedHeap();
+			long begin = System.nanoTime();
+			agent = HeadlessSession.createAgent(agentClass, ownSpace, timeline, new AgentID(agentClass));
+			agent.init();
+			row.initMs = (System.nanoTime() - begin) / 1e6;
+			row.retainedBytes = Math.max(0, getUsedHeap() - before);
+		} catch (Throwable e) {
+			row.error = "init failed: " + e;
+			return row;
+		}
+
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		com.sun.management.ThreadMXBean allocation = threads instanceof com.sun.management.ThreadMXBean
+				&& ((com.sun.management.ThreadMXBean) threads).isThreadAllocatedMemorySupported()
+						? (com.sun.management.ThreadMXBean) threads : null;
+		long thread = Thread.currentThread().getId();
+
+		Random random = new Random(seed);
+		long[] turnNanos = new long[rounds];
+		long allocated = 0;
+		long deadline = System.nanoTime() + (long) (maximumSeconds * 1e9);
+		try {
+			while (!timeline.isDeadlineReached() && System.nanoTime() < deadline) {
+				Bid offer = createOffer(domain, opponentSpace, 1 - 0.5 * timeline.getTime(), random);
+				long bytes = allocation == null ? 0 : allocation.getThreadAllocatedBytes(thread);
+				long begin = System.nanoTime();
+				agent.ReceiveMessage(new Offer(new AgentID("opponent"), offer));
+				Action action = agent.chooseAction();
+				turnNanos[row.turns] = System.nanoTime() - begin;
+				if (allocation != null)
+					allocated += allocation.getThreadAllocatedBytes(thread) - bytes;
+				if (!(action instanceof Offer))
+					row.accepts++;
+				row.turns++;
+				timeline.increment();
+			}
+			if (row.turns < rounds)
+				row.error = "cut short after " + row.turns + " turns";
+		} catch (Throwable e) {
+			row.error = "turn " + row.turns + " failed: " + e;
+		}
+		try {
+			agent.endSession(new NegotiationResult(0, null, null));
+		} catch (Throwable e) {
+			// Only releases the trace of the agent.
+		}
+
+		if (row.turns > 0) {
+			long[] sorted = Arrays.copyOf(turnNanos, row.turns);
+			Arrays.sort(sorted);
+			long total = 0;
+			for (long t : sorted) {
+				total += t;
+			}
+			row.meanTurnUs = total / 1e3 / row.turns;
+			row.p99TurnUs = sorted[Math.min(row.turns - 1, (int) Math.ceil(0.99 * row.turns) - 1)] / 1e3;
+			row.maxTurnUs = sorted[row.turns - 1] / 1e3;
+			if (allocation != null)
+				row.allocatedBytesPerTurn = allocated / row.turns;
+		}
+		return row;
+	}
+
+	/**
+	 * A random bid with an opponent utility of at least target, or the best of 1000 tries.
+	 */
+	static Bid createOffer(Domain domain, AdditiveUtilitySpace opponentSpace, double target, Random random) {
+		Bid best = null;
+		double bestUtility = -1;
+		for (int i = 0; i < 1000; i++) {
+			Bid bid = domain.getRandomBid(random);
+			double utility = opponentSpace.getUtility(bid);
+			if (utility >= target)
+				return bid;
+			if (utility > bestUtility) {
+				best = bid;
+				bestUtility = utility;
+			}
+		}
+		return best;
+	}
+
+	static long getUsedHeap() {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+	/**
+	 * Print the rows as a table, marking the rows over budget, followed by the first grid point at
+	 * which every agent goes over budget.
+	 *
+	 * @param rows
+	 * @return report
+	 */
+	public String report(List<Row> rows) {
+		StringBuilder report = new StringBuilder();
+		report.append(String.format(Locale.ROOT, "%-34s %6s %9s %10s %11s %11s %11s %11s %12s%n", "agent", "issues",
+				"range", "init ms", "retained KB", "mean us", "p99 us", "max us", "alloc KB/turn"));
+		for (Row row : rows) {
+			report.append(String.format(Locale.ROOT, "%-34s %6d %9d %10.2f %11.1f %11.1f %11.1f %11.1f %12.1f%s%n",
+					getSimpleName(row.agent), row.issues, row.range, row.initMs, row.retainedBytes / 1024.0,
+					row.meanTurnUs, row.p99TurnUs, row.maxTurnUs,
+					row.allocatedBytesPerTurn < 0 ? -1 : row.allocatedBytesPerTurn / 1024.0,
+					isOverBudget(row) ? "  OVER" + (row.error == null ? "" : " (" + row.error + ")") : ""));
+		}
+		report.append(String.format(Locale.ROOT, "%nbudget: mean turn %.0f us, %d KB allocated per turn%n", turnBudgetUs,
+				allocationBudgetBytes / 1024));
+		for (String agent : agents) {
+			Row first = null;
+			for (Row row : rows) {
+				if (row.agent.equals(agent) && isOverBudget(row)) {
+					first = row;
+					break;
+				}
+			}
+			report.append(String.format(Locale.ROOT, "%-34s %s%n", getSimpleName(agent), first == null ? "within budget"
+					: "over budget from " + first.issues + " issues, range " + first.range));
+		}
+		return report.toString();
+	}
+
+	static String getSimpleName(String className) {
+		return className.substring(className.lastIndexOf('.') + 1);
+	}
+
+	/**
+	 * Usage: ScalingReport [--issues 2,4,...] [--ranges 10,1000,...] [--rounds n] [--seed n] [--agents a,b,...]
+	 * [--real-fraction p] [--turn-budget-us n] [--alloc-budget-kb n] [--max-seconds n] [--dir directory] [--csv file]
+	 *
+	 * @param args
+	 * @throws Exception
+	 */
+	public static void main(String[] args) throws Exception {
+		int[] issues = DEFAULT_ISSUES;
+		long[] ranges = DEFAULT_RANGES;
+		int rounds = HeadlessSession.DEFAULT_ROUNDS;
+		long seed = 0;
+		List<String> agents = Arrays.asList(Tournament.AGENTS);
+		double realFraction = 0.5;
+		double turnBudgetUs = 1000;
+		long allocationBudgetKb = 1024;
+		double maximumSeconds = 60;
+		String dir = null;
+		String csv = null;
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].equals("--issues")) {
+				String[] values = args[++i].split(",");
+				issues = new int[values.length];
+				for (int j = 0; j < values.length; j++) {
+					issues[j] = Integer.parseInt(values[j]);
+				}
+			} else if (args[i].equals("--ranges")) {
+				String[] values = args[++i].split(",");
+				ranges = new long[values.length];
+				for (int j = 0; j < values.length; j++) {
+					ranges[j] = Long.parseLong(values[j]);
+				}
+			} else if (args[i].equals("--rounds"))
+				rounds = Integer.parseInt(args[++i]);
+			else if (args[i].equals("--seed"))
+				seed = Long.parseLong(args[++i]);
+			else if (args[i].equals("--agents"))
+				agents = Arrays.asList(args[++i].split(","));
+			else if (args[i].equals("--real-fraction"))
+				realFraction = Double.parseDouble(args[++i]);
+			else if (args[i].equals("--turn-budget-us"))
+				turnBudgetUs = Double.parseDouble(args[++i]);
+			else if (args[i].equals("--alloc-budget-kb"))
+				allocationBudgetKb = Long.parseLong(args[++i]);
+			else if (args[i].equals("--max-seconds"))
+				maximumSeconds = Double.parseDouble(args[++i]);
+			else if (args[i].equals("--dir"))
+				dir = args[++i];
+			else if (args[i].equals("--csv"))
+				csv = args[++i];
+			else {
+				System.out.println("usage: ScalingReport [--issues 2,4,...] [--ranges 10,1000,...] [--rounds n] [--seed n] "
+						+ "[--agents a,b,...] [--real-fraction p] [--turn-budget-us n] [--alloc-budget-kb n] "
+						+ "[--max-seconds n] [--dir directory] [--csv file]");
+				return;
+			}
+		}
+		File directory = dir == null ? new File(System.getProperty("java.io.tmpdir"), "masters-scaling") : new File(dir);
+
+		ScalingReport scaling = new ScalingReport(agents, issues, ranges, rounds, seed, directory);
+		scaling.setRealFraction(realFraction);
+		scaling.setBudget(turnBudgetUs, allocationBudgetKb * 1024);
+		scaling.setMaximumSeconds(maximumSeconds);
+		PrintWriter out = csv == null ? null : new PrintWriter(new FileWriter(csv));
+		List<Row> rows;
+		try {
+			rows = scaling.run(out);
+		} finally {
+			if (out != null)
+				out.close();
+		}
+		System.out.print(scaling.report(rows));
+	}
+}
@@ -0,0 +1,44 @@
+package masters.session;
+
+import java.io.File;
+
+/**
+ * A domain file with the two profile files the agents negotiate with.
+ *
+ * @author MASters
+ */
+public class Scenario {
+	final String domainFile;
+	final String profileA;
+	final String profileB;
+
+	public Scenario(String domainFile, String profileA, String profileB) {
+		this.domainFile = domainFile;
+		this.profileA = profileA;
+		this.profileB = profileB;
+	}
+
+	public String getDomainFile() {
+		return domainFile;
+	}
+
+	public String getProfileA() {
+		return profileA;
+	}
+
+	public String getProfileB() {
+		return profileB;
+	}
+
+	/**
+	 * @return the name of the profiles, used in reports.
+	 */
+	public String getName() {
+		return new File(profileA).getName() + "/" + new File(profileB).getName();
+	}
+
+	@Override
+	public String toString() {
+		return getName();
+	}
+}
@@ -0,0 +1,169 @@
+package masters.session;
+
+import negotiator.Bid;
+
+/**
+ * Outcome and timings of one headless session.
+ *
+ * @author MASters
+ */
+public class SessionResult {
+	/**
+	 * How a session ended.
+	 */
+	public enum Outcome {
+		AGREEMENT,
+		END_NEGOTIATION,
+		DEADLINE,
+		/** An agent threw, returned no action or accepted without an offer. */
+		ERROR
+	}
+
+	final String agentA;
+	final String agentB;
+	final Outcome outcome;
+	final Bid agreement;
+	final double utilityA;
+	final double utilityB;
+	final int rounds;
+	final long durationNanos;
+	final long[] initNanos;
+	final long[] turnNanos;
+	final long[] maximumTurnNanos;
+	final int[] turns;
+	final String error;
+
+	SessionResult(String agentA, String agentB, Outcome outcome, Bid agreement, double utilityA, double utilityB,
+			int rounds, long durationNanos, long[] initNanos, long[] turnNanos, long[] maximumTurnNanos, int[] turns,
+			String error) {
+		this.agentA = agentA;
+		this.agentB = agentB;
+		this.outcome = outcome;
+		this.agreement = agreement;
+		this.utilityA = utilityA;
+		this.utilityB = utilityB;
+		this.rounds = rounds;
+		this.durationNanos = durationNanos;
+		this.initNanos = initNanos;
+		this.turnNanos = turnNanos;
+		this.maximumTurnNanos = maximumTurnNanos;
+		this.turns = turns;
+		this.error = error;
+	}
+
+	public String getAgentA() {
+		return agentA;
+	}
+
+	public String getAgentB() {
+		return agentB;
+	}
+
+	public Outcome getOutcome() {
+		return outcome;
+	}
+
+	/**
+	 * @return the accepted bid, null without agreement.
+	 */
+	public Bid getAgreement() {
+		return agreement;
+	}
+
+	/**
+	 * @return the utility of agent A, 0 without agreement.
+	 */
+	public double getUtilityA() {
+		return utilityA;
+	}
+
+	/**
+	 * @return the utility of agent B, 0 without agreement.
+	 */
+	public double getUtilityB() {
+		return utilityB;
+	}
+
+	/**
+	 * @return the round in which the session ended.
+	 */
+	public int getRounds() {
+		return rounds;
+	}
+
+	/**
+	 * @return the wall clock time of the session, including the initialization of the agents.
+	 */
+	public long getDurationNanos() {
+		return durationNanos;
+	}
+
+	/**
+	 * @param agent
+	 * 			0 for agent A, 1 for agent B.
+	 * @return the time spent in init.
+	 */
+	public long getInitNanos(int agent) {
+		return initNanos[agent];
+	}
+
+	/**
+	 * @param agent
+	 * 			0 for agent A, 1 for agent B.
+	 * @return the total time spent in ReceiveMessage and chooseAction.
+	 */
+	public long getTurnNanos(int agent) {
+		return turnNanos[agent];
+	}
+
+	/**
+	 * @param agent
+	 * 			0 for agent A, 1 for agent B.
+	 * @return the longest turn, ReceiveMessage and chooseAction together.
+	 */
+	public long getMaximumTurnNanos(int agent) {
+		return maximumTurnNanos[agent];
+	}
+
+	/**
+	 * @param agent
+	 * 			0 for agent A, 1 for agent B.
+	 * @return the amount of actions chosen.
+	 */
+	public int getTurns(int agent) {
+		return turns[agent];
+	}
+
+	/**
+	 * @param agent
+	 * 			0 for agent A, 1 for agent B.
+	 * @return the mean time of a turn.
+	 */
+	public double getMeanTurnNanos(int agent) {
+		return turns[agent] == 0 ? 0 : turnNanos[agent] / (double) turns[agent];
+	}
+
+	/**
+	 * @return the message of the error that ended the session, or null.
+	 */
+	public String getError() {
+		return error;
+	}
+
+	public static String getCsvHeader() {
+		return "agentA,agentB,outcome,utilityA,utilityB,rounds,durationMs,initMsA,initMsB,meanTurnUsA,meanTurnUsB,maxTurnUsA,maxTurnUsB";
+	}
+
+	public String toCsv() {
+		return String.format(java.util.Locale.ROOT, "%s,%s,%s,%.6f,%.6f,%d,%.3f,%.3f,%.3f,%.3f,%.3f,%.3f,%.3f",
+				agentA, agentB, outcome, utilityA, utilityB, rounds, durationNanos / 1e6, initNanos[0] / 1e6,
+				initNanos[1] / 1e6, getMeanTurnNanos(0) / 1e3, getMeanTurnNanos(1) / 1e3, maximumTurnNanos[0] / 1e3,
+				maximumTurnNanos[1] / 1e3);
+	}
+
+	@Override
+	public String toString() {
+		return outcome + " after " + rounds + " rounds, utilities " + utilityA + " / " + utilityB
+				+ (agreement == null ? "" : ", agreement " + agreement) + (error == null ? "" : ", error " + error);
+	}
+}
@@ -0,0 +1,262 @@
+package masters.session;
+
+import java.io.FileWriter;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ForkJoinPool;
+
+import masters.agents.bayesian.OpponentModelStore;
+
+/**
+ * Runs every ordered pairing of a set of agents on a set of scenarios, in parallel.
+ *
+ * Sessions are fanned out over a ForkJoinPool and collected with a CompletionService, so results
+ * stream into the TournamentAggregate (and the listener) in the order the sessions finish. Every
+ * session loads its own domain and profiles and creates its own agents, so sessions share no state.
+ *
+ * Session k is seeded with a seed derived from the tournament seed and k only, so a session has the
+ * same outcome regardless of the amount of threads or the order in which sessions are run. Except with
+ * the opponent model store (masters.opponentStore): the agents then start from the models saved by the
+ * sessions that finished before, so on more than one thread the outcome depends on the order.
+ *
+ * @author MASters
+ */
+public class Tournament {
+	public static final String[] AGENTS = {
+			"masters.agents.hardliner.HardLiner",
+			"masters.agents.normalaccepter.NormalAccepter",
+			"masters.agents.normalaccepter.NormalAccepterShortMem",
+			"masters.agents.uniformaccepter.UniformAccepter",
+			"masters.agents.bayesian.BayesianAgent",
+			"masters.agents.bayesian.NormalBayesianAgent",
+			"masters.agents.bayesian.NormalLimitedMemoryBayesianAgent",
+			"masters.agents.bayesian.UniformBayesianAgent",
+			"masters.agents.frequency.FrequencyAnalyzer",
+			"masters.agents.frequency.AgentFrequencyBoulware",
+			"masters.agents.frequency.AgentFrequencyUniform" };
+
+	/**
+	 * Receives the result of every session as soon as it is finished, on the collecting thread.
+	 */
+	public interface Listener {
+		void sessionFinished(int index, Session session, SessionResult result);
+	}
+
+	/**
+	 * One session of the tournament.
+	 */
+	public static class Session {
+		final int index;
+		final Scenario scenario;
+		final String agentA;
+		final String agentB;
+		final long seed;
+
+		Session(int index, Scenario scenario, String agentA, String agentB, long seed) {
+			this.index = index;
+			this.scenario = scenario;
+			this.agentA = agentA;
+			this.agentB = agentB;
+			this.seed = seed;
+		}
+
+		public int getIndex() {
+			return index;
+		}
+
+		public Scenario getScenario() {
+			return scenario;
+		}
+
+		public long getSeed() {
+			return seed;
+		}
+
+		/**
+		 * Load the scenario and run the session.
+		 *
+		 * @param rounds
+		 * @return result
+		 */
+		public SessionResult run(int rounds) {
+			HeadlessSession session;
+			try {
+				session = HeadlessSession.load(scenario.getDomainFile(), scenario.getProfileA(),
+						scenario.getProfileB(), agentA, agentB, rounds);
+			} catch (Exception e) {
+				return new SessionResult(agentA, agentB, SessionResult.Outcome.ERROR, null, 0, 0, 0, 0, new long[2],
+						new long[2], new long[2], new int[2], "loading " + scenario + " failed: " + e);
+			}
+			session.setSeed(seed);
+			return session.run();
+		}
+	}
+
+	final List<String> agents;
+	final List<Scenario> scenarios;
+	final int rounds;
+	final int repetitions;
+	final long seed;
+
+	/**
+	 * @param agents
+	 * 			Class names of the agents.
+	 * @param scenarios
+	 * @param rounds
+	 * 			The deadline of a session in rounds.
+	 * @param repetitions
+	 * 			The amount of times every pairing is run on every scenario.
+	 * @param seed
+	 * 			Seed of the tournament, the seeds of the sessions are derived from it.
+	 */
+	public Tournament(List<String> agents, List<Scenario> scenarios, int rounds, int repetitions, long seed) {
+		this.agents = agents;
+		this.scenarios = scenarios;
+		this.rounds = rounds;
+		this.repetitions = repetitions;
+		this.seed = seed;
+	}
+
+	/**
+	 * @return all sessions of the tournament, every ordered pair of different agents on every
+	 * scenario and repetition.
+	 */
+	public List<Session> getSessions() {
+		List<Session> sessions = new ArrayList<Session>();
+		for (Scenario scenario : scenarios) {
+			for (int r = 0; r < repetitions; r++) {
+				for (String agentA : agents) {
+					for (String agentB : agents) {
+						if (agentA.equals(agentB))
+							continue;
+						int index = sessions.size();
+						sessions.add(new Session(index, scenario, agentA, agentB, getSessionSeed(seed, index)));
+					}
+				}
+			}
+		}
+		return sessions;
+	}
+
+	/**
+	 * Derive the seed of a session with the SplitMix64 finalizer, so neighbouring sessions get
+	 * unrelated seeds.
+	 *
+	 * @param seed
+	 * @param index
+	 * @return seed of the session
+	 */
+	public static long getSessionSeed(long seed, int index) {
+		long z = seed + (index + 1) * 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	/**
+	 * Run all sessions on a pool of threads.
+	 *
+	 * @param threads
+	 * @param listener
+	 * 			Receives every result as it finishes, may be null.
+	 * @return the aggregate of all sessions
+	 * @throws InterruptedException
+	 * @throws ExecutionException
+	 */
+	public TournamentAggregate run(int threads, Listener listener) throws InterruptedException, ExecutionException {
+		List<Session> sessions = getSessions();
+		TournamentAggregate aggregate = new TournamentAggregate();
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		try {
+			CompletionService<Object[]> completion = new ExecutorCompletionService<Object[]>(pool);
+			for (final Session session : sessions) {
+				completion.submit(new Callable<Object[]>() {
+					public Object[] call() {
+						return new Object[] { session, session.run(rounds) };
+					}
+				});
+			}
+			for (int i = 0; i < sessions.size(); i++) {
+				Object[] finished = completion.take().get();
+				Session session = (Session) finished[0];
+				SessionResult result = (SessionResult) finished[1];
+				aggregate.add(result);
+				if (listener != null)
+					listener.sessionFinished(session.getIndex(), session, result);
+			}
+		} finally {
+			pool.shutdownNow();
+		}
+		return aggregate;
+	}
+
+	/**
+	 * Usage: Tournament [--rounds n] [--repetitions n] [--seed n] [--threads n] [--agents a,b,...] [--csv file]
+	 * domain.xml profileA.xml profileB.xml [domain.xml profileA.xml profileB.xml ...]
+	 *
+	 * @param args
+	 * @throws Exception
+	 */
+	public static void main(String[] args) throws Exception {
+		int rounds = HeadlessSession.DEFAULT_ROUNDS;
+		int repetitions = 1;
+		long seed = 0;
+		int threads = Runtime.getRuntime().availableProcessors();
+		List<String> agents = Arrays.asList(AGENTS);
+		String csv = null;
+		List<String> files = new ArrayList<String>();
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].equals("--rounds"))
+				rounds = Integer.parseInt(args[++i]);
+			else if (args[i].equals("--repetitions"))
+				repetitions = Integer.parseInt(args[++i]);
+			else if (args[i].equals("--seed"))
+				seed = Long.parseLong(args[++i]);
+			else if (args[i].equals("--threads"))
+				threads = Integer.parseInt(args[++i]);
+			else if (args[i].equals("--agents"))
+				agents = Arrays.asList(args[++i].split(","));
+			else if (args[i].equals("--csv"))
+				csv = args[++i];
+			else
+				files.add(args[i]);
+		}
+		if (files.isEmpty() || files.size() % 3 != 0) {
+			System.out.println("usage: Tournament [--rounds n] [--repetitions n] [--seed n] [--threads n] "
+					+ "[--agents a,b,...] [--csv file] domain.xml profileA.xml profileB.xml ...");
+			return;
+		}
+		List<Scenario> scenarios = new ArrayList<Scenario>();
+		for (int i = 0; i < files.size(); i += 3) {
+			scenarios.add(new Scenario(files.get(i), files.get(i + 1), files.get(i + 2)));
+		}
+
+		final PrintWriter out = csv == null ? null : new PrintWriter(new FileWriter(csv));
+		if (out != null)
+			out.println("session,scenario,seed," + SessionResult.getCsvHeader());
+		if (System.getProperty(OpponentModelStore.PATH_PROPERTY) != null && threads > 1)
+			System.out.println("The opponent model store is shared by the sessions, the results depend on the order they finish in.");
+		Tournament tournament = new Tournament(agents, scenarios, rounds, repetitions, seed);
+		long start = System.nanoTime();
+		TournamentAggregate aggregate = tournament.run(threads, new Listener() {
+			public void sessionFinished(int index, Session session, SessionResult result) {
+				if (out != null)
+					out.println(index + "," + session.getScenario() + "," + session.getSeed() + "," + result.toCsv());
+			}
+		});
+		long wall = System.nanoTime() - start;
+		if (out != null)
+			out.close();
+
+		System.out.print(aggregate.report());
+		System.out.printf(java.util.Locale.ROOT, "%d sessions on %d threads in %.1f s, %.1f s of session time (%.1fx)%n",
+				aggregate.getSessions(), threads, wall / 1e9, aggregate.getSessionNanos() / 1e9,
+				aggregate.getSessionNanos() / (double) wall);
+	}
+}
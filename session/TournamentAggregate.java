@@ -0,0 +1,124 @@
+package masters.session;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Per-agent totals of a tournament, updated one session result at a time as sessions finish.
+ * Only the thread that collects the results adds to it.
+ *
+ * @author MASters
+ */
+public class TournamentAggregate {
+	/**
+	 * Totals of one agent over all its sessions, in either role.
+	 */
+	public static class AgentTotals {
+		int sessions;
+		int agreements;
+		int errors;
+		double utility;
+		long turnNanos;
+		long turns;
+		long maximumTurnNanos;
+
+		public int getSessions() {
+			return sessions;
+		}
+
+		public int getAgreements() {
+			return agreements;
+		}
+
+		public int getErrors() {
+			return errors;
+		}
+
+		/**
+		 * @return the mean utility over all sessions, sessions without agreement count as 0.
+		 */
+		public double getMeanUtility() {
+			return sessions == 0 ? 0 : utility / sessions;
+		}
+
+		public double getMeanTurnNanos() {
+			return turns == 0 ? 0 : turnNanos / (double) turns;
+		}
+
+		public long getMaximumTurnNanos() {
+			return maximumTurnNanos;
+		}
+	}
+
+	final Map<String, AgentTotals> agents = new TreeMap<String, AgentTotals>();
+	int sessions;
+	long sessionNanos;
+
+	/**
+	 * Add the result of a finished session.
+	 *
+	 * @param result
+	 */
+	public void add(SessionResult result) {
+		sessions++;
+		sessionNanos += result.getDurationNanos();
+		add(result.getAgentA(), result, 0, result.getUtilityA());
+		add(result.getAgentB(), result, 1, result.getUtilityB());
+	}
+
+	private void add(String agent, SessionResult result, int role, double utility) {
+		AgentTotals totals = agents.get(agent);
+		if (totals == null) {
+			totals = new AgentTotals();
+			agents.put(agent, totals);
+		}
+		totals.sessions++;
+		if (result.getOutcome() == SessionResult.Outcome.AGREEMENT)
+			totals.agreements++;
+		if (result.getOutcome() == SessionResult.Outcome.ERROR && result.getError() != null
+				&& result.getError().startsWith(agent))
+			totals.errors++;
+		totals.utility += utility;
+		totals.turnNanos += result.getTurnNanos(role);
+		totals.turns += result.getTurns(role);
+		totals.maximumTurnNanos = Math.max(totals.maximumTurnNanos, result.getMaximumTurnNanos(role));
+	}
+
+	/**
+	 * @return the amount of sessions added.
+	 */
+	public int getSessions() {
+		return sessions;
+	}
+
+	/**
+	 * @return the summed duration of the sessions, the cpu time the tournament would take serially.
+	 */
+	public long getSessionNanos() {
+		return sessionNanos;
+	}
+
+	/**
+	 * @return the totals per agent class name, sorted by name.
+	 */
+	public Map<String, AgentTotals> getAgents() {
+		return agents;
+	}
+
+	/**
+	 * @return a table of the totals per agent.
+	 */
+	public String report() {
+		StringBuilder report = new StringBuilder();
+		report.append(String.format(Locale.ROOT, "%-60s %8s %10s %8s %10s %12s %12s%n", "agent", "sessions",
+				"agreements", "errors", "utility", "meanTurnUs", "maxTurnUs"));
+		for (Map.Entry<String, AgentTotals> entry : agents.entrySet()) {
+			AgentTotals totals = entry.getValue();
+			report.append(String.format(Locale.ROOT, "%-60s %8d %10d %8d %10.4f %12.2f %12.2f%n", entry.getKey(),
+					totals.sessions, totals.agreements, totals.errors, totals.getMeanUtility(),
+					totals.getMeanTurnNanos() / 1e3, totals.maximumTurnNanos / 1e3));
+		}
+		return report.toString();
+	}
+}
@@ -0,0 +1,45 @@
+package masters.simd;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorSpecies;
+import masters.agents.bayesian.MatrixProduct;
+
+/**
+ * MatrixProduct with the Java Vector API. A vector of the preferred species holds the same element
+ * of consecutive rows, so a column is a multiply-add of a vector and one broadcast element of the
+ * vector, and every row is still summed in column order. The multiply and add are not fused, so the
+ * result is bit-identical to the scalar implementation.
+ *
+ * Needs Java 16 or later, compiled and run with --add-modules jdk.incubator.vector.
+ *
+ * @author MASters
+ */
+public class VectorMatrixProduct extends MatrixProduct {
+	static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+	@Override
+	public void multiply(double[] matrix, int rows, double[] vector, double[] result, int from, int to) {
+		int length = SPECIES.length();
+		int upper = from + SPECIES.loopBound(to - from);
+		int r = from;
+		for (; r < upper; r += length) {
+			DoubleVector sum = DoubleVector.zero(SPECIES);
+			for (int c = 0; c < vector.length; c++) {
+				sum = sum.add(DoubleVector.fromArray(SPECIES, matrix, c * rows + r).mul(vector[c]));
+			}
+			sum.intoArray(result, r);
+		}
+		for (; r < to; r++) {
+			double sum = 0.0;
+			for (int c = 0; c < vector.length; c++) {
+				sum += matrix[c * rows + r] * vector[c];
+			}
+			result[r] = sum;
+		}
+	}
+
+	@Override
+	public String getName() {
+		return "vector " + SPECIES;
+	}
+}